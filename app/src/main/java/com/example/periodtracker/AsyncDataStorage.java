@@ -0,0 +1,420 @@
+package com.example.periodtracker;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * AsyncDataStorage runs every DataStorage call on one dedicated I/O thread
+ * so decryption, parsing and disk writes never block the UI thread.
+ *
+ * Results are returned as CompletableFutures; use mainThread() as the
+ * executor for continuations that touch views.
+ *
+ * Writes queued while the I/O thread is busy are coalesced into a single
+ * DataStorage batch, so a burst of saves costs one log append and one
+ * SharedPreferences commit. Every other operation (reads, import, backup,
+ * restore) closes the open batch before it is queued, so a later write
+ * starts a new batch behind it and everything runs in submission order.
+ *
+ * When created from a Context, storage initialization is the first task on
+ * the I/O thread, so the caller can keep inflating its layout while keys
+ * are set up; every later read simply queues behind it.
+ */
+public class AsyncDataStorage {
+
+    private final ExecutorService ioExecutor;
+    private final Executor mainThreadExecutor;
+    private final CompletableFuture<StartupTrace> ready;
+
+    // Only touched on the I/O thread
+    private DataStorage dataStorage;
+
+    // Guards openBatch and keeps submissions to ioExecutor in order
+    private final Object submitLock = new Object();
+    // Writes that later writes may still join, or null once its flush can no longer take more
+    private List<PendingWrite> openBatch;
+
+    /**
+     * Constructor starts opening storage on the I/O thread and returns at once
+     * @param context Context used to open storage
+     */
+    public AsyncDataStorage(Context context) {
+        this.ioExecutor = newIoExecutor();
+        this.mainThreadExecutor = newMainThreadExecutor();
+
+        final StartupTrace trace = new StartupTrace();
+        this.ready = CompletableFuture.supplyAsync(() -> {
+            dataStorage = StorageInitializer.open(context, trace);
+            return trace;
+        }, ioExecutor);
+    }
+
+    /**
+     * Constructor wraps an open DataStorage. Direct calls on it from other
+     * threads remain safe but are not ordered with the work queued here.
+     * @param dataStorage Storage to run on the I/O thread
+     */
+    public AsyncDataStorage(DataStorage dataStorage) {
+        this.ioExecutor = newIoExecutor();
+        this.mainThreadExecutor = newMainThreadExecutor();
+        this.ready = CompletableFuture.supplyAsync(() -> {
+            this.dataStorage = dataStorage;
+            return null;
+        }, ioExecutor);
+    }
+
+    private static ExecutorService newIoExecutor() {
+        return Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "DataStorage-IO"));
+    }
+
+    private static Executor newMainThreadExecutor() {
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        return mainHandler::post;
+    }
+
+    /**
+     * Future completed once storage is open. Carries the startup trace
+     * (null when wrapping an existing DataStorage), including whether
+     * storage is running in degraded mode.
+     */
+    public CompletableFuture<StartupTrace> ready() {
+        return ready;
+    }
+
+    /**
+     * Executor that runs continuations on the UI thread
+     */
+    public Executor mainThread() {
+        return mainThreadExecutor;
+    }
+
+    /**
+     * Run an arbitrary read against DataStorage on the I/O thread.
+     * Useful to gather several values in one hop.
+     * @param query Function evaluated on the I/O thread
+     * @return Future completed with the query result
+     */
+    public <T> CompletableFuture<T> read(Function<DataStorage, T> query) {
+        return CompletableFuture.supplyAsync(() -> query.apply(dataStorage), this::submit);
+    }
+
+    public CompletableFuture<LocalDate> getLastPeriodStart() {
+        return read(DataStorage::getLastPeriodStart);
+    }
+
+    public CompletableFuture<Integer> getCycleLength() {
+        return read(DataStorage::getCycleLength);
+    }
+
+    public CompletableFuture<Integer> getAverageCycleLength() {
+        return read(DataStorage::getAverageCycleLength);
+    }
+
+    public CompletableFuture<List<LocalDate>> getPeriodHistory() {
+        return read(DataStorage::getPeriodHistory);
+    }
+
+    public CompletableFuture<List<PeriodEntry>> getPeriodEntries() {
+        return read(DataStorage::getPeriodEntries);
+    }
+
+    public CompletableFuture<PeriodCalculator.CycleStatistics> getCycleStatistics() {
+        return read(DataStorage::getCycleStatistics);
+    }
+
+    public CompletableFuture<String> exportDataAsCSV() {
+        return read(DataStorage::exportDataAsCSV);
+    }
+
+    /**
+     * Stream the CSV export to a document opened through the Storage Access
+     * Framework, e.g. contentResolver.openFileDescriptor(uri, "w").
+     * The descriptor is closed when the export finishes.
+     * @param descriptor Writable descriptor, owned by this call
+     * @param listener Progress callback run on the UI thread (nullable)
+     * @return Future completed once the file is written
+     */
+    public CompletableFuture<Void> exportCsv(ParcelFileDescriptor descriptor,
+                                             DataStorage.ExportProgressListener listener) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        submit(() -> {
+            try (OutputStream output = new ParcelFileDescriptor.AutoCloseOutputStream(descriptor)) {
+                dataStorage.exportCsv(output, onMainThread(listener));
+                future.complete(null);
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Stream the CSV export to an output stream on the I/O thread.
+     * The stream is flushed but not closed.
+     * @param output Destination stream
+     * @param listener Progress callback run on the UI thread (nullable)
+     * @return Future completed once all rows are written
+     */
+    public CompletableFuture<Void> exportCsv(OutputStream output, DataStorage.ExportProgressListener listener) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        submit(() -> {
+            try {
+                dataStorage.exportCsv(output, onMainThread(listener));
+                future.complete(null);
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private DataStorage.ExportProgressListener onMainThread(DataStorage.ExportProgressListener listener) {
+        if (listener == null) {
+            return null;
+        }
+        return (rowsWritten, totalRows) ->
+                mainThreadExecutor.execute(() -> listener.onProgress(rowsWritten, totalRows));
+    }
+
+    /**
+     * Receive DataStorage snapshots on the UI thread: the current one, then
+     * one after each write, with bursts of writes conflated into the latest
+     * @param listener Listener called on the UI thread
+     * @return Future completed once the listener is registered
+     */
+    public CompletableFuture<Void> addSnapshotListener(DataStorage.SnapshotListener listener) {
+        return read(storage -> {
+            storage.addSnapshotListener(listener, mainThreadExecutor);
+            return null;
+        });
+    }
+
+    /**
+     * Stop delivering snapshots to a listener
+     * @return Future completed once no further snapshot will be delivered
+     */
+    public CompletableFuture<Void> removeSnapshotListener(DataStorage.SnapshotListener listener) {
+        return read(storage -> {
+            storage.removeSnapshotListener(listener);
+            return null;
+        });
+    }
+
+    /**
+     * Switch the prediction strategy on the I/O thread
+     * @param strategy Strategy handed over to storage, or null for the average cycle length
+     * @return Future completed once the strategy is in use
+     */
+    public CompletableFuture<Void> setPredictionStrategy(PredictionStrategy strategy) {
+        return read(storage -> {
+            storage.setPredictionStrategy(strategy);
+            return null;
+        });
+    }
+
+    /**
+     * Queue a period entry save
+     * @param startDate Period start date
+     * @param endDate Period end date (nullable)
+     * @return Future completed once the entry is committed
+     */
+    public CompletableFuture<Void> savePeriodEntry(LocalDate startDate, LocalDate endDate) {
+        return enqueueWrite(batch -> batch.savePeriodEntry(startDate, endDate));
+    }
+
+    /**
+     * Queue a period entry delete
+     * @param startDate The start date of the period to delete
+     * @return Future completed once the delete is committed
+     */
+    public CompletableFuture<Void> deletePeriodEntry(LocalDate startDate) {
+        return enqueueWrite(batch -> batch.deletePeriodEntry(startDate));
+    }
+
+    /**
+     * Queue an end date change for an existing entry
+     * @param startDate Start date of the entry
+     * @param endDate New end date (nullable)
+     * @return Future completed once the change is committed
+     */
+    public CompletableFuture<Void> updatePeriodEnd(LocalDate startDate, LocalDate endDate) {
+        return enqueueWrite(batch -> batch.updatePeriodEnd(startDate, endDate));
+    }
+
+    /**
+     * Queue the replacement of an entry
+     * @param oldStartDate Start date of the entry to replace
+     * @param newStartDate New start date
+     * @param newEndDate New end date (nullable)
+     * @return Future completed once the change is committed
+     */
+    public CompletableFuture<Void> replaceEntry(LocalDate oldStartDate, LocalDate newStartDate, LocalDate newEndDate) {
+        return enqueueWrite(batch -> batch.replaceEntry(oldStartDate, newStartDate, newEndDate));
+    }
+
+    /**
+     * Queue the deletion of all entries starting between two dates, inclusive
+     * @param fromDate First start date to delete
+     * @param toDate Last start date to delete
+     * @return Future completed once the deletes are committed
+     */
+    public CompletableFuture<Void> deleteRange(LocalDate fromDate, LocalDate toDate) {
+        return enqueueWrite(batch -> batch.deleteRange(fromDate, toDate));
+    }
+
+    /**
+     * Queue a cycle length preference change
+     * @param cycleLength Cycle length in days
+     * @return Future completed once the setting is committed
+     */
+    public CompletableFuture<Void> setCycleLength(int cycleLength) {
+        return enqueueWrite(batch -> batch.setCycleLength(cycleLength));
+    }
+
+    /**
+     * Import CSV on the I/O thread, after any writes already queued. The
+     * import commits on its own rather than joining a write batch.
+     * @param reader CSV source, read entirely on the I/O thread
+     * @return Future completed with the import counts
+     */
+    public CompletableFuture<DataStorage.ImportResult> importCsv(Reader reader) {
+        CompletableFuture<DataStorage.ImportResult> future = new CompletableFuture<>();
+        submit(() -> {
+            try {
+                future.complete(dataStorage.importCsv(reader));
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Write a binary backup on the I/O thread, after any writes already queued
+     * @param output Destination; flushed but not closed
+     * @param incremental Whether only changes since the previous backup are wanted
+     * @return Future completed with the type written, BackupFormat.TYPE_FULL or TYPE_INCREMENTAL
+     */
+    public CompletableFuture<Byte> writeBackup(OutputStream output, boolean incremental) {
+        CompletableFuture<Byte> future = new CompletableFuture<>();
+        submit(() -> {
+            try {
+                future.complete(dataStorage.writeBackup(output, incremental));
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Restore a binary backup on the I/O thread, after any writes already queued
+     * @param input Backup source, read entirely on the I/O thread
+     * @return Future completed with the restore counts
+     */
+    public CompletableFuture<DataStorage.ImportResult> restoreBackup(InputStream input) {
+        CompletableFuture<DataStorage.ImportResult> future = new CompletableFuture<>();
+        submit(() -> {
+            try {
+                future.complete(dataStorage.restoreBackup(input));
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Stop accepting work; already queued reads and writes still complete
+     */
+    public void shutdown() {
+        ioExecutor.shutdown();
+    }
+
+    /**
+     * Queue an operation that does not join a write batch. The open batch
+     * is closed first, so writes submitted after this run after it.
+     */
+    private void submit(Runnable task) {
+        synchronized (submitLock) {
+            openBatch = null;
+            ioExecutor.execute(task);
+        }
+    }
+
+    private CompletableFuture<Void> enqueueWrite(WriteOp op) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (submitLock) {
+            // The first write of a burst schedules the flush; later ones ride along
+            if (openBatch == null) {
+                List<PendingWrite> batch = new ArrayList<>();
+                ioExecutor.execute(() -> flushPendingWrites(batch));
+                openBatch = batch;
+            }
+            openBatch.add(new PendingWrite(op, future));
+        }
+        return future;
+    }
+
+    private void flushPendingWrites(List<PendingWrite> writes) {
+        // Close the batch; writes from now on schedule a new flush
+        synchronized (submitLock) {
+            if (openBatch == writes) {
+                openBatch = null;
+            }
+        }
+
+        boolean committed;
+        try {
+            DataStorage.Batch batch = dataStorage.beginBatch();
+            for (PendingWrite write : writes) {
+                write.op.applyTo(batch);
+            }
+            committed = batch.commit();
+        } catch (RuntimeException e) {
+            for (PendingWrite write : writes) {
+                write.future.completeExceptionally(e);
+            }
+            return;
+        }
+
+        for (PendingWrite write : writes) {
+            if (committed) {
+                write.future.complete(null);
+            } else {
+                write.future.completeExceptionally(new IOException("DataStorage batch commit failed"));
+            }
+        }
+    }
+
+    /**
+     * A single queued mutation
+     */
+    private interface WriteOp {
+        void applyTo(DataStorage.Batch batch);
+    }
+
+    private static class PendingWrite {
+        private final WriteOp op;
+        private final CompletableFuture<Void> future;
+
+        PendingWrite(WriteOp op, CompletableFuture<Void> future) {
+            this.op = op;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.example.periodtracker;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+
+/**
+ * BackupFormat reads and writes the binary backup produced by
+ * DataStorage.writeBackup(). Entries are stored as varints of the
+ * difference to the previous start date, so a typical entry takes two or
+ * three bytes and a 1,000-entry history backs up in about 2 KB.
+ *
+ * Layout, all integers as unsigned LEB128 varints unless noted:
+ * - 4 bytes: magic "PTBK"
+ * - byte: format version (1)
+ * - byte: TYPE_FULL or TYPE_INCREMENTAL
+ * - settings: count, then per setting its id and zigzag value.
+ *   Readers skip ids they do not know.
+ * - entries: count, then per entry the zigzag difference of its start to
+ *   the previous entry's start (the first is relative to 0), and a code:
+ *   0 = delete, 1 = save without end, n = save ending n - 2 days after start.
+ *   An end before its start cannot be encoded and is written as the start.
+ * - 4 bytes: big-endian CRC32 of everything before it
+ *
+ * A full backup holds every entry as a save, oldest first. An incremental
+ * one holds the saves and deletes logged since the previous backup, in
+ * the order they were made.
+ *
+ * Both classes buffer internally and update the checksum per buffer, so
+ * encoding and decoding allocate nothing per entry.
+ */
+public final class BackupFormat {
+
+    public static final byte TYPE_FULL = 1;
+    public static final byte TYPE_INCREMENTAL = 2;
+
+    /** Setting id of the user's cycle length preference */
+    static final int SETTING_CYCLE_LENGTH = 1;
+
+    static final byte VERSION = 1;
+    private static final byte[] MAGIC = {'P', 'T', 'B', 'K'};
+    private static final int BUFFER_SIZE = 8192;
+    // Longest varint of an int is five bytes
+    private static final int MAX_VARINT_LENGTH = 5;
+
+    private static final int CODE_DELETE = 0;
+    private static final int CODE_NO_END = 1;
+    private static final int CODE_END_OFFSET = 2;
+
+    private BackupFormat() {
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Streams a backup to an output stream. Write the settings first, then
+     * exactly the announced number of entries, then call finish().
+     */
+    static final class Writer {
+        private final OutputStream output;
+        private final CRC32 crc = new CRC32();
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private long bytesWritten;
+        private int remainingSettings;
+        private int remainingEntries = -1;
+        private int previousStart;
+
+        /**
+         * Write the header
+         * @param output Destination; flushed but not closed by finish()
+         * @param type TYPE_FULL or TYPE_INCREMENTAL
+         * @param settingCount Number of writeSetting() calls to follow
+         */
+        Writer(OutputStream output, byte type, int settingCount) throws IOException {
+            this.output = output;
+            for (byte b : MAGIC) {
+                writeByte(b);
+            }
+            writeByte(VERSION);
+            writeByte(type);
+            writeVarint(settingCount);
+            remainingSettings = settingCount;
+        }
+
+        void writeSetting(int id, int value) throws IOException {
+            if (remainingSettings-- <= 0) {
+                throw new IllegalStateException("More settings than announced");
+            }
+            writeVarint(id);
+            writeVarint(zigzag(value));
+        }
+
+        /**
+         * Start the entry section; all settings must have been written
+         */
+        void beginEntries(int entryCount) throws IOException {
+            if (remainingSettings != 0) {
+                throw new IllegalStateException(remainingSettings + " settings missing");
+            }
+            writeVarint(entryCount);
+            remainingEntries = entryCount;
+        }
+
+        /**
+         * @param end End epoch day, or EpochDayHistory.NO_END. An end before
+         *            start is clamped to start, so it never reads back as a
+         *            delete or a missing end.
+         */
+        void writeSave(int start, int end) throws IOException {
+            writeEntry(start, end == EpochDayHistory.NO_END ? CODE_NO_END : Math.max(end - start, 0) + CODE_END_OFFSET);
+        }
+
+        void writeDelete(int start) throws IOException {
+            writeEntry(start, CODE_DELETE);
+        }
+
+        private void writeEntry(int start, int code) throws IOException {
+            if (remainingEntries-- <= 0) {
+                throw new IllegalStateException("More entries than announced");
+            }
+            writeVarint(zigzag(start - previousStart));
+            writeVarint(code);
+            previousStart = start;
+        }
+
+        /**
+         * Write the checksum and flush
+         * @return Total size of the backup in bytes
+         */
+        long finish() throws IOException {
+            if (remainingEntries != 0) {
+                throw new IllegalStateException(remainingEntries + " entries missing");
+            }
+            flushBuffer();
+            long checksum = crc.getValue();
+            output.write((int) (checksum >>> 24));
+            output.write((int) (checksum >>> 16));
+            output.write((int) (checksum >>> 8));
+            output.write((int) checksum);
+            output.flush();
+            return bytesWritten + 4;
+        }
+
+        private void writeByte(int value) throws IOException {
+            if (position == buffer.length) {
+                flushBuffer();
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeVarint(int value) throws IOException {
+            if (buffer.length - position < MAX_VARINT_LENGTH) {
+                flushBuffer();
+            }
+            while ((value & ~0x7F) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void flushBuffer() throws IOException {
+            crc.update(buffer, 0, position);
+            output.write(buffer, 0, position);
+            bytesWritten += position;
+            position = 0;
+        }
+    }
+
+    /**
+     * Streams a backup from an input stream. The header and settings are
+     * read by the constructor; call next() until it returns false, which
+     * also verifies the checksum.
+     */
+    static final class Reader {
+        private final InputStream input;
+        private final CRC32 crc = new CRC32();
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private int limit;
+        private final byte type;
+        private int cycleLength;
+        private int remainingEntries;
+        private int start;
+        private int end;
+        private boolean delete;
+
+        /**
+         * @param input Source; read up to the checksum and not closed
+         * @throws IOException If the stream is not a backup of a known version
+         */
+        Reader(InputStream input) throws IOException {
+            this.input = input;
+            for (byte b : MAGIC) {
+                if (readByte() != b) {
+                    throw new IOException("Not a period tracker backup");
+                }
+            }
+            int version = readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported backup version " + version);
+            }
+            type = (byte) readByte();
+            if (type != TYPE_FULL && type != TYPE_INCREMENTAL) {
+                throw new IOException("Unknown backup type " + type);
+            }
+
+            int settingCount = readVarint();
+            for (int i = 0; i < settingCount; i++) {
+                int id = readVarint();
+                int value = unzigzag(readVarint());
+                if (id == SETTING_CYCLE_LENGTH) {
+                    cycleLength = value;
+                }
+            }
+            remainingEntries = readVarint();
+        }
+
+        byte getType() {
+            return type;
+        }
+
+        /**
+         * @return Stored cycle length preference, or 0 if the backup has none
+         */
+        int getCycleLength() {
+            return cycleLength;
+        }
+
+        int getEntryCount() {
+            return remainingEntries;
+        }
+
+        /**
+         * Advance to the next entry
+         * @return false after the last entry, once the checksum has been verified
+         * @throws IOException If the backup is truncated or corrupt
+         */
+        boolean next() throws IOException {
+            if (remainingEntries == 0) {
+                verifyChecksum();
+                remainingEntries = -1;
+                return false;
+            }
+            if (remainingEntries < 0) {
+                return false;
+            }
+            remainingEntries--;
+
+            start += unzigzag(readVarint());
+            int code = readVarint();
+            delete = code == CODE_DELETE;
+            end = code <= CODE_NO_END ? EpochDayHistory.NO_END : start + code - CODE_END_OFFSET;
+            return true;
+        }
+
+        boolean isDelete() {
+            return delete;
+        }
+
+        int getStart() {
+            return start;
+        }
+
+        /**
+         * @return End epoch day, or EpochDayHistory.NO_END
+         */
+        int getEnd() {
+            return end;
+        }
+
+        private void verifyChecksum() throws IOException {
+            crc.update(buffer, 0, position);
+            long expected = 0;
+            for (int i = 0; i < 4; i++) {
+                expected = (expected << 8) | nextRawByte();
+            }
+            if (expected != crc.getValue()) {
+                throw new IOException("Backup checksum mismatch");
+            }
+        }
+
+        private int readByte() throws IOException {
+            if (position == limit) {
+                fill();
+            }
+            return buffer[position++];
+        }
+
+        private int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 7 * MAX_VARINT_LENGTH; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        // Bytes of the checksum itself are not added to the CRC
+        private int nextRawByte() throws IOException {
+            if (position == limit) {
+                position = 0;
+                limit = input.read(buffer, 0, buffer.length);
+                if (limit <= 0) {
+                    limit = 0;
+                    throw new EOFException("Backup is truncated");
+                }
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        private void fill() throws IOException {
+            crc.update(buffer, 0, limit);
+            position = 0;
+            limit = input.read(buffer, 0, buffer.length);
+            if (limit <= 0) {
+                limit = 0;
+                throw new EOFException("Backup is truncated");
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.periodtracker;
+
+import java.util.Arrays;
+
+/**
+ * CycleForecast is a reusable calendar of predicted cycles. For each cycle
+ * it holds the period, fertile window and ovulation day as epoch days in
+ * parallel int arrays, filled in one pass by PeriodCalculator.fillForecast().
+ *
+ * Cycle 0 is the current cycle, starting at the last recorded period, so
+ * the fertile window of cycle k matches getFertileWindowForCycle(k).
+ *
+ * All predicted cycles have the same length, so phaseOf() answers which
+ * phase a day falls in with a division and a few comparisons, without
+ * searching the arrays. Filling again reuses the arrays when they are
+ * large enough, so a calendar view can refresh without allocating.
+ */
+public final class CycleForecast {
+
+    /** Day is before the first or after the last forecast cycle */
+    public static final int PHASE_NONE = 0;
+    public static final int PHASE_PERIOD = 1;
+    public static final int PHASE_FOLLICULAR = 2;
+    public static final int PHASE_FERTILE = 3;
+    public static final int PHASE_OVULATION = 4;
+    public static final int PHASE_LUTEAL = 5;
+
+    /** Period length used when none is known */
+    public static final int DEFAULT_PERIOD_LENGTH = 5;
+
+    private int[] periodStarts = new int[0];
+    private int[] periodEnds = new int[0];
+    private int[] fertileStarts = new int[0];
+    private int[] fertileEnds = new int[0];
+    private int[] ovulationDays = new int[0];
+
+    private int cycleCount;
+    private int firstStart;
+    private int cycleLength;
+    private int periodLength;
+    private int ovulationDay;
+
+    /**
+     * Replace the contents with a new forecast
+     * @param lastPeriodStart Epoch day of the current cycle's period, or PeriodCalculator.NO_DATE
+     * @param cycleLength Cycle length in days, greater than 0
+     * @param periodLength Period length in days, greater than 0
+     * @param ovulationDay Day of the cycle on which ovulation is expected
+     * @param cycles Number of cycles to forecast, including the current one
+     */
+    void fill(int lastPeriodStart, int cycleLength, int periodLength, int ovulationDay, int cycles) {
+        if (lastPeriodStart == PeriodCalculator.NO_DATE || cycles <= 0) {
+            cycleCount = 0;
+            return;
+        }
+
+        if (periodStarts.length < cycles) {
+            periodStarts = new int[cycles];
+            periodEnds = new int[cycles];
+            fertileStarts = new int[cycles];
+            fertileEnds = new int[cycles];
+            ovulationDays = new int[cycles];
+        }
+
+        this.cycleCount = cycles;
+        this.firstStart = lastPeriodStart;
+        this.cycleLength = cycleLength;
+        this.periodLength = periodLength;
+        this.ovulationDay = ovulationDay;
+
+        int start = lastPeriodStart;
+        for (int i = 0; i < cycles; i++) {
+            periodStarts[i] = start;
+            periodEnds[i] = start + periodLength - 1;
+            fertileStarts[i] = start + ovulationDay - PeriodCalculator.FERTILE_DAYS_BEFORE_OVULATION;
+            fertileEnds[i] = start + ovulationDay + PeriodCalculator.FERTILE_DAYS_AFTER_OVULATION;
+            ovulationDays[i] = start + ovulationDay;
+            start += cycleLength;
+        }
+    }
+
+    /**
+     * Number of forecast cycles, 0 when the last period is unknown
+     */
+    public int getCycleCount() {
+        return cycleCount;
+    }
+
+    public int getCycleLength() {
+        return cycleLength;
+    }
+
+    public int getPeriodStart(int cycle) {
+        return periodStarts[checkCycle(cycle)];
+    }
+
+    public int getPeriodEnd(int cycle) {
+        return periodEnds[checkCycle(cycle)];
+    }
+
+    public int getFertileStart(int cycle) {
+        return fertileStarts[checkCycle(cycle)];
+    }
+
+    public int getFertileEnd(int cycle) {
+        return fertileEnds[checkCycle(cycle)];
+    }
+
+    public int getOvulationDay(int cycle) {
+        return ovulationDays[checkCycle(cycle)];
+    }
+
+    /**
+     * Cycle containing a day
+     * @param epochDay Day to look up
+     * @return Cycle index, or -1 if the day is outside the forecast
+     */
+    public int cycleOf(int epochDay) {
+        if (cycleCount == 0) {
+            return -1;
+        }
+        long offset = (long) epochDay - firstStart;
+        if (offset < 0 || offset >= (long) cycleCount * cycleLength) {
+            return -1;
+        }
+        return (int) (offset / cycleLength);
+    }
+
+    /**
+     * Phase of a day in O(1). Ovulation takes precedence over the rest of
+     * the fertile window, and the period over everything else when a short
+     * cycle makes them overlap.
+     * @param epochDay Day to look up
+     * @return One of the PHASE_ constants
+     */
+    public int phaseOf(int epochDay) {
+        int cycle = cycleOf(epochDay);
+        if (cycle < 0) {
+            return PHASE_NONE;
+        }
+
+        int dayInCycle = epochDay - firstStart - cycle * cycleLength;
+        if (dayInCycle < periodLength) {
+            return PHASE_PERIOD;
+        }
+        if (dayInCycle == ovulationDay) {
+            return PHASE_OVULATION;
+        }
+        int fertileStart = ovulationDay - PeriodCalculator.FERTILE_DAYS_BEFORE_OVULATION;
+        if (dayInCycle >= fertileStart
+                && dayInCycle <= ovulationDay + PeriodCalculator.FERTILE_DAYS_AFTER_OVULATION) {
+            return PHASE_FERTILE;
+        }
+        return dayInCycle < fertileStart ? PHASE_FOLLICULAR : PHASE_LUTEAL;
+    }
+
+    private int checkCycle(int cycle) {
+        if (cycle < 0 || cycle >= cycleCount) {
+            throw new IndexOutOfBoundsException("Cycle " + cycle + " of " + cycleCount);
+        }
+        return cycle;
+    }
+
+    @Override
+    public String toString() {
+        return "CycleForecast" + Arrays.toString(Arrays.copyOf(periodStarts, cycleCount));
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.periodtracker;
+
+/**
+ * CycleStatsAccumulator keeps running statistics over cycle lengths
+ * (gaps between consecutive period starts) so they can be updated one
+ * cycle at a time instead of being recomputed from the full history.
+ *
+ * Mean and variance use Welford's online algorithm, which also supports
+ * removing a value. Min and max cannot be rolled back that way; removing
+ * the current extreme marks them stale until rescanExtremes() is called.
+ *
+ * Period durations of entries with an end date are tracked alongside, so
+ * both sets of statistics come out of the same pass over the history.
+ */
+public class CycleStatsAccumulator {
+
+    private static final int DEFAULT_CYCLE_LENGTH = 28;
+    private static final String FIELD_SEPARATOR = ";";
+
+    private int count;
+    private long sum;
+    private int min = Integer.MAX_VALUE;
+    private int max = Integer.MIN_VALUE;
+    private double mean;
+    private double m2;
+    private boolean extremesStale;
+
+    private int periodCount;
+    private long periodSum;
+    private int periodMin = Integer.MAX_VALUE;
+    private int periodMax = Integer.MIN_VALUE;
+
+    /**
+     * Add one cycle length
+     * @param cycleLength Days between two consecutive period starts
+     */
+    public void add(int cycleLength) {
+        count++;
+        sum += cycleLength;
+
+        double delta = cycleLength - mean;
+        mean += delta / count;
+        m2 += delta * (cycleLength - mean);
+
+        if (cycleLength < min) {
+            min = cycleLength;
+        }
+        if (cycleLength > max) {
+            max = cycleLength;
+        }
+    }
+
+    /**
+     * Remove one previously added cycle length
+     * @param cycleLength Days between two period starts that are no longer consecutive
+     */
+    public void remove(int cycleLength) {
+        if (count <= 1) {
+            // Period durations are independent of cycles and are kept
+            resetCycles();
+            return;
+        }
+
+        double delta = cycleLength - mean;
+        count--;
+        sum -= cycleLength;
+        mean -= delta / count;
+        m2 -= delta * (cycleLength - mean);
+        if (m2 < 0) {
+            m2 = 0;
+        }
+
+        if (cycleLength <= min || cycleLength >= max) {
+            extremesStale = true;
+        }
+    }
+
+    /**
+     * Add the duration of one period with a recorded end
+     * @param duration Period length in days
+     */
+    public void addPeriod(int duration) {
+        periodCount++;
+        periodSum += duration;
+        if (duration < periodMin) {
+            periodMin = duration;
+        }
+        if (duration > periodMax) {
+            periodMax = duration;
+        }
+    }
+
+    /**
+     * Remove the duration of a period that was deleted or whose end changed
+     * @param duration Period length in days
+     */
+    public void removePeriod(int duration) {
+        if (periodCount <= 1) {
+            periodCount = 0;
+            periodSum = 0;
+            periodMin = Integer.MAX_VALUE;
+            periodMax = Integer.MIN_VALUE;
+            return;
+        }
+        
+        periodCount--;
+        periodSum -= duration;
+        if (duration <= periodMin || duration >= periodMax) {
+            extremesStale = true;
+        }
+    }
+
+    /**
+     * Whether min/max must be rebuilt with rescanExtremes() after a removal
+     */
+    public boolean hasStaleExtremes() {
+        return extremesStale;
+    }
+
+    /**
+     * Rebuild cycle and period min and max from a history
+     * @param history Period history the accumulator describes
+     */
+    public void rescanExtremes(EpochDayHistory history) {
+        min = Integer.MAX_VALUE;
+        max = Integer.MIN_VALUE;
+        periodMin = Integer.MAX_VALUE;
+        periodMax = Integer.MIN_VALUE;
+        for (int i = 0; i < history.size(); i++) {
+            if (i < history.size() - 1) {
+                int cycleLength = history.getCycleLength(i);
+                min = Math.min(min, cycleLength);
+                max = Math.max(max, cycleLength);
+            }
+            if (history.getEnd(i) != EpochDayHistory.NO_END) {
+                int duration = PeriodCalculator.calculatePeriodLength(history.getStart(i), history.getEnd(i));
+                periodMin = Math.min(periodMin, duration);
+                periodMax = Math.max(periodMax, duration);
+            }
+        }
+        extremesStale = false;
+    }
+
+    /**
+     * Build an accumulator over every cycle and period duration in a history
+     */
+    public static CycleStatsAccumulator fromHistory(EpochDayHistory history) {
+        CycleStatsAccumulator accumulator = new CycleStatsAccumulator();
+        for (int i = 0; i < history.size(); i++) {
+            if (i < history.size() - 1) {
+                accumulator.add(history.getCycleLength(i));
+            }
+            if (history.getEnd(i) != EpochDayHistory.NO_END) {
+                accumulator.addPeriod(PeriodCalculator.calculatePeriodLength(history.getStart(i), history.getEnd(i)));
+            }
+        }
+        return accumulator;
+    }
+
+    /**
+     * Clear all accumulated values
+     */
+    public void reset() {
+        resetCycles();
+        extremesStale = false;
+        periodCount = 0;
+        periodSum = 0;
+        periodMin = Integer.MAX_VALUE;
+        periodMax = Integer.MIN_VALUE;
+    }
+
+    private void resetCycles() {
+        count = 0;
+        sum = 0;
+        min = Integer.MAX_VALUE;
+        max = Integer.MIN_VALUE;
+        mean = 0;
+        m2 = 0;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count > 0 ? (double) sum / count : DEFAULT_CYCLE_LENGTH;
+    }
+
+    /**
+     * Sample variance of the cycle lengths, 0 with fewer than two cycles
+     */
+    public double getVariance() {
+        return count > 1 ? m2 / (count - 1) : 0;
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Number of periods with a recorded end date
+     */
+    public int getPeriodCount() {
+        return periodCount;
+    }
+
+    /**
+     * Mean period duration in days, 0 if no period has an end date
+     */
+    public double getMeanPeriodLength() {
+        return periodCount > 0 ? (double) periodSum / periodCount : 0;
+    }
+
+    /**
+     * Expose the accumulated values through the existing CycleStatistics type
+     */
+    public PeriodCalculator.CycleStatistics toCycleStatistics() {
+        int averagePeriod = (int) Math.round(getMeanPeriodLength());
+        int minPeriod = periodCount > 0 ? periodMin : 0;
+        int maxPeriod = periodCount > 0 ? periodMax : 0;
+        if (count == 0) {
+            return new PeriodCalculator.CycleStatistics(DEFAULT_CYCLE_LENGTH, 0, 0, averagePeriod, minPeriod, maxPeriod);
+        }
+        return new PeriodCalculator.CycleStatistics(getMean(), getVariance(), min, max, averagePeriod, minPeriod, maxPeriod);
+    }
+
+    /**
+     * Encode the accumulator for persistence next to the period data
+     */
+    public String encode() {
+        return count + FIELD_SEPARATOR + sum + FIELD_SEPARATOR + min + FIELD_SEPARATOR + max
+                + FIELD_SEPARATOR + mean + FIELD_SEPARATOR + m2
+                + FIELD_SEPARATOR + periodCount + FIELD_SEPARATOR + periodSum
+                + FIELD_SEPARATOR + periodMin + FIELD_SEPARATOR + periodMax;
+    }
+
+    /**
+     * Decode a value written by encode()
+     * @return The decoded accumulator, or null if the value is missing or malformed.
+     *         Values from before period durations were tracked also decode to
+     *         null, so the caller rebuilds them from the history once.
+     */
+    public static CycleStatsAccumulator decode(String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return null;
+        }
+
+        String[] fields = encoded.split(FIELD_SEPARATOR);
+        if (fields.length != 10) {
+            return null;
+        }
+
+        try {
+            CycleStatsAccumulator accumulator = new CycleStatsAccumulator();
+            accumulator.count = Integer.parseInt(fields[0]);
+            accumulator.sum = Long.parseLong(fields[1]);
+            accumulator.min = Integer.parseInt(fields[2]);
+            accumulator.max = Integer.parseInt(fields[3]);
+            accumulator.mean = Double.parseDouble(fields[4]);
+            accumulator.m2 = Double.parseDouble(fields[5]);
+            accumulator.periodCount = Integer.parseInt(fields[6]);
+            accumulator.periodSum = Long.parseLong(fields[7]);
+            accumulator.periodMin = Integer.parseInt(fields[8]);
+            accumulator.periodMax = Integer.parseInt(fields[9]);
+            return accumulator;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
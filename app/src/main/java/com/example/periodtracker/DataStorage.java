@@ -1,125 +1,449 @@
 package com.example.periodtracker;
 
-import android.content.Context;
 import android.content.SharedPreferences;
-import androidx.security.crypto.EncryptedSharedPreferences;
-import androidx.security.crypto.MasterKey;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * DataStorage handles all data persistence using encrypted SharedPreferences.
  * Stores period entries, cycle statistics, and user preferences locally with encryption.
  * 
+ * Period entries live in an append-only EncryptedEntryLog rather than a single
+ * preference string, so a save only encrypts and writes the new record.
+ * 
+ * Keys and preference files are set up by StorageInitializer, which keeps
+ * the expensive Keystore work off the UI thread.
+ * 
  * Features:
  * - End-to-end encryption using EncryptedSharedPreferences
  * - Period entry management (save, retrieve, delete)
+ * - Migration of the legacy pipe-delimited entry string
  * - Cycle history tracking
  * - Statistics caching
+ * - In-memory parsed history, kept up to date by every write
+ * - Batched writes that share one log append and one editor commit
+ * - Streaming CSV export with progress reporting
+ * - A day-phase index for calendars, updated as entries change
+ * - Typed PeriodEntry access with end dates and period duration statistics
+ * - An optional PredictionStrategy kept trained as periods are logged
+ * - Bulk import of entries and of CSV produced by exportDataAsCSV()
+ * - Compact binary backups, full or incremental, with settings (BackupFormat)
+ * - Timings of the data operations in Metrics, when enabled
+ * - Snapshot listeners, notified once per write with bursts conflated
+ * 
+ * Thread safety: writes are serialized. A Batch only queues its changes;
+ * commit() applies them under one lock to the history as it is at that
+ * moment, so concurrent writers such as the activity, a widget and a
+ * background import never drop each other's entries. Reads of the history,
+ * entries and statistics take no lock: they return parts of the immutable
+ * Snapshot published by the last write. Keep one DataStorage per process,
+ * since two instances over the same log do not see each other's writes.
  */
 public class DataStorage {
     
-    private static final String PREFS_NAME = "period_tracker_prefs";
     private static final String KEY_PERIOD_ENTRIES = "period_entries";
     private static final String KEY_LAST_PERIOD_START = "last_period_start";
     private static final String KEY_CYCLE_LENGTH = "cycle_length";
     private static final String KEY_AVERAGE_CYCLE = "average_cycle";
-    private static final String ENTRY_SEPARATOR = "|";
+    private static final String KEY_CYCLE_STATS = "cycle_stats";
+    private static final String KEY_BACKUP_LOG_POSITION = "backup_log_position";
+    // Wrapped key of the entry log, written by StorageInitializer
+    static final String KEY_ENTRY_LOG_KEY = "entry_log_key";
+    private static final String CSV_HEADER = "Period Start,Period End,Duration (days)";
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE;
+    private static final int ISO_DATE_LENGTH = 10;
     private static final int DEFAULT_CYCLE_LENGTH = 28;
+    private static final int MIN_RECORDS_BEFORE_COMPACTION = 64;
+    private static final int EXPORT_PROGRESS_INTERVAL = 1000;
+    // Marks a replayed delete record; never a valid end epoch day
+    private static final int DELETED = Integer.MIN_VALUE + 1;
+    
+    private final SharedPreferences encryptedPrefs;
+    private final EncryptedEntryLog entryLog;
+    
+    // Serializes writes; every field below except snapshot is guarded by it
+    private final Object writeLock = new Object();
+    
+    // Parsed history, loaded from the log on first read and then updated in place by commits
+    private EpochDayHistory history;
+    private List<LocalDate> historySnapshot;
+    // What readers see: replaced after each write, null until the history is loaded
+    private volatile Snapshot snapshot;
+    private final AtomicInteger cacheHits = new AtomicInteger();
+    private final AtomicInteger cacheMisses = new AtomicInteger();
+    private final List<SnapshotSubscription> subscriptions = new ArrayList<>();
+    
+    // Running cycle statistics, persisted under KEY_CYCLE_STATS
+    private CycleStatsAccumulator cycleStats;
+    
+    // Calendar index, built on first request; predictions are refilled lazily
+    private DayPhaseIndex dayPhaseIndex;
+    private final CycleForecast forecast = new CycleForecast();
+    private int forecastCycles;
+    private boolean forecastStale;
     
-    private SharedPreferences encryptedPrefs;
-    private Context context;
+    // Optional prediction model; appended cycles train it in O(1), other edits retrain it lazily
+    private PredictionStrategy predictionStrategy;
+    private boolean strategyStale;
     
     /**
-     * Constructor initializes encrypted SharedPreferences
-     * @param context Application context
+     * Constructor binds storage to already initialized preferences and entry log
+     * and migrates any legacy entry string into the log
+     * @param encryptedPrefs Preferences for settings and statistics
+     * @param entryLog Log for period entries, or null to keep entries in memory
+     *                 only (degraded mode, see StorageInitializer)
      */
-    public DataStorage(Context context) {
-        this.context = context;
-        try {
-            initializeEncryptedPreferences();
-        } catch (GeneralSecurityException | IOException e) {
-            e.printStackTrace();
-            // Fallback to unencrypted if encryption fails
-            encryptedPrefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    public DataStorage(SharedPreferences encryptedPrefs, EncryptedEntryLog entryLog) {
+        this.encryptedPrefs = encryptedPrefs;
+        this.entryLog = entryLog;
+        
+        if (entryLog != null) {
+            long startNanos = Metrics.start();
+            try {
+                migrateLegacyEntries();
+            } catch (GeneralSecurityException | IOException e) {
+                // Legacy key is left in place and migration retried next launch
+                e.printStackTrace();
+            }
+            Metrics.STORAGE_MIGRATE.stop(startNanos);
         }
     }
     
     /**
-     * Initialize encrypted SharedPreferences with MasterKey
+     * Whether entries are written to disk, false in degraded mode
      */
-    private void initializeEncryptedPreferences() throws GeneralSecurityException, IOException {
-        MasterKey masterKey = new MasterKey.Builder(context)
-                .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
-                .build();
-        
-        encryptedPrefs = EncryptedSharedPreferences.create(
-                context,
-                PREFS_NAME,
-                masterKey,
-                EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
-                EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM
-        );
+    public boolean isPersistent() {
+        return entryLog != null;
     }
     
     /**
-     * Save a new period entry (start and optionally end date)
-     * @param startDate Period start date
-     * @param endDate Period end date (nullable)
+     * Move entries from the legacy pipe-delimited KEY_PERIOD_ENTRIES string into
+     * the entry log. The log is written before the legacy key is removed, and
+     * replaying keeps one entry per start date, so an interrupted migration is
+     * simply repeated on the next launch.
      */
-    public void savePeriodEntry(LocalDate startDate, LocalDate endDate) {
-        if (startDate == null) {
+    private void migrateLegacyEntries() throws GeneralSecurityException, IOException {
+        String entries = encryptedPrefs.getString(KEY_PERIOD_ENTRIES, "");
+        if (entries.isEmpty()) {
             return;
         }
         
-        String entries = encryptedPrefs.getString(KEY_PERIOD_ENTRIES, "");
-        String newEntry = startDate.format(DATE_FORMATTER) + 
-                         (endDate != null ? "-" + endDate.format(DATE_FORMATTER) : "");
+        // Malformed entries are dropped and counted rather than logged one by one
+        LegacyEntryParser parser = new LegacyEntryParser();
+        EpochDayHistory legacy = parser.parse(entries);
+        Metrics.LEGACY_PARSE_ERRORS.add(parser.getErrorCount());
         
-        String updatedEntries = entries.isEmpty() ? newEntry : entries + ENTRY_SEPARATOR + newEntry;
+        List<EncryptedEntryLog.Record> records = new ArrayList<>(legacy.size());
+        for (int i = 0; i < legacy.size(); i++) {
+            records.add(new EncryptedEntryLog.Record(EncryptedEntryLog.OP_SAVE, legacy.getStart(i), legacy.getEnd(i)));
+        }
+        entryLog.append(records);
         
         SharedPreferences.Editor editor = encryptedPrefs.edit();
-        editor.putString(KEY_PERIOD_ENTRIES, updatedEntries);
-        editor.putString(KEY_LAST_PERIOD_START, startDate.format(DATE_FORMATTER));
+        editor.remove(KEY_PERIOD_ENTRIES);
         editor.apply();
+    }
+    
+    /**
+     * Replay the entry log into a history.
+     * A later save for the same start date replaces the earlier one.
+     */
+    private EpochDayHistory loadHistory() {
+        if (entryLog == null) {
+            return EpochDayHistory.EMPTY;
+        }
         
-        // Update cycle statistics
-        updateCycleStatistics();
+        long startNanos = Metrics.start();
+        final EntryReplay replay = new EntryReplay();
+        try {
+            entryLog.replay(replay);
+        } catch (GeneralSecurityException | IOException e) {
+            e.printStackTrace();
+        }
+        EpochDayHistory loaded = replay.toHistory();
+        Metrics.STORAGE_LOAD_HISTORY.stop(startNanos);
+        Metrics.HISTORY_ENTRIES.record(loaded.size());
+        return loaded;
     }
     
     /**
-     * Retrieve all period start dates from history
-     * @return List of LocalDate objects representing period starts
+     * Rewrite the log with only live entries once superseded and deleted
+     * records outnumber them
      */
-    public List<LocalDate> getPeriodHistory() {
-        String entries = encryptedPrefs.getString(KEY_PERIOD_ENTRIES, "");
-        List<LocalDate> periodDates = new ArrayList<>();
+    private void compactIfNeeded() {
+        // Records the replay could not read are not in the history; keep them on disk
+        if (!entryLog.isIntact()) {
+            return;
+        }
         
-        if (entries.isEmpty()) {
-            return periodDates;
+        int recordCount = entryLog.getRecordCount();
+        if (recordCount < MIN_RECORDS_BEFORE_COMPACTION || recordCount < 2 * history.size()) {
+            return;
         }
         
-        String[] entryArray = entries.split("\\" + ENTRY_SEPARATOR);
+        List<EncryptedEntryLog.Record> records = new ArrayList<>(history.size());
+        for (int i = 0; i < history.size(); i++) {
+            records.add(new EncryptedEntryLog.Record(EncryptedEntryLog.OP_SAVE, history.getStart(i), history.getEnd(i)));
+        }
         
-        for (String entry : entryArray) {
-            try {
-                String[] dates = entry.split("-");
-                LocalDate startDate = LocalDate.parse(dates[0], DATE_FORMATTER);
-                periodDates.add(startDate);
-            } catch (Exception e) {
-                e.printStackTrace();
+        // Record positions change with the rewrite, so the next incremental
+        // backup cannot start from the stored one. Drop it first, so a crash
+        // mid-rewrite never leaves a position pointing into the new log.
+        encryptedPrefs.edit().remove(KEY_BACKUP_LOG_POSITION).commit();
+        try {
+            entryLog.rewrite(records);
+        } catch (GeneralSecurityException | IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Save a new period entry (start and optionally end date)
+     * @param startDate Period start date
+     * @param endDate Period end date (nullable)
+     */
+    public void savePeriodEntry(LocalDate startDate, LocalDate endDate) {
+        beginBatch().savePeriodEntry(startDate, endDate).commit();
+    }
+    
+    /**
+     * Start a batch of writes. Changes made through the batch are applied
+     * and stored together on commit(): one log append and one
+     * SharedPreferences commit for the whole batch. Reads see none of them
+     * before commit() and all of them after it.
+     * @return New batch bound to this storage
+     */
+    public Batch beginBatch() {
+        return new Batch();
+    }
+    
+    /**
+     * Retrieve all period start dates from history.
+     * The returned list is a shared, unmodifiable snapshot; repeated calls
+     * return the same instance until the history changes.
+     * @return List of LocalDate objects representing period starts, most recent first
+     */
+    public List<LocalDate> getPeriodHistory() {
+        long startNanos = Metrics.start();
+        List<LocalDate> startDates = readSnapshot().startDates;
+        Metrics.STORAGE_GET_HISTORY.stop(startNanos);
+        return startDates;
+    }
+    
+    /**
+     * Retrieve all period entries with their end dates. The history is kept
+     * sorted as it is written, so this only wraps it; the list is cached until
+     * the next change.
+     * @return Unmodifiable list of entries, most recent first
+     */
+    public List<PeriodEntry> getPeriodEntries() {
+        long startNanos = Metrics.start();
+        List<PeriodEntry> entries = readSnapshot().getEntries();
+        Metrics.STORAGE_GET_ENTRIES.stop(startNanos);
+        return entries;
+    }
+    
+    /**
+     * Retrieve the history as sorted epoch-day arrays, for calculations that
+     * should not allocate per entry. The returned history is immutable.
+     * @return Period history in ascending start order
+     */
+    public EpochDayHistory getEpochDayHistory() {
+        return readSnapshot().history;
+    }
+    
+    /**
+     * Number of history reads served from the in-memory snapshot
+     */
+    public int getCacheHits() {
+        return cacheHits.get();
+    }
+    
+    /**
+     * Number of times the history had to be loaded by replaying the entry
+     * log, whether for a read or a write
+     */
+    public int getCacheMisses() {
+        return cacheMisses.get();
+    }
+    
+    /**
+     * Drop the parsed history and statistics so they are reloaded from storage
+     */
+    private void invalidateCache() {
+        history = null;
+        historySnapshot = null;
+        snapshot = null;
+        cycleStats = null;
+        dayPhaseIndex = null;
+        strategyStale = predictionStrategy != null;
+    }
+    
+    /**
+     * Latest published snapshot, loading the history on first use.
+     * Only the first read, or the first after a failed write, takes the lock.
+     */
+    private Snapshot readSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            cacheHits.incrementAndGet();
+            return current;
+        }
+        
+        synchronized (writeLock) {
+            if (snapshot != null) {
+                // Loaded by another thread while this one waited for the lock
+                cacheHits.incrementAndGet();
+            } else {
+                ensureEntriesLoaded();
             }
+            return snapshot;
+        }
+    }
+    
+    /**
+     * Make the working history, statistics and prediction visible to readers
+     * and hand the new snapshot to every listener.
+     * Called with writeLock held after every change.
+     */
+    private void publish() {
+        if (cycleStats == null && !subscriptions.isEmpty()) {
+            ensureCycleStatsLoaded();
+        }
+        PeriodCalculator.CycleStatistics statistics = cycleStats != null ? cycleStats.toCycleStatistics() : null;
+        Snapshot published = new Snapshot(history, historySnapshot, statistics, predictCycleLength(statistics));
+        snapshot = published;
+        for (SnapshotSubscription subscription : subscriptions) {
+            subscription.offer(published);
+        }
+    }
+    
+    /**
+     * Cycle length to predict with: the prediction strategy's if one is set,
+     * else the average logged cycle, else the user's setting.
+     * Called with writeLock held.
+     */
+    private int predictCycleLength(PeriodCalculator.CycleStatistics statistics) {
+        if (predictionStrategy != null) {
+            if (strategyStale) {
+                predictionStrategy.train(history);
+                strategyStale = false;
+            }
+            return predictionStrategy.predictCycleLength();
+        }
+        if (cycleStats != null && cycleStats.getCount() > 0) {
+            return statistics.getAverageCycleLength();
+        }
+        return getCycleLength();
+    }
+    
+    /**
+     * Receive the current snapshot, and a new one after every write.
+     * Snapshots are computed once per write and shared by all listeners.
+     * Each listener has at most one delivery queued on its executor: writes
+     * made before it runs are conflated, and it receives only the latest.
+     * Delivered snapshots always carry statistics.
+     * @param listener Listener to add
+     * @param executor Runs the deliveries, e.g. the UI thread. A direct
+     *                 executor calls the listener inside the write.
+     */
+    public void addSnapshotListener(SnapshotListener listener, Executor executor) {
+        SnapshotSubscription subscription = new SnapshotSubscription(listener, executor);
+        synchronized (writeLock) {
+            ensureEntriesLoaded();
+            subscriptions.add(subscription);
+            if (snapshot.statistics == null) {
+                publish();
+            } else {
+                subscription.offer(snapshot);
+            }
+        }
+    }
+    
+    /**
+     * Stop delivering snapshots to a listener; a queued delivery is dropped
+     */
+    public void removeSnapshotListener(SnapshotListener listener) {
+        synchronized (writeLock) {
+            for (int i = subscriptions.size() - 1; i >= 0; i--) {
+                if (subscriptions.get(i).listener == listener) {
+                    subscriptions.remove(i).active = false;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Load the parsed history from the entry log if it is not cached yet.
+     * Called with writeLock held.
+     */
+    private void ensureEntriesLoaded() {
+        if (history != null) {
+            return;
+        }
+        
+        cacheMisses.incrementAndGet();
+        history = loadHistory();
+        historySnapshot = Collections.unmodifiableList(Arrays.asList(history.toStartDatesDescending()));
+        publish();
+    }
+    
+    /**
+     * Copy a snapshot with one date inserted at its sorted (descending) position
+     */
+    private static List<LocalDate> insertIntoSnapshot(List<LocalDate> snapshot, LocalDate date) {
+        int index = Collections.binarySearch(snapshot, date, Collections.reverseOrder());
+        if (index >= 0) {
+            return snapshot;
+        }
+        index = -index - 1;
+        
+        LocalDate[] dates = new LocalDate[snapshot.size() + 1];
+        for (int i = 0; i < index; i++) {
+            dates[i] = snapshot.get(i);
+        }
+        dates[index] = date;
+        for (int i = index; i < snapshot.size(); i++) {
+            dates[i + 1] = snapshot.get(i);
+        }
+        return Collections.unmodifiableList(Arrays.asList(dates));
+    }
+    
+    /**
+     * Copy a snapshot with one date removed
+     */
+    private static List<LocalDate> removeFromSnapshot(List<LocalDate> snapshot, LocalDate date) {
+        int index = Collections.binarySearch(snapshot, date, Collections.reverseOrder());
+        if (index < 0) {
+            return snapshot;
         }
         
-        // Sort in descending order (most recent first)
-        Collections.sort(periodDates, Collections.reverseOrder());
-        return periodDates;
+        LocalDate[] dates = new LocalDate[snapshot.size() - 1];
+        for (int i = 0; i < index; i++) {
+            dates[i] = snapshot.get(i);
+        }
+        for (int i = index + 1; i < snapshot.size(); i++) {
+            dates[i - 1] = snapshot.get(i);
+        }
+        return Collections.unmodifiableList(Arrays.asList(dates));
     }
     
     /**
@@ -146,34 +470,35 @@ public class DataStorage {
      * @param startDate The start date of the period to delete
      */
     public void deletePeriodEntry(LocalDate startDate) {
-        if (startDate == null) {
-            return;
-        }
-        
-        String entries = encryptedPrefs.getString(KEY_PERIOD_ENTRIES, "");
-        if (entries.isEmpty()) {
-            return;
-        }
-        
-        String dateToRemove = startDate.format(DATE_FORMATTER);
-        String[] entryArray = entries.split("\\" + ENTRY_SEPARATOR);
-        StringBuilder updatedEntries = new StringBuilder();
-        
-        for (String entry : entryArray) {
-            if (!entry.startsWith(dateToRemove)) {
-                if (updatedEntries.length() > 0) {
-                    updatedEntries.append(ENTRY_SEPARATOR);
-                }
-                updatedEntries.append(entry);
-            }
-        }
-        
-        SharedPreferences.Editor editor = encryptedPrefs.edit();
-        editor.putString(KEY_PERIOD_ENTRIES, updatedEntries.toString());
-        editor.apply();
-        
-        // Update statistics
-        updateCycleStatistics();
+        beginBatch().deletePeriodEntry(startDate).commit();
+    }
+    
+    /**
+     * Set or clear the end date of an existing period entry
+     * @param startDate Start date of the entry
+     * @param endDate New end date (nullable)
+     */
+    public void updatePeriodEnd(LocalDate startDate, LocalDate endDate) {
+        beginBatch().updatePeriodEnd(startDate, endDate).commit();
+    }
+    
+    /**
+     * Replace a period entry with one that may start on another date
+     * @param oldStartDate Start date of the entry to replace
+     * @param newStartDate New start date
+     * @param newEndDate New end date (nullable)
+     */
+    public void replaceEntry(LocalDate oldStartDate, LocalDate newStartDate, LocalDate newEndDate) {
+        beginBatch().replaceEntry(oldStartDate, newStartDate, newEndDate).commit();
+    }
+    
+    /**
+     * Delete all period entries starting between two dates, inclusive
+     * @param fromDate First start date to delete
+     * @param toDate Last start date to delete
+     */
+    public void deleteRange(LocalDate fromDate, LocalDate toDate) {
+        beginBatch().deleteRange(fromDate, toDate).commit();
     }
     
     /**
@@ -189,11 +514,7 @@ public class DataStorage {
      * @param cycleLength Cycle length in days
      */
     public void setCycleLength(int cycleLength) {
-        if (cycleLength > 0) {
-            SharedPreferences.Editor editor = encryptedPrefs.edit();
-            editor.putInt(KEY_CYCLE_LENGTH, cycleLength);
-            editor.apply();
-        }
+        beginBatch().setCycleLength(cycleLength).commit();
     }
     
     /**
@@ -205,29 +526,224 @@ public class DataStorage {
     }
     
     /**
-     * Update cycle statistics based on period history
+     * Get cycle statistics for the stored history without rescanning it
+     * @return CycleStatistics with average, min, and max cycle lengths
+     */
+    public PeriodCalculator.CycleStatistics getCycleStatistics() {
+        long startNanos = Metrics.start();
+        Snapshot current = snapshot;
+        if (current == null || current.statistics == null) {
+            synchronized (writeLock) {
+                ensureEntriesLoaded();
+                ensureCycleStatsLoaded();
+                publish();
+                current = snapshot;
+            }
+        }
+        Metrics.STORAGE_GET_STATISTICS.stop(startNanos);
+        return current.statistics;
+    }
+    
+    /**
+     * Load the persisted statistics accumulator, rebuilding it from the
+     * history if it is missing or does not match the stored entries.
+     * Called with writeLock held.
      */
-    private void updateCycleStatistics() {
-        List<LocalDate> periodDates = getPeriodHistory();
-        if (periodDates.size() < 2) {
+    private void ensureCycleStatsLoaded() {
+        if (cycleStats != null) {
             return;
         }
         
-        PeriodCalculator.CycleStatistics stats = 
-            PeriodCalculator.calculateCycleStatistics(periodDates);
+        cycleStats = CycleStatsAccumulator.decode(encryptedPrefs.getString(KEY_CYCLE_STATS, ""));
+        if (cycleStats == null || cycleStats.getCount() != Math.max(0, history.size() - 1)) {
+            cycleStats = CycleStatsAccumulator.fromHistory(history);
+        }
+    }
+    
+    /**
+     * Update statistics for a start date just added to the history.
+     * Only the gaps around the new start change.
+     */
+    private void addStartToCycleStats(int index) {
+        boolean hasPrevious = index > 0;
+        boolean hasNext = index < history.size() - 1;
+        int start = history.getStart(index);
+        
+        if (hasPrevious && hasNext) {
+            cycleStats.remove(history.getStart(index + 1) - history.getStart(index - 1));
+        }
+        if (hasPrevious) {
+            cycleStats.add(start - history.getStart(index - 1));
+        }
+        if (hasNext) {
+            cycleStats.add(history.getStart(index + 1) - start);
+        }
+    }
+    
+    /**
+     * Update statistics for a start date about to be removed from the history.
+     * Only the gaps around the removed start change.
+     */
+    private void removeStartFromCycleStats(int index) {
+        boolean hasPrevious = index > 0;
+        boolean hasNext = index < history.size() - 1;
+        int start = history.getStart(index);
+        
+        if (hasPrevious) {
+            cycleStats.remove(start - history.getStart(index - 1));
+        }
+        if (hasNext) {
+            cycleStats.remove(history.getStart(index + 1) - start);
+        }
+        if (hasPrevious && hasNext) {
+            cycleStats.add(history.getStart(index + 1) - history.getStart(index - 1));
+        }
+    }
+    
+    /**
+     * Update statistics for the entries [from, to) about to be removed.
+     * Gaps inside and at the edges of the range are removed, and the gap
+     * that bridges it is added back; the rest of the history is untouched.
+     */
+    private void removeRangeFromCycleStats(int from, int to) {
+        int first = Math.max(from - 1, 0);
+        int last = Math.min(to, history.size() - 1);
+        for (int i = first; i < last; i++) {
+            cycleStats.remove(history.getCycleLength(i));
+        }
+        if (from > 0 && to < history.size()) {
+            cycleStats.add(history.getStart(to) - history.getStart(from - 1));
+        }
         
-        SharedPreferences.Editor editor = encryptedPrefs.edit();
-        editor.putInt(KEY_AVERAGE_CYCLE, stats.getAverageCycleLength());
-        editor.apply();
+        for (int i = from; i < to; i++) {
+            if (history.getEnd(i) != EpochDayHistory.NO_END) {
+                cycleStats.removePeriod(PeriodCalculator.calculatePeriodLength(history.getStart(i), history.getEnd(i)));
+            }
+        }
+    }
+    
+    /**
+     * Write the statistics accumulator and average cycle into an editor
+     */
+    private void storeCycleStats(SharedPreferences.Editor editor) {
+        if (cycleStats.hasStaleExtremes()) {
+            cycleStats.rescanExtremes(history);
+        }
+        
+        editor.putString(KEY_CYCLE_STATS, cycleStats.encode());
+        if (cycleStats.getCount() > 0) {
+            editor.putInt(KEY_AVERAGE_CYCLE, cycleStats.toCycleStatistics().getAverageCycleLength());
+        } else {
+            editor.remove(KEY_AVERAGE_CYCLE);
+        }
     }
     
     /**
      * Clear all stored data (for testing or user reset)
      */
     public void clearAllData() {
-        SharedPreferences.Editor editor = encryptedPrefs.edit();
-        editor.clear();
-        editor.apply();
+        long startNanos = Metrics.start();
+        synchronized (writeLock) {
+            // The entry log keeps its key, so entries saved after the reset can still be read
+            String entryLogKey = encryptedPrefs.getString(KEY_ENTRY_LOG_KEY, null);
+            SharedPreferences.Editor editor = encryptedPrefs.edit();
+            editor.clear();
+            if (entryLogKey != null) {
+                editor.putString(KEY_ENTRY_LOG_KEY, entryLogKey);
+            }
+            editor.apply();
+            
+            if (entryLog != null && !entryLog.clear()) {
+                // The file could not be deleted, so empty it instead
+                try {
+                    entryLog.rewrite(Collections.emptyList());
+                } catch (GeneralSecurityException | IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            history = EpochDayHistory.EMPTY;
+            historySnapshot = Collections.emptyList();
+            cycleStats = new CycleStatsAccumulator();
+            dayPhaseIndex = null;
+            strategyStale = predictionStrategy != null;
+            publish();
+        }
+        Metrics.STORAGE_CLEAR.stop(startNanos);
+    }
+    
+    /**
+     * Use a prediction strategy for newPeriodCalculator() and the day-phase
+     * index. The strategy is trained on the stored history now; afterwards
+     * each newly logged latest period updates it with one addCycle() call.
+     * @param strategy Strategy owned by this storage from now on, or null to
+     *                 predict with the average cycle length
+     */
+    public void setPredictionStrategy(PredictionStrategy strategy) {
+        synchronized (writeLock) {
+            ensureEntriesLoaded();
+            predictionStrategy = strategy;
+            strategyStale = strategy != null;
+            forecastStale = true;
+            publish();
+        }
+    }
+    
+    /**
+     * Build a calculator for the stored history. With a prediction strategy
+     * the cycle length and ovulation day come from it; otherwise the average
+     * cycle length is used, or the user's setting before any cycle is
+     * logged, as in the snapshot the main screen predicts from.
+     * @return Calculator starting from the most recent period
+     */
+    public PeriodCalculator newPeriodCalculator() {
+        long startNanos = Metrics.start();
+        try {
+            synchronized (writeLock) {
+                ensureEntriesLoaded();
+                if (predictionStrategy == null) {
+                    ensureCycleStatsLoaded();
+                    return new PeriodCalculator(history, predictCycleLength(cycleStats.toCycleStatistics()));
+                }
+                if (strategyStale) {
+                    predictionStrategy.train(history);
+                    strategyStale = false;
+                }
+                return new PeriodCalculator(history, predictionStrategy);
+            }
+        } finally {
+            Metrics.STORAGE_NEW_CALCULATOR.stop(startNanos);
+        }
+    }
+    
+    /**
+     * Get the calendar index of logged periods and predictions. The index is
+     * kept in step with saves and deletes, so repeated calls are cheap; the
+     * predictions are refilled only after the history or cycle settings change.
+     * Predictions come from newPeriodCalculator().
+     * @param cycles Number of cycles to predict, including the current one
+     * @return Index owned by this storage; do not keep it across writes on other threads
+     */
+    public DayPhaseIndex getDayPhaseIndex(int cycles) {
+        long startNanos = Metrics.start();
+        DayPhaseIndex index;
+        synchronized (writeLock) {
+            ensureEntriesLoaded();
+            boolean rebuilt = false;
+            if (dayPhaseIndex == null) {
+                dayPhaseIndex = DayPhaseIndex.build(history, null);
+                rebuilt = true;
+            }
+            
+            if (rebuilt || forecastStale || cycles != forecastCycles) {
+                newPeriodCalculator().fillForecast(forecast, cycles, CycleForecast.DEFAULT_PERIOD_LENGTH);
+                dayPhaseIndex.setForecast(forecast);
+                forecastCycles = cycles;
+                forecastStale = false;
+            }
+            index = dayPhaseIndex;
+        }
+        Metrics.STORAGE_DAY_PHASE_INDEX.stop(startNanos);
+        return index;
     }
     
     /**
@@ -235,31 +751,937 @@ public class DataStorage {
      * @return CSV formatted string of all period entries
      */
     public String exportDataAsCSV() {
-        StringBuilder csv = new StringBuilder("Period Start,Period End,Duration (days)\n");
+        StringWriter csv = new StringWriter();
+        try {
+            exportCsv(csv, null);
+        } catch (IOException e) {
+            // StringWriter does not throw
+            e.printStackTrace();
+        }
+        return csv.toString();
+    }
+    
+    /**
+     * Stream period data as UTF-8 CSV to an output stream. The stream is
+     * flushed but not closed.
+     * @param output Destination, e.g. a stream opened from a SAF document
+     * @param listener Progress callback (nullable)
+     */
+    public void exportCsv(OutputStream output, ExportProgressListener listener) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        exportCsv(writer, listener);
+        writer.flush();
+    }
+    
+    /**
+     * Stream period data as CSV, oldest period first. Rows are written one at
+     * a time straight from the epoch-day history, so memory use does not grow
+     * with the number of entries. The writer is not flushed or closed.
+     * @param writer Destination; wrap unbuffered writers in a BufferedWriter
+     * @param listener Progress callback (nullable), called every 1000 rows
+     *                 and once at the end
+     */
+    public void exportCsv(Writer writer, ExportProgressListener listener) throws IOException {
+        long startNanos = Metrics.start();
+        try {
+            EpochDayHistory exported = readSnapshot().history;
+            int total = exported.size();
+            
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+            for (int i = 0; i < total; i++) {
+                int start = exported.getStart(i);
+                int end = exported.getEnd(i) != EpochDayHistory.NO_END ? exported.getEnd(i) : start;
+                
+                writer.write(LocalDate.ofEpochDay(start).toString());
+                writer.write(',');
+                writer.write(LocalDate.ofEpochDay(end).toString());
+                writer.write(',');
+                writer.write(Integer.toString(PeriodCalculator.calculatePeriodLength(start, end)));
+                writer.write('\n');
+                
+                if (listener != null && (i + 1) % EXPORT_PROGRESS_INTERVAL == 0) {
+                    listener.onProgress(i + 1, total);
+                }
+            }
+            
+            if (listener != null) {
+                listener.onProgress(total, total);
+            }
+        } finally {
+            Metrics.STORAGE_EXPORT.stop(startNanos);
+        }
+    }
+    
+    /**
+     * Receives progress of a CSV export
+     */
+    public interface ExportProgressListener {
+        /**
+         * @param rowsWritten Entry rows written so far
+         * @param totalRows Entry rows in the export
+         */
+        void onProgress(int rowsWritten, int totalRows);
+    }
+    
+    /**
+     * Import many entries at once. Entries whose start date is already stored
+     * are skipped; the rest are merged with the history in one pass, written
+     * with a single log append and committed with one statistics rebuild.
+     * Entries ending before they start are counted as invalid and skipped.
+     * @param imported Entries to import; their start dates are already unique
+     * @return Counts of imported, duplicate and invalid entries
+     */
+    public ImportResult importEntries(EpochDayHistory imported) {
+        long startNanos = Metrics.start();
+        try {
+            int[] starts = new int[imported.size()];
+            int[] ends = new int[imported.size()];
+            for (int i = 0; i < imported.size(); i++) {
+                starts[i] = imported.getStart(i);
+                ends[i] = imported.getEnd(i);
+            }
+            return importValidEntries(starts, ends, imported.size(), 0);
+        } finally {
+            Metrics.STORAGE_IMPORT.stop(startNanos);
+        }
+    }
+    
+    /**
+     * Import many entries at once from parallel arrays in any order, e.g.
+     * parsed from another app's export. Works like importEntries(EpochDayHistory);
+     * in addition, a start date repeated within the import counts as a
+     * duplicate and its last entry is the one kept.
+     * @param starts Start epoch days
+     * @param ends End epoch days (NO_END when unknown), parallel to starts
+     * @param size Number of valid elements in the arrays; the arrays are not modified
+     * @return Counts of imported, duplicate and invalid entries
+     */
+    public ImportResult importEntries(int[] starts, int[] ends, int size) {
+        long startNanos = Metrics.start();
+        try {
+            return importValidEntries(Arrays.copyOf(starts, size), Arrays.copyOf(ends, size), size, 0);
+        } finally {
+            Metrics.STORAGE_IMPORT.stop(startNanos);
+        }
+    }
+    
+    /**
+     * Import CSV in the format written by exportDataAsCSV(). The reader is
+     * consumed line by line and only the parsed epoch days are kept, so large
+     * files are never held in memory as text. Rows that do not parse, or end
+     * before they start, are counted as invalid and skipped.
+     * @param reader CSV source; not closed by this method
+     * @return Counts of imported, duplicate and invalid rows
+     */
+    public ImportResult importCsv(Reader reader) throws IOException {
+        long startNanos = Metrics.start();
+        try {
+            BufferedReader lines = reader instanceof BufferedReader
+                    ? (BufferedReader) reader : new BufferedReader(reader);
+            
+            int[] starts = new int[256];
+            int[] ends = new int[256];
+            int size = 0;
+            int invalid = 0;
+            
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith(CSV_HEADER)) {
+                    continue;
+                }
+                
+                // "start,end,duration" with optional spaces; dates are scanned in place
+                int startOffset = skipSpaces(line, 0);
+                int start = parseCsvDate(line, startOffset);
+                int comma = line.indexOf(',', startOffset);
+                int end = EpochDayHistory.NO_END;
+                boolean valid = start != LegacyEntryParser.INVALID_DATE;
+                if (valid && comma >= 0) {
+                    int endOffset = skipSpaces(line, comma + 1);
+                    if (endOffset < line.length() && line.charAt(endOffset) != ',') {
+                        end = parseCsvDate(line, endOffset);
+                        valid = end != LegacyEntryParser.INVALID_DATE && end >= start;
+                    }
+                }
+                if (!valid) {
+                    invalid++;
+                    continue;
+                }
+                
+                if (size == starts.length) {
+                    starts = Arrays.copyOf(starts, size * 2);
+                    ends = Arrays.copyOf(ends, size * 2);
+                }
+                starts[size] = start;
+                ends[size] = end;
+                size++;
+            }
+            
+            return importValidEntries(starts, ends, size, invalid);
+        } finally {
+            Metrics.STORAGE_IMPORT.stop(startNanos);
+        }
+    }
+    
+    /**
+     * Date field of a CSV row, which must end at a comma or the end of the line
+     * @return Epoch day, or LegacyEntryParser.INVALID_DATE
+     */
+    private static int parseCsvDate(String line, int offset) {
+        int date = LegacyEntryParser.parseIsoDate(line, offset);
+        int next = skipSpaces(line, offset + ISO_DATE_LENGTH);
+        return next >= line.length() || line.charAt(next) == ',' ? date : LegacyEntryParser.INVALID_DATE;
+    }
+    
+    private static int skipSpaces(String line, int index) {
+        while (index < line.length() && line.charAt(index) == ' ') {
+            index++;
+        }
+        return index;
+    }
+    
+    /**
+     * Drop entries that end before they start, then import the rest. The
+     * arrays are compacted in place.
+     * @param invalid Entries already found invalid by the caller
+     */
+    private ImportResult importValidEntries(int[] starts, int[] ends, int size, int invalid) {
+        int valid = 0;
+        for (int i = 0; i < size; i++) {
+            if (ends[i] != EpochDayHistory.NO_END && ends[i] < starts[i]) {
+                invalid++;
+                continue;
+            }
+            starts[valid] = starts[i];
+            ends[valid] = ends[i];
+            valid++;
+        }
+        // Counted before EpochDayHistory.of() merges repeated starts, so those count as duplicates
+        return importEntries(EpochDayHistory.of(starts, ends, valid), valid, invalid);
+    }
+    
+    /**
+     * @param rowCount Valid rows read, including duplicates within the import
+     */
+    private ImportResult importEntries(EpochDayHistory imported, int rowCount, int invalid) {
+        synchronized (writeLock) {
+            ensureEntriesLoaded();
+            
+            List<EncryptedEntryLog.Record> records = new ArrayList<>();
+            for (int i = 0; i < imported.size(); i++) {
+                if (history.indexOf(imported.getStart(i)) < 0) {
+                    records.add(new EncryptedEntryLog.Record(
+                            EncryptedEntryLog.OP_SAVE, imported.getStart(i), imported.getEnd(i)));
+                }
+            }
+            
+            ImportResult result = new ImportResult(records.size(), rowCount - records.size(), invalid);
+            if (records.isEmpty()) {
+                return result;
+            }
+            
+            if (entryLog != null) {
+                try {
+                    entryLog.append(records);
+                } catch (GeneralSecurityException | IOException e) {
+                    e.printStackTrace();
+                    invalidateCache();
+                    return new ImportResult(0, result.getDuplicates(), invalid);
+                }
+            }
+            
+            history = history.mergedWith(imported);
+            historySnapshot = Collections.unmodifiableList(Arrays.asList(history.toStartDatesDescending()));
+            cycleStats = CycleStatsAccumulator.fromHistory(history);
+            strategyStale = predictionStrategy != null;
+            if (dayPhaseIndex != null) {
+                for (EncryptedEntryLog.Record record : records) {
+                    dayPhaseIndex.addLoggedEntry(record.getStartEpochDay(), record.getEndEpochDay());
+                }
+                forecastStale = true;
+            }
+            
+            SharedPreferences.Editor editor = encryptedPrefs.edit();
+            storeLastPeriodStart(editor);
+            storeCycleStats(editor);
+            editor.commit();
+            publish();
+            
+            return result;
+        }
+    }
+    
+    /**
+     * Store the latest start in the history as the last period start, so
+     * deleted or moved starts are never reported
+     */
+    private void storeLastPeriodStart(SharedPreferences.Editor editor) {
+        if (history.isEmpty()) {
+            editor.remove(KEY_LAST_PERIOD_START);
+        } else {
+            editor.putString(KEY_LAST_PERIOD_START, LocalDate.ofEpochDay(history.getLastStart()).format(DATE_FORMATTER));
+        }
+    }
+    
+    /**
+     * Write a binary backup of the entries and the cycle length setting.
+     * An incremental backup holds only the saves and deletes logged since
+     * the previous backup, read from the end of the entry log without
+     * decrypting older records. A full backup is written instead when
+     * there is no previous backup, the log has been compacted since, or
+     * storage is in degraded mode.
+     * @param output Destination; flushed but not closed
+     * @param incremental Whether an incremental backup is wanted
+     * @return BackupFormat.TYPE_FULL or BackupFormat.TYPE_INCREMENTAL, whichever was written
+     */
+    public byte writeBackup(OutputStream output, boolean incremental) throws IOException {
+        long startNanos = Metrics.start();
+        try {
+            synchronized (writeLock) {
+                ensureEntriesLoaded();
+                int since = incremental && entryLog != null ? encryptedPrefs.getInt(KEY_BACKUP_LOG_POSITION, -1) : -1;
+                byte type = since >= 0 && since <= entryLog.getRecordCount()
+                        ? BackupFormat.TYPE_INCREMENTAL : BackupFormat.TYPE_FULL;
+                
+                BackupFormat.Writer writer = new BackupFormat.Writer(output, type, 1);
+                writer.writeSetting(BackupFormat.SETTING_CYCLE_LENGTH, getCycleLength());
+                if (type == BackupFormat.TYPE_FULL) {
+                    writer.beginEntries(history.size());
+                    for (int i = 0; i < history.size(); i++) {
+                        writer.writeSave(history.getStart(i), history.getEnd(i));
+                    }
+                } else {
+                    LoggedChanges changes = new LoggedChanges();
+                    try {
+                        entryLog.replaySince(since, changes);
+                    } catch (GeneralSecurityException e) {
+                        throw new IOException("Could not read the entry log", e);
+                    }
+                    writer.beginEntries(changes.size);
+                    for (int i = 0; i < changes.size; i++) {
+                        if (changes.ops[i] == EncryptedEntryLog.OP_DELETE) {
+                            writer.writeDelete(changes.starts[i]);
+                        } else {
+                            writer.writeSave(changes.starts[i], changes.ends[i]);
+                        }
+                    }
+                }
+                writer.finish();
+                
+                if (entryLog != null) {
+                    encryptedPrefs.edit().putInt(KEY_BACKUP_LOG_POSITION, entryLog.getRecordCount()).commit();
+                }
+                return type;
+            }
+        } finally {
+            Metrics.STORAGE_BACKUP.stop(startNanos);
+        }
+    }
+    
+    /**
+     * Restore a backup written by writeBackup(). Nothing is stored until
+     * the whole backup has been read and its checksum verified.
+     * 
+     * A full backup goes through the bulk import: entries whose start date
+     * is already stored are kept as they are. An incremental backup replays
+     * its saves and deletes in order as one batch, so restore the full
+     * backup first and then each incremental one in the order written.
+     * The cycle length setting is restored in both cases.
+     * @param input Backup source; not closed
+     * @return For a full backup the import counts; for an incremental one
+     *         the number of saves and deletes applied as imported
+     * @throws IOException If the backup cannot be read or is corrupt
+     */
+    public ImportResult restoreBackup(InputStream input) throws IOException {
+        long startNanos = Metrics.start();
+        try {
+            BackupFormat.Reader reader = new BackupFormat.Reader(input);
+            int capacity = Math.min(reader.getEntryCount(), 1 << 16);
+            LoggedChanges changes = new LoggedChanges(Math.max(capacity, 16));
+            while (reader.next()) {
+                changes.onRecord(reader.isDelete() ? EncryptedEntryLog.OP_DELETE : EncryptedEntryLog.OP_SAVE,
+                        reader.getStart(), reader.getEnd());
+            }
+            
+            if (reader.getType() == BackupFormat.TYPE_INCREMENTAL) {
+                Batch batch = beginBatch();
+                batch.changes.add(() -> {
+                    for (int i = 0; i < changes.size; i++) {
+                        if (changes.ops[i] == EncryptedEntryLog.OP_DELETE) {
+                            int index = history.indexOf(changes.starts[i]);
+                            if (index >= 0) {
+                                batch.applyDelete(index);
+                            }
+                        } else {
+                            batch.applySave(changes.starts[i], changes.ends[i]);
+                        }
+                    }
+                });
+                batch.setCycleLength(reader.getCycleLength()).commit();
+                return new ImportResult(changes.size, 0, 0);
+            }
+            
+            ImportResult result = importEntries(changes.starts, changes.ends, changes.size);
+            if (reader.getCycleLength() > 0) {
+                setCycleLength(reader.getCycleLength());
+            }
+            return result;
+        } finally {
+            Metrics.STORAGE_RESTORE.stop(startNanos);
+        }
+    }
+    
+    /**
+     * Outcome of a bulk import
+     */
+    public static class ImportResult {
+        private final int imported;
+        private final int duplicates;
+        private final int invalid;
         
-        List<LocalDate> periodDates = getPeriodHistory();
-        String entries = encryptedPrefs.getString(KEY_PERIOD_ENTRIES, "");
+        public ImportResult(int imported, int duplicates, int invalid) {
+            this.imported = imported;
+            this.duplicates = duplicates;
+            this.invalid = invalid;
+        }
         
-        if (entries.isEmpty()) {
-            return csv.toString();
+        /** Entries added to the history */
+        public int getImported() {
+            return imported;
+        }
+        
+        /** Entries skipped because their start date was already present */
+        public int getDuplicates() {
+            return duplicates;
+        }
+        
+        /** Rows that could not be parsed or were inconsistent */
+        public int getInvalid() {
+            return invalid;
         }
         
-        String[] entryArray = entries.split("\\" + ENTRY_SEPARATOR);
+        @Override
+        public String toString() {
+            return "Imported: " + imported + " | Duplicates: " + duplicates + " | Invalid: " + invalid;
+        }
+    }
+    
+    /**
+     * A group of writes committed together. Obtain one with beginBatch().
+     * 
+     * Each call only queues a change; commit() applies them in order while
+     * holding the write lock, so lookups such as "the entry starting on this
+     * date" see every batch committed before, on any thread. Use a batch
+     * from one thread at a time.
+     */
+    public class Batch {
+        private final SharedPreferences.Editor editor = encryptedPrefs.edit();
+        // Run by commit() with writeLock held
+        private final List<Runnable> changes = new ArrayList<>();
+        private final List<EncryptedEntryLog.Record> records = new ArrayList<>();
+        private boolean historyChanged;
         
-        for (String entry : entryArray) {
+        private Batch() {
+        }
+        
+        /**
+         * Save a new period entry (start and optionally end date).
+         * An entry ending before it starts, or with a date outside the
+         * epoch-day range, is ignored.
+         * @param startDate Period start date
+         * @param endDate Period end date (nullable)
+         */
+        public Batch savePeriodEntry(LocalDate startDate, LocalDate endDate) {
+            if (startDate == null || outOfRange(startDate) || outOfRange(endDate)
+                    || endsBefore(endDate, startDate)) {
+                return this;
+            }
+            
+            int start = PeriodCalculator.toEpochDay(startDate);
+            int end = toEndEpochDay(endDate);
+            changes.add(() -> applySave(start, end));
+            return this;
+        }
+        
+        /**
+         * Set or clear the end date of an existing entry. Does nothing if no
+         * entry starts on startDate when the batch is committed, or if
+         * endDate is before startDate or outside the epoch-day range.
+         * @param startDate Start date of the entry to update
+         * @param endDate New end date (nullable to clear it)
+         */
+        public Batch updatePeriodEnd(LocalDate startDate, LocalDate endDate) {
+            if (startDate == null || outOfRange(startDate) || outOfRange(endDate)
+                    || endsBefore(endDate, startDate)) {
+                return this;
+            }
+            
+            int start = PeriodCalculator.toEpochDay(startDate);
+            int end = toEndEpochDay(endDate);
+            changes.add(() -> {
+                int index = history.indexOf(start);
+                if (index >= 0 && history.getEnd(index) != end) {
+                    applySave(start, end);
+                }
+            });
+            return this;
+        }
+        
+        /**
+         * Replace an entry, e.g. when its start date was corrected. Does
+         * nothing if no entry starts on oldStartDate when the batch is
+         * committed, or if the new entry ends before it starts or has a
+         * date outside the epoch-day range.
+         * @param oldStartDate Start date of the entry to replace
+         * @param newStartDate New start date
+         * @param newEndDate New end date (nullable)
+         */
+        public Batch replaceEntry(LocalDate oldStartDate, LocalDate newStartDate, LocalDate newEndDate) {
+            if (oldStartDate == null || newStartDate == null || outOfRange(oldStartDate)
+                    || outOfRange(newStartDate) || outOfRange(newEndDate) || endsBefore(newEndDate, newStartDate)) {
+                return this;
+            }
+            
+            int oldStart = PeriodCalculator.toEpochDay(oldStartDate);
+            int newStart = PeriodCalculator.toEpochDay(newStartDate);
+            int newEnd = toEndEpochDay(newEndDate);
+            changes.add(() -> {
+                int index = history.indexOf(oldStart);
+                if (index < 0) {
+                    return;
+                }
+                if (newStart != oldStart) {
+                    applyDelete(index);
+                }
+                applySave(newStart, newEnd);
+            });
+            return this;
+        }
+        
+        /**
+         * Delete a period entry by start date
+         * @param startDate The start date of the period to delete
+         */
+        public Batch deletePeriodEntry(LocalDate startDate) {
+            int start = PeriodCalculator.toEpochDay(startDate);
+            if (start == PeriodCalculator.NO_DATE) {
+                // No entry can start on a date outside the epoch-day range
+                return this;
+            }
+            
+            changes.add(() -> {
+                int index = history.indexOf(start);
+                if (index >= 0) {
+                    applyDelete(index);
+                }
+            });
+            return this;
+        }
+        
+        /**
+         * Delete every entry starting between two dates, inclusive. The range
+         * is found by binary search and removed with one copy of the history;
+         * statistics only change for the gaps at its edges.
+         * @param fromDate First start date to delete
+         * @param toDate Last start date to delete
+         */
+        public Batch deleteRange(LocalDate fromDate, LocalDate toDate) {
+            if (fromDate == null || toDate == null || toDate.isBefore(fromDate)) {
+                return this;
+            }
+            
+            // Clamped to the epoch-day range, outside which no entry can start
+            long fromDay = Math.max(fromDate.toEpochDay(), PeriodCalculator.NO_DATE + 1L);
+            long toDay = Math.min(toDate.toEpochDay(), Integer.MAX_VALUE);
+            if (fromDay > toDay) {
+                return this;
+            }
+            int from = (int) fromDay;
+            int to = (int) toDay;
+            changes.add(() -> applyDeleteRange(from, to));
+            return this;
+        }
+        
+        /**
+         * Remove the entries starting between two epoch days, inclusive, in
+         * memory and queue their log records
+         */
+        private void applyDeleteRange(int fromDay, int toDay) {
+            int from = lowerBound(fromDay);
+            int to = toDay == Integer.MAX_VALUE ? history.size() : lowerBound(toDay + 1);
+            if (from == to) {
+                return;
+            }
+            if (to - from == 1) {
+                applyDelete(from);
+                return;
+            }
+            
+            for (int i = from; i < to; i++) {
+                records.add(new EncryptedEntryLog.Record(
+                        EncryptedEntryLog.OP_DELETE, history.getStart(i), EncryptedEntryLog.NO_END));
+            }
+            removeRangeFromCycleStats(from, to);
+            strategyStale = predictionStrategy != null;
+            EpochDayHistory removed = history;
+            history = history.withoutRange(from, to);
+            historySnapshot = Collections.unmodifiableList(Arrays.asList(history.toStartDatesDescending()));
+            if (dayPhaseIndex != null) {
+                for (int i = from; i < to; i++) {
+                    dayPhaseIndex.removeLoggedEntry(removed.getStart(i), removed.getEnd(i), history);
+                }
+                forecastStale = true;
+            }
+            historyChanged = true;
+        }
+        
+        /**
+         * Insert or update an entry in memory and queue its log record
+         */
+        private void applySave(int start, int end) {
+            records.add(new EncryptedEntryLog.Record(EncryptedEntryLog.OP_SAVE, start, end));
+            
+            int existing = history.indexOf(start);
+            int previousEnd = existing >= 0 ? history.getEnd(existing) : EpochDayHistory.NO_END;
+            history = history.withEntry(start, end);
+            if (existing < 0) {
+                int index = history.indexOf(start);
+                addStartToCycleStats(index);
+                historySnapshot = insertIntoSnapshot(historySnapshot, LocalDate.ofEpochDay(start));
+                trainStrategy(index);
+            } else if (previousEnd != EpochDayHistory.NO_END) {
+                cycleStats.removePeriod(PeriodCalculator.calculatePeriodLength(start, previousEnd));
+            }
+            if (end != EpochDayHistory.NO_END) {
+                cycleStats.addPeriod(PeriodCalculator.calculatePeriodLength(start, end));
+            }
+            
+            if (dayPhaseIndex != null) {
+                if (existing >= 0) {
+                    dayPhaseIndex.removeLoggedEntry(start, previousEnd, history);
+                } else {
+                    dayPhaseIndex.addLoggedEntry(start, end);
+                }
+                forecastStale = true;
+            }
+            historyChanged = true;
+        }
+        
+        /**
+         * Remove the entry at an index in memory and queue its log record
+         */
+        private void applyDelete(int index) {
+            int start = history.getStart(index);
+            int end = history.getEnd(index);
+            records.add(new EncryptedEntryLog.Record(EncryptedEntryLog.OP_DELETE, start, EncryptedEntryLog.NO_END));
+            
+            removeStartFromCycleStats(index);
+            if (end != EpochDayHistory.NO_END) {
+                cycleStats.removePeriod(PeriodCalculator.calculatePeriodLength(start, end));
+            }
+            strategyStale = predictionStrategy != null;
+            history = history.withoutStart(start);
+            historySnapshot = removeFromSnapshot(historySnapshot, LocalDate.ofEpochDay(start));
+            if (dayPhaseIndex != null) {
+                dayPhaseIndex.removeLoggedEntry(start, end, history);
+                forecastStale = true;
+            }
+            historyChanged = true;
+        }
+        
+        /**
+         * Update the prediction strategy for a start just inserted at index.
+         * A new latest period adds one cycle; an insert into the past changes
+         * earlier cycles, so the strategy is retrained on next use.
+         */
+        private void trainStrategy(int index) {
+            if (predictionStrategy == null || strategyStale) {
+                return;
+            }
+            if (index == history.size() - 1) {
+                if (index > 0) {
+                    predictionStrategy.addCycle(history.getCycleLength(index - 1));
+                }
+            } else {
+                strategyStale = true;
+            }
+        }
+        
+        /**
+         * Index of the first entry starting on or after a day
+         */
+        private int lowerBound(int epochDay) {
+            int index = history.indexOf(epochDay);
+            return index >= 0 ? index : -index - 1;
+        }
+        
+        /**
+         * Whether an entry would end before it starts; such ranges are
+         * rejected here as they are by the imports
+         */
+        private boolean endsBefore(LocalDate endDate, LocalDate startDate) {
+            return endDate != null && endDate.isBefore(startDate);
+        }
+        
+        /**
+         * Whether a date is given but too far from 1970 for an int epoch day;
+         * entries with such dates are rejected rather than wrapped around
+         */
+        private boolean outOfRange(LocalDate date) {
+            return date != null && PeriodCalculator.toEpochDay(date) == PeriodCalculator.NO_DATE;
+        }
+        
+        private int toEndEpochDay(LocalDate endDate) {
+            return endDate != null ? PeriodCalculator.toEpochDay(endDate) : EncryptedEntryLog.NO_END;
+        }
+        
+        /**
+         * Set custom cycle length preference
+         * @param cycleLength Cycle length in days
+         */
+        public Batch setCycleLength(int cycleLength) {
+            if (cycleLength > 0) {
+                editor.putInt(KEY_CYCLE_LENGTH, cycleLength);
+                // Predictions fall back to the setting, so refill the calendar's
+                changes.add(() -> forecastStale = true);
+            }
+            return this;
+        }
+        
+        /**
+         * Apply and write all batched changes: one log append, then one editor
+         * commit, then the new snapshot is published to readers. Other
+         * commits wait for this one, so none of them is lost.
+         * If the log cannot be written the in-memory history is dropped so the
+         * next read replays what actually reached disk.
+         * @return true if every change was stored
+         */
+        public boolean commit() {
+            long startNanos = Metrics.start();
             try {
-                String[] dates = entry.split("-");
-                LocalDate startDate = LocalDate.parse(dates[0], DATE_FORMATTER);
-                LocalDate endDate = dates.length > 1 ? 
-                    LocalDate.parse(dates[1], DATE_FORMATTER) : startDate;
-                
-                int duration = PeriodCalculator.calculatePeriodLength(startDate, endDate);
-                csv.append(startDate).append(",").append(endDate).append(",").append(duration).append("\n");
-            } catch (Exception e) {
-                e.printStackTrace();
+                synchronized (writeLock) {
+                    ensureEntriesLoaded();
+                    ensureCycleStatsLoaded();
+                    for (Runnable change : changes) {
+                        change.run();
+                    }
+                    
+                    // Without a log (degraded mode) entries only live in memory
+                    if (!records.isEmpty() && entryLog != null) {
+                        try {
+                            entryLog.append(records);
+                        } catch (GeneralSecurityException | IOException e) {
+                            e.printStackTrace();
+                            invalidateCache();
+                            return false;
+                        }
+                        compactIfNeeded();
+                    }
+                    
+                    if (historyChanged) {
+                        storeLastPeriodStart(editor);
+                        storeCycleStats(editor);
+                    }
+                    boolean committed = editor.commit();
+                    publish();
+                    return committed;
+                }
+            } finally {
+                Metrics.STORAGE_COMMIT.stop(startNanos);
             }
         }
+    }
+    
+    /**
+     * Receives snapshots from addSnapshotListener()
+     */
+    public interface SnapshotListener {
+        void onSnapshot(Snapshot snapshot);
+    }
+    
+    /**
+     * Immutable state published after each write: the history, its
+     * statistics and the cycle length to predict with. The entry list is
+     * built on first use; readers racing to build it get equal lists.
+     */
+    public static final class Snapshot {
+        final EpochDayHistory history;
+        final List<LocalDate> startDates;
+        // Null until the statistics accumulator has been loaded
+        final PeriodCalculator.CycleStatistics statistics;
+        private final int predictedCycleLength;
+        private volatile List<PeriodEntry> entries;
         
-        return csv.toString();
+        Snapshot(EpochDayHistory history, List<LocalDate> startDates,
+                 PeriodCalculator.CycleStatistics statistics, int predictedCycleLength) {
+            this.history = history;
+            this.startDates = startDates;
+            this.statistics = statistics;
+            this.predictedCycleLength = predictedCycleLength;
+        }
+        
+        /**
+         * @return Period history in ascending start order
+         */
+        public EpochDayHistory getHistory() {
+            return history;
+        }
+        
+        /**
+         * @return Unmodifiable period start dates, most recent first
+         */
+        public List<LocalDate> getStartDates() {
+            return startDates;
+        }
+        
+        /**
+         * @return Unmodifiable entries with their end dates, most recent first
+         */
+        public List<PeriodEntry> getEntries() {
+            List<PeriodEntry> cached = entries;
+            if (cached == null) {
+                PeriodEntry[] array = new PeriodEntry[history.size()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = PeriodEntry.of(history, history.size() - 1 - i);
+                }
+                cached = Collections.unmodifiableList(Arrays.asList(array));
+                entries = cached;
+            }
+            return cached;
+        }
+        
+        /**
+         * @return Statistics of the history; never null in snapshots given to listeners
+         */
+        public PeriodCalculator.CycleStatistics getStatistics() {
+            return statistics;
+        }
+        
+        /**
+         * @return Most recent period start, or null if none recorded
+         */
+        public LocalDate getLastPeriodStart() {
+            return history.isEmpty() ? null : LocalDate.ofEpochDay(history.getLastStart());
+        }
+        
+        /**
+         * Cycle length predictions should use: from the prediction strategy
+         * if one is set, else the average logged cycle, else the user's setting
+         */
+        public int getPredictedCycleLength() {
+            return predictedCycleLength;
+        }
+    }
+    
+    /**
+     * One listener and its executor. The pending slot holds the latest
+     * undelivered snapshot; a delivery is queued only when it was empty.
+     */
+    private static final class SnapshotSubscription implements Runnable {
+        final SnapshotListener listener;
+        private final Executor executor;
+        private final AtomicReference<Snapshot> pending = new AtomicReference<>();
+        volatile boolean active = true;
+        
+        SnapshotSubscription(SnapshotListener listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+        
+        void offer(Snapshot snapshot) {
+            if (pending.getAndSet(snapshot) == null) {
+                executor.execute(this);
+            } else {
+                Metrics.SNAPSHOTS_CONFLATED.increment();
+            }
+        }
+        
+        @Override
+        public void run() {
+            Snapshot latest = pending.getAndSet(null);
+            if (latest != null && active) {
+                Metrics.SNAPSHOTS_DELIVERED.increment();
+                listener.onSnapshot(latest);
+            }
+        }
+    }
+    
+    /**
+     * Log records in the order they were made, for incremental backups
+     */
+    private static class LoggedChanges implements EncryptedEntryLog.Visitor {
+        private byte[] ops;
+        private int[] starts;
+        private int[] ends;
+        private int size;
+        
+        LoggedChanges() {
+            this(64);
+        }
+        
+        LoggedChanges(int capacity) {
+            ops = new byte[capacity];
+            starts = new int[capacity];
+            ends = new int[capacity];
+        }
+        
+        @Override
+        public void onRecord(byte op, int startEpochDay, int endEpochDay) {
+            if (size == starts.length) {
+                ops = Arrays.copyOf(ops, size * 2);
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            ops[size] = op;
+            starts[size] = startEpochDay;
+            ends[size] = endEpochDay;
+            size++;
+        }
+    }
+    
+    /**
+     * Collects replayed log records into growable int arrays
+     */
+    private static class EntryReplay implements EncryptedEntryLog.Visitor {
+        private int[] starts = new int[64];
+        private int[] ends = new int[64];
+        private int size;
+        private boolean hasDeletes;
+        
+        @Override
+        public void onRecord(byte op, int startEpochDay, int endEpochDay) {
+            if (op == EncryptedEntryLog.OP_DELETE) {
+                hasDeletes = true;
+            }
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            // Deletes are kept in order and resolved in toHistory()
+            starts[size] = startEpochDay;
+            ends[size] = op == EncryptedEntryLog.OP_DELETE ? DELETED : endEpochDay;
+            size++;
+        }
+        
+        EpochDayHistory toHistory() {
+            EpochDayHistory replayed = EpochDayHistory.of(starts, ends, size);
+            if (!hasDeletes) {
+                return replayed;
+            }
+            
+            // The last record for each start wins; drop starts whose last record was a delete
+            int[] liveStarts = new int[replayed.size()];
+            int[] liveEnds = new int[replayed.size()];
+            int live = 0;
+            for (int i = 0; i < replayed.size(); i++) {
+                if (replayed.getEnd(i) != DELETED) {
+                    liveStarts[live] = replayed.getStart(i);
+                    liveEnds[live] = replayed.getEnd(i);
+                    live++;
+                }
+            }
+            return EpochDayHistory.of(liveStarts, liveEnds, live);
+        }
     }
 }
@@ -0,0 +1,248 @@
+package com.example.periodtracker;
+
+import java.util.Arrays;
+
+/**
+ * DayPhaseIndex answers "what is this day" for calendar rendering: a logged
+ * period day, a predicted period day, a fertile day or the ovulation day.
+ *
+ * Each state is a bitset keyed by epoch day, so a point query is one array
+ * read and a month is a handful of words. Queries never allocate. Logged
+ * entries are added and removed one at a time as DataStorage saves and
+ * deletes them; predictions are replaced as a whole from a CycleForecast,
+ * which is cheap because a forecast spans a bounded number of cycles.
+ *
+ * Entries without an end date mark only their start day as logged.
+ */
+public final class DayPhaseIndex {
+
+    public static final int LOGGED_PERIOD = 1;
+    public static final int PREDICTED_PERIOD = 1 << 1;
+    public static final int FERTILE = 1 << 2;
+    public static final int OVULATION = 1 << 3;
+
+    private static final int LAYER_LOGGED = 0;
+    private static final int LAYER_PREDICTED = 1;
+    private static final int LAYER_FERTILE = 2;
+    private static final int LAYER_OVULATION = 3;
+    private static final int LAYER_COUNT = 4;
+
+    // Days are stored 64 per word; bits[layer][i] covers word (firstWord + i)
+    private long[][] bits = new long[LAYER_COUNT][0];
+    private int firstWord;
+
+    // Longest logged entry seen, in days past its start; bounds the overlap search on removal
+    private int maxLoggedSpan;
+
+    /**
+     * Build an index over a history and a forecast
+     * @param history Logged periods
+     * @param forecast Predicted cycles (nullable)
+     */
+    public static DayPhaseIndex build(EpochDayHistory history, CycleForecast forecast) {
+        DayPhaseIndex index = new DayPhaseIndex();
+        if (!history.isEmpty()) {
+            index.ensureCapacity(history.getFirstStart(), lastLoggedDay(history));
+        }
+        for (int i = 0; i < history.size(); i++) {
+            index.addLoggedEntry(history.getStart(i), history.getEnd(i));
+        }
+        if (forecast != null) {
+            index.setForecast(forecast);
+        }
+        return index;
+    }
+
+    /**
+     * Mark the days of a logged entry
+     * @param start Start epoch day
+     * @param end End epoch day, or EpochDayHistory.NO_END
+     */
+    public void addLoggedEntry(int start, int end) {
+        int last = loggedEnd(start, end);
+        maxLoggedSpan = Math.max(maxLoggedSpan, last - start);
+        setRange(LAYER_LOGGED, start, last);
+    }
+
+    /**
+     * Unmark the days of a logged entry that was removed or replaced.
+     * Remaining entries that could overlap it are marked again; normally
+     * that is only the entry itself, if replaced, and its predecessor.
+     * @param start Start epoch day of the removed entry
+     * @param end End epoch day of the removed entry, or EpochDayHistory.NO_END
+     * @param remaining History after the removal
+     */
+    public void removeLoggedEntry(int start, int end, EpochDayHistory remaining) {
+        int last = loggedEnd(start, end);
+        clearRange(LAYER_LOGGED, start, last);
+
+        int index = remaining.indexOf(start);
+        int next = index >= 0 ? index : -index - 1;
+        for (int i = next - 1; i >= 0 && remaining.getStart(i) >= start - maxLoggedSpan; i--) {
+            addLoggedEntry(remaining.getStart(i), remaining.getEnd(i));
+        }
+        for (int i = next; i < remaining.size() && remaining.getStart(i) <= last; i++) {
+            addLoggedEntry(remaining.getStart(i), remaining.getEnd(i));
+        }
+    }
+
+    /**
+     * Replace all predicted days with those of a forecast. The current cycle
+     * (cycle 0) has a logged period, so only later periods are predicted;
+     * fertile and ovulation days are marked for every cycle.
+     * @param forecast Forecast to index
+     */
+    public void setForecast(CycleForecast forecast) {
+        clearLayer(LAYER_PREDICTED);
+        clearLayer(LAYER_FERTILE);
+        clearLayer(LAYER_OVULATION);
+
+        int cycles = forecast.getCycleCount();
+        if (cycles == 0) {
+            return;
+        }
+        ensureCapacity(forecast.getPeriodStart(0), forecast.getPeriodStart(cycles - 1) + forecast.getCycleLength() - 1);
+
+        for (int cycle = 0; cycle < cycles; cycle++) {
+            if (cycle > 0) {
+                setRange(LAYER_PREDICTED, forecast.getPeriodStart(cycle), forecast.getPeriodEnd(cycle));
+            }
+            setRange(LAYER_FERTILE, forecast.getFertileStart(cycle), forecast.getFertileEnd(cycle));
+            setRange(LAYER_OVULATION, forecast.getOvulationDay(cycle), forecast.getOvulationDay(cycle));
+        }
+    }
+
+    /**
+     * States of one day
+     * @return Bitwise OR of LOGGED_PERIOD, PREDICTED_PERIOD, FERTILE and OVULATION; 0 if none
+     */
+    public int stateOf(int epochDay) {
+        int word = (epochDay >> 6) - firstWord;
+        if (word < 0 || word >= bits[0].length) {
+            return 0;
+        }
+
+        long mask = 1L << (epochDay & 63);
+        int state = 0;
+        for (int layer = 0; layer < LAYER_COUNT; layer++) {
+            if ((bits[layer][word] & mask) != 0) {
+                state |= 1 << layer;
+            }
+        }
+        return state;
+    }
+
+    /**
+     * States of consecutive days, e.g. a whole month for a calendar page
+     * @param fromEpochDay First day
+     * @param states Receives one stateOf() value per day
+     * @param offset First index written in states
+     * @param length Number of days
+     */
+    public void statesOf(int fromEpochDay, int[] states, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            states[offset + i] = stateOf(fromEpochDay + i);
+        }
+    }
+
+    /**
+     * Count days in a range that have a state
+     * @param state One of LOGGED_PERIOD, PREDICTED_PERIOD, FERTILE or OVULATION
+     * @param fromEpochDay First day, inclusive
+     * @param toEpochDay Last day, inclusive
+     */
+    public int countDays(int state, int fromEpochDay, int toEpochDay) {
+        long[] layer = bits[Integer.numberOfTrailingZeros(state)];
+        int fromWord = Math.max((fromEpochDay >> 6) - firstWord, 0);
+        int toWord = Math.min((toEpochDay >> 6) - firstWord, layer.length - 1);
+
+        int count = 0;
+        for (int word = fromWord; word <= toWord; word++) {
+            count += Long.bitCount(layer[word] & wordMask(word, fromEpochDay, toEpochDay));
+        }
+        return count;
+    }
+
+    private static int lastLoggedDay(EpochDayHistory history) {
+        int last = history.getLastStart();
+        for (int i = 0; i < history.size(); i++) {
+            last = Math.max(last, loggedEnd(history.getStart(i), history.getEnd(i)));
+        }
+        return last;
+    }
+
+    private static int loggedEnd(int start, int end) {
+        return end == EpochDayHistory.NO_END || end < start ? start : end;
+    }
+
+    /**
+     * Bits of a stored word that fall inside [fromDay, toDay]
+     */
+    private long wordMask(int word, int fromDay, int toDay) {
+        long wordFirstDay = (long) (firstWord + word) << 6;
+        long mask = -1L;
+        if (fromDay > wordFirstDay) {
+            mask &= -1L << (fromDay & 63);
+        }
+        if (toDay < wordFirstDay + 63) {
+            mask &= -1L >>> (63 - (toDay & 63));
+        }
+        return mask;
+    }
+
+    private void setRange(int layer, int fromDay, int toDay) {
+        ensureCapacity(fromDay, toDay);
+        long[] words = bits[layer];
+        for (int word = (fromDay >> 6) - firstWord; word <= (toDay >> 6) - firstWord; word++) {
+            words[word] |= wordMask(word, fromDay, toDay);
+        }
+    }
+
+    private void clearRange(int layer, int fromDay, int toDay) {
+        long[] words = bits[layer];
+        int fromWord = Math.max((fromDay >> 6) - firstWord, 0);
+        int toWord = Math.min((toDay >> 6) - firstWord, words.length - 1);
+        for (int word = fromWord; word <= toWord; word++) {
+            words[word] &= ~wordMask(word, fromDay, toDay);
+        }
+    }
+
+    private void clearLayer(int layer) {
+        Arrays.fill(bits[layer], 0L);
+    }
+
+    /**
+     * Grow every layer so the days [fromDay, toDay] are addressable,
+     * with slack on the growing side to amortize later growth
+     */
+    private void ensureCapacity(int fromDay, int toDay) {
+        int fromWord = fromDay >> 6;
+        int toWord = toDay >> 6;
+        int length = bits[0].length;
+
+        if (length == 0) {
+            firstWord = fromWord;
+            resize(0, toWord - fromWord + 1);
+            return;
+        }
+
+        int lastWord = firstWord + length - 1;
+        if (fromWord >= firstWord && toWord <= lastWord) {
+            return;
+        }
+
+        int grownFirst = fromWord < firstWord ? Math.min(fromWord, firstWord - length) : firstWord;
+        int grownLast = toWord > lastWord ? Math.max(toWord, lastWord + length) : lastWord;
+        int shift = firstWord - grownFirst;
+        firstWord = grownFirst;
+        resize(shift, grownLast - grownFirst + 1);
+    }
+
+    private void resize(int shift, int newLength) {
+        for (int layer = 0; layer < LAYER_COUNT; layer++) {
+            long[] grown = new long[newLength];
+            System.arraycopy(bits[layer], 0, grown, shift, bits[layer].length);
+            bits[layer] = grown;
+        }
+    }
+}
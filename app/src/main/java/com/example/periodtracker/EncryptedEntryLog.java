@@ -0,0 +1,407 @@
+package com.example.periodtracker;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * EncryptedEntryLog is an append-only log of period entry records.
+ * Every record is encrypted on its own with AES-GCM, so saving an entry
+ * writes a few dozen bytes no matter how long the history is. The key is
+ * meant to be an in-process key: each record costs one cipher operation,
+ * which would be a Keystore call per record with a Keystore key.
+ *
+ * On-disk record layout:
+ * - int: length of the sealed record (IV + ciphertext + tag)
+ * - 12 bytes: GCM IV
+ * - ciphertext of the 9-byte plaintext record + 16-byte tag
+ *
+ * Plaintext record layout:
+ * - byte: operation (OP_SAVE or OP_DELETE)
+ * - int: start date as epoch day
+ * - int: end date as epoch day, or NO_END
+ *
+ * The record's index in the log is authenticated as GCM associated data,
+ * so records cannot be reordered or copied to another position.
+ *
+ * Records have a fixed size, so a record that fails its length check or
+ * GCM tag is skipped and the ones after it are still read. A log with
+ * unreadable records is reported by isIntact() and must not be rewritten
+ * from what could be read.
+ */
+public class EncryptedEntryLog {
+
+    public static final byte OP_SAVE = 1;
+    public static final byte OP_DELETE = 2;
+    public static final int NO_END = Integer.MIN_VALUE;
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+    private static final int PLAINTEXT_LENGTH = 9;
+    private static final int SEALED_LENGTH = IV_LENGTH + PLAINTEXT_LENGTH + TAG_LENGTH_BITS / 8;
+    private static final int RECORD_LENGTH = 4 + SEALED_LENGTH;
+
+    private final File file;
+    private final SecretKey key;
+    private final Cipher cipher;
+    // False only for logs written before records were bound to their index
+    private final boolean indexBound;
+    private final SecureRandom random = new SecureRandom();
+    private final byte[] plaintext = new byte[PLAINTEXT_LENGTH];
+    private final byte[] iv = new byte[IV_LENGTH];
+    private final byte[] associatedData = new byte[4];
+    private int recordCount;
+    private int unreadableRecords;
+    private GeneralSecurityException firstReadFailure;
+    private boolean replayFailed;
+
+    /**
+     * Constructor binds the log to a file and an AES key
+     * @param file Log file (created on first append)
+     * @param key AES key used to seal each record
+     */
+    public EncryptedEntryLog(File file, SecretKey key) throws GeneralSecurityException {
+        this(file, key, true);
+    }
+
+    private EncryptedEntryLog(File file, SecretKey key, boolean indexBound) throws GeneralSecurityException {
+        this.file = file;
+        this.key = key;
+        this.indexBound = indexBound;
+        this.cipher = Cipher.getInstance(TRANSFORMATION);
+    }
+
+    /**
+     * Replay every record in the log in the order it was written.
+     * A record cut short by an interrupted write is dropped and the file
+     * is truncated back to the last complete record. Unreadable records
+     * are skipped and counted.
+     * @param visitor Receives each readable record
+     */
+    public synchronized void replay(Visitor visitor) throws IOException, GeneralSecurityException {
+        recordCount = 0;
+        unreadableRecords = 0;
+        firstReadFailure = null;
+        replayFailed = false;
+        if (!file.exists()) {
+            return;
+        }
+
+        long startNanos = Metrics.start();
+        long validLength;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            validLength = readRecords(in, 0, visitor);
+        } catch (IOException e) {
+            // Count what is on disk, so appends keep positions right and
+            // the log is never compacted from a partial history
+            replayFailed = true;
+            recordCount = (int) (file.length() / RECORD_LENGTH);
+            throw e;
+        }
+        recordCount = (int) (validLength / RECORD_LENGTH);
+        reportUnreadable(unreadableRecords);
+
+        if (validLength < file.length()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            }
+        }
+
+        Metrics.LOG_REPLAY.stop(startNanos);
+        Metrics.LOG_BYTES_READ.add(validLength);
+        Metrics.LOG_RECORDS_DECRYPTED.add(recordCount);
+    }
+
+    /**
+     * Replay only the records written after the first ones. Earlier records
+     * are skipped without being read or decrypted, so this costs as much as
+     * the number of new records. The log is not modified.
+     * @param firstRecord Number of records to skip, e.g. an earlier getRecordCount()
+     * @param visitor Receives each later record
+     */
+    public synchronized void replaySince(int firstRecord, Visitor visitor) throws IOException, GeneralSecurityException {
+        if (!file.exists() || firstRecord >= recordCount) {
+            return;
+        }
+
+        long startNanos = Metrics.start();
+        long offset = (long) firstRecord * RECORD_LENGTH;
+        long bytesRead;
+        // Unreadable records here were already counted by replay()
+        int unreadable = unreadableRecords;
+        firstReadFailure = null;
+        try (FileInputStream stream = new FileInputStream(file)) {
+            stream.getChannel().position(offset);
+            bytesRead = readRecords(new DataInputStream(new BufferedInputStream(stream)), firstRecord, visitor);
+            reportUnreadable(unreadableRecords - unreadable);
+        } finally {
+            unreadableRecords = unreadable;
+        }
+
+        Metrics.LOG_REPLAY.stop(startNanos);
+        Metrics.LOG_BYTES_READ.add(bytesRead);
+        Metrics.LOG_RECORDS_DECRYPTED.add(bytesRead / RECORD_LENGTH);
+    }
+
+    /**
+     * Decrypt records until the end of the stream or an incomplete record.
+     * Records with a wrong length or a failed tag are skipped and counted;
+     * the first failure is kept for reportUnreadable().
+     * @param index Index in the log of the first record in the stream
+     * @return Bytes of complete records read, including skipped ones
+     */
+    private long readRecords(DataInputStream in, int index, Visitor visitor) throws IOException {
+        long validLength = 0;
+        byte[] sealed = new byte[SEALED_LENGTH];
+        for (; ; index++) {
+            int length;
+            try {
+                length = in.readInt();
+                in.readFully(sealed);
+            } catch (EOFException e) {
+                break;
+            }
+
+            ByteBuffer record = null;
+            if (length == SEALED_LENGTH) {
+                try {
+                    record = ByteBuffer.wrap(open(sealed, index));
+                } catch (GeneralSecurityException e) {
+                    if (firstReadFailure == null) {
+                        firstReadFailure = e;
+                    }
+                }
+            }
+            if (record != null) {
+                visitor.onRecord(record.get(), record.getInt(), record.getInt());
+            } else {
+                unreadableRecords++;
+                Metrics.LOG_UNREADABLE_RECORDS.increment();
+            }
+            validLength += RECORD_LENGTH;
+        }
+        return validLength;
+    }
+
+    /**
+     * Log the records a read skipped, once for the whole read rather than
+     * once per record; with a lost key every record fails
+     */
+    private void reportUnreadable(int skipped) {
+        if (skipped > 0) {
+            new GeneralSecurityException(skipped + " unreadable records skipped in " + file, firstReadFailure)
+                    .printStackTrace();
+        }
+        firstReadFailure = null;
+    }
+
+    /**
+     * Append a single record to the end of the log
+     */
+    public void append(byte op, int startEpochDay, int endEpochDay) throws IOException, GeneralSecurityException {
+        append(Collections.singletonList(new Record(op, startEpochDay, endEpochDay)));
+    }
+
+    /**
+     * Append records to the end of the log with a single file write
+     * @param records Records in the order they should be replayed
+     */
+    public synchronized void append(List<Record> records) throws IOException, GeneralSecurityException {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        long startNanos = Metrics.start();
+        byte[] bytes = seal(records, recordCount);
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(bytes);
+            out.getFD().sync();
+        }
+        recordCount += records.size();
+        Metrics.LOG_APPEND.stop(startNanos);
+        Metrics.LOG_BYTES_WRITTEN.add(bytes.length);
+        Metrics.LOG_RECORDS_ENCRYPTED.add(records.size());
+    }
+
+    /**
+     * Replace the whole log with the given records. The new log is written
+     * to a temporary file first and renamed over the old one, so a crash
+     * leaves either the old or the new log intact.
+     * @param records Live records to keep
+     */
+    public synchronized void rewrite(List<Record> records) throws IOException, GeneralSecurityException {
+        long startNanos = Metrics.start();
+        File temp = new File(file.getPath() + ".tmp");
+        byte[] bytes = seal(records, 0);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(bytes);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+        recordCount = records.size();
+        unreadableRecords = 0;
+        replayFailed = false;
+        Metrics.LOG_REWRITE.stop(startNanos);
+        Metrics.LOG_BYTES_WRITTEN.add(bytes.length);
+        Metrics.LOG_RECORDS_ENCRYPTED.add(records.size());
+    }
+
+    /**
+     * Move the records of a log written before records were bound to their
+     * index into this log, resealed with this log's key. The old file is
+     * deleted once the new log is in place, so an interrupted move is simply
+     * repeated. Nothing is moved while any old record is unreadable.
+     * @param legacyFile Log in the old format
+     * @param legacyKey Key the old log was sealed with
+     */
+    public synchronized void migrateLegacyLog(File legacyFile, SecretKey legacyKey)
+            throws IOException, GeneralSecurityException {
+        EncryptedEntryLog legacy = new EncryptedEntryLog(legacyFile, legacyKey, false);
+        List<Record> records = new ArrayList<>();
+        legacy.replay((op, startEpochDay, endEpochDay) -> records.add(new Record(op, startEpochDay, endEpochDay)));
+        if (!legacy.isIntact()) {
+            throw new GeneralSecurityException(legacy.getUnreadableRecordCount()
+                    + " unreadable records in " + legacyFile + "; not migrated");
+        }
+
+        rewrite(records);
+        if (!legacyFile.delete()) {
+            throw new IOException("Could not delete " + legacyFile);
+        }
+    }
+
+    /**
+     * Delete the log file
+     * @return false if the file exists and could not be deleted
+     */
+    public synchronized boolean clear() {
+        if (file.exists() && !file.delete()) {
+            return false;
+        }
+        recordCount = 0;
+        unreadableRecords = 0;
+        replayFailed = false;
+        return true;
+    }
+
+    /**
+     * Number of records on disk, including superseded, deleted and unreadable ones
+     */
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Number of records the last replay() skipped because they could not be read
+     */
+    public synchronized int getUnreadableRecordCount() {
+        return unreadableRecords;
+    }
+
+    /**
+     * Whether the last replay() read every record. A log that is not intact
+     * holds entries missing from the replayed history, so it must only be
+     * appended to, never rewritten from that history.
+     */
+    public synchronized boolean isIntact() {
+        return !replayFailed && unreadableRecords == 0;
+    }
+
+    /**
+     * @param firstIndex Index in the log the first record will have
+     */
+    private byte[] seal(List<Record> records, int firstIndex) throws IOException, GeneralSecurityException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(records.size() * RECORD_LENGTH);
+        DataOutputStream out = new DataOutputStream(buffer);
+
+        int index = firstIndex;
+        for (Record record : records) {
+            ByteBuffer.wrap(plaintext)
+                    .put(record.op)
+                    .putInt(record.startEpochDay)
+                    .putInt(record.endEpochDay);
+
+            random.nextBytes(iv);
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+            bindIndex(index++);
+            byte[] ciphertext = cipher.doFinal(plaintext);
+
+            out.writeInt(iv.length + ciphertext.length);
+            out.write(iv);
+            out.write(ciphertext);
+        }
+
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    private byte[] open(byte[] sealed, int index) throws GeneralSecurityException {
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, sealed, 0, IV_LENGTH));
+        bindIndex(index);
+        return cipher.doFinal(sealed, IV_LENGTH, sealed.length - IV_LENGTH);
+    }
+
+    /**
+     * Authenticate the record's index with the initialized cipher
+     */
+    private void bindIndex(int index) {
+        if (indexBound) {
+            ByteBuffer.wrap(associatedData).putInt(index);
+            cipher.updateAAD(associatedData);
+        }
+    }
+
+    /**
+     * Callback for replayed records
+     */
+    public interface Visitor {
+        void onRecord(byte op, int startEpochDay, int endEpochDay);
+    }
+
+    /**
+     * A single log record
+     */
+    public static class Record {
+        private final byte op;
+        private final int startEpochDay;
+        private final int endEpochDay;
+
+        public Record(byte op, int startEpochDay, int endEpochDay) {
+            this.op = op;
+            this.startEpochDay = startEpochDay;
+            this.endEpochDay = endEpochDay;
+        }
+
+        public byte getOp() {
+            return op;
+        }
+
+        public int getStartEpochDay() {
+            return startEpochDay;
+        }
+
+        public int getEndEpochDay() {
+            return endEpochDay;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.periodtracker;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * EpochDayHistory is a compact, immutable period history. Period start dates
+ * are kept as a sorted int[] of epoch days (LocalDate.toEpochDay()), with the
+ * matching end dates in a parallel array, so gap and range calculations are
+ * plain integer arithmetic with no per-entry objects.
+ *
+ * Start dates are unique and ascending. Modifying methods return a new
+ * history and leave this one untouched, so instances can be shared freely.
+ */
+public final class EpochDayHistory {
+
+    /** End value for entries without a recorded end date */
+    public static final int NO_END = EncryptedEntryLog.NO_END;
+
+    public static final EpochDayHistory EMPTY = new EpochDayHistory(new int[0], new int[0]);
+
+    private final int[] starts;
+    private final int[] ends;
+
+    private EpochDayHistory(int[] starts, int[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * Build a history from unsorted entries. Later duplicates of a start
+     * date replace earlier ones.
+     * @param starts Start epoch days
+     * @param ends End epoch days (NO_END when unknown), parallel to starts
+     * @param size Number of valid elements in the arrays
+     */
+    public static EpochDayHistory of(int[] starts, int[] ends, int size) {
+        if (size == 0) {
+            return EMPTY;
+        }
+
+        // Sort indexes by start, keeping insertion order for equal starts
+        long[] keyed = new long[size];
+        for (int i = 0; i < size; i++) {
+            keyed[i] = ((long) starts[i] << 32) | i;
+        }
+        Arrays.sort(keyed);
+
+        int[] sortedStarts = new int[size];
+        int[] sortedEnds = new int[size];
+        int count = 0;
+        for (long key : keyed) {
+            int index = (int) key;
+            int start = starts[index];
+            if (count > 0 && sortedStarts[count - 1] == start) {
+                sortedEnds[count - 1] = ends[index];
+                continue;
+            }
+            sortedStarts[count] = start;
+            sortedEnds[count] = ends[index];
+            count++;
+        }
+
+        return new EpochDayHistory(Arrays.copyOf(sortedStarts, count), Arrays.copyOf(sortedEnds, count));
+    }
+
+    /**
+     * Build a history of start dates in any order, without end dates
+     * @param dates Period start dates; nulls and dates outside the int
+     *              epoch-day range are skipped
+     */
+    public static EpochDayHistory fromDates(List<LocalDate> dates) {
+        if (dates == null || dates.isEmpty()) {
+            return EMPTY;
+        }
+
+        int[] starts = new int[dates.size()];
+        int count = 0;
+        for (LocalDate date : dates) {
+            int start = PeriodCalculator.toEpochDay(date);
+            if (start != PeriodCalculator.NO_DATE) {
+                starts[count++] = start;
+            }
+        }
+
+        int[] ends = new int[count];
+        Arrays.fill(ends, NO_END);
+        return of(starts, ends, count);
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    public boolean isEmpty() {
+        return starts.length == 0;
+    }
+
+    /**
+     * Start epoch day of the entry at index (ascending order)
+     */
+    public int getStart(int index) {
+        return starts[index];
+    }
+
+    /**
+     * End epoch day of the entry at index, or NO_END
+     */
+    public int getEnd(int index) {
+        return ends[index];
+    }
+
+    public int getFirstStart() {
+        return starts[0];
+    }
+
+    public int getLastStart() {
+        return starts[starts.length - 1];
+    }
+
+    /**
+     * Days from the start at index to the next start
+     * @param index Entry index, 0 to size() - 2
+     */
+    public int getCycleLength(int index) {
+        return starts[index + 1] - starts[index];
+    }
+
+    /**
+     * Binary search for a start date
+     * @return Index of the start, or (-(insertion point) - 1) if absent
+     */
+    public int indexOf(int startEpochDay) {
+        return Arrays.binarySearch(starts, startEpochDay);
+    }
+
+    /**
+     * Copy with an entry added, or its end date replaced if the start exists
+     */
+    public EpochDayHistory withEntry(int startEpochDay, int endEpochDay) {
+        int index = indexOf(startEpochDay);
+        if (index >= 0) {
+            if (ends[index] == endEpochDay) {
+                return this;
+            }
+            int[] newEnds = ends.clone();
+            newEnds[index] = endEpochDay;
+            return new EpochDayHistory(starts, newEnds);
+        }
+
+        index = -index - 1;
+        int[] newStarts = new int[starts.length + 1];
+        int[] newEnds = new int[ends.length + 1];
+        System.arraycopy(starts, 0, newStarts, 0, index);
+        System.arraycopy(ends, 0, newEnds, 0, index);
+        newStarts[index] = startEpochDay;
+        newEnds[index] = endEpochDay;
+        System.arraycopy(starts, index, newStarts, index + 1, starts.length - index);
+        System.arraycopy(ends, index, newEnds, index + 1, ends.length - index);
+        return new EpochDayHistory(newStarts, newEnds);
+    }
+
+    /**
+     * Copy with the entry for a start date removed
+     */
+    public EpochDayHistory withoutStart(int startEpochDay) {
+        int index = indexOf(startEpochDay);
+        if (index < 0) {
+            return this;
+        }
+        if (starts.length == 1) {
+            return EMPTY;
+        }
+
+        int[] newStarts = new int[starts.length - 1];
+        int[] newEnds = new int[ends.length - 1];
+        System.arraycopy(starts, 0, newStarts, 0, index);
+        System.arraycopy(ends, 0, newEnds, 0, index);
+        System.arraycopy(starts, index + 1, newStarts, index, starts.length - index - 1);
+        System.arraycopy(ends, index + 1, newEnds, index, ends.length - index - 1);
+        return new EpochDayHistory(newStarts, newEnds);
+    }
+
+    /**
+     * Copy with the entries [from, to) removed in one pass
+     * @param from Index of the first entry to remove
+     * @param to Index after the last entry to remove
+     */
+    public EpochDayHistory withoutRange(int from, int to) {
+        if (from >= to) {
+            return this;
+        }
+        if (from == 0 && to == starts.length) {
+            return EMPTY;
+        }
+
+        int removed = to - from;
+        int[] newStarts = new int[starts.length - removed];
+        int[] newEnds = new int[ends.length - removed];
+        System.arraycopy(starts, 0, newStarts, 0, from);
+        System.arraycopy(ends, 0, newEnds, 0, from);
+        System.arraycopy(starts, to, newStarts, from, starts.length - to);
+        System.arraycopy(ends, to, newEnds, from, ends.length - to);
+        return new EpochDayHistory(newStarts, newEnds);
+    }
+
+    /**
+     * Merge another history into this one in a single linear pass.
+     * Where both contain the same start date, this history's entry is kept.
+     * @param added History to merge in
+     * @return Merged history, or this instance if nothing was added
+     */
+    public EpochDayHistory mergedWith(EpochDayHistory added) {
+        if (added.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return added;
+        }
+
+        int[] mergedStarts = new int[starts.length + added.starts.length];
+        int[] mergedEnds = new int[mergedStarts.length];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < starts.length || j < added.starts.length) {
+            if (j == added.starts.length || (i < starts.length && starts[i] <= added.starts[j])) {
+                if (j < added.starts.length && starts[i] == added.starts[j]) {
+                    j++;
+                }
+                mergedStarts[count] = starts[i];
+                mergedEnds[count] = ends[i];
+                i++;
+            } else {
+                mergedStarts[count] = added.starts[j];
+                mergedEnds[count] = added.ends[j];
+                j++;
+            }
+            count++;
+        }
+
+        if (count == starts.length) {
+            return this;
+        }
+        return new EpochDayHistory(Arrays.copyOf(mergedStarts, count), Arrays.copyOf(mergedEnds, count));
+    }
+
+    /**
+     * Start dates as LocalDate objects, most recent first
+     */
+    public LocalDate[] toStartDatesDescending() {
+        LocalDate[] dates = new LocalDate[starts.length];
+        for (int i = 0; i < starts.length; i++) {
+            dates[i] = LocalDate.ofEpochDay(starts[starts.length - 1 - i]);
+        }
+        return dates;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.periodtracker;
+
+/**
+ * EwmaPredictionStrategy predicts with an exponentially weighted moving
+ * average of cycle lengths, so recent cycles count more than old ones.
+ */
+public class EwmaPredictionStrategy implements PredictionStrategy {
+
+    /** Weight of the newest cycle used by the no-argument constructor */
+    public static final double DEFAULT_ALPHA = 0.3;
+
+    private static final int DEFAULT_CYCLE_LENGTH = 28;
+
+    private final double alpha;
+    private double average;
+    private boolean hasCycles;
+
+    public EwmaPredictionStrategy() {
+        this(DEFAULT_ALPHA);
+    }
+
+    /**
+     * @param alpha Weight of the newest cycle, between 0 (exclusive) and 1
+     */
+    public EwmaPredictionStrategy(double alpha) {
+        if (!(alpha > 0 && alpha <= 1)) {
+            throw new IllegalArgumentException("alpha must be in (0, 1]: " + alpha);
+        }
+        this.alpha = alpha;
+    }
+
+    @Override
+    public void addCycle(int cycleLength) {
+        if (hasCycles) {
+            average += alpha * (cycleLength - average);
+        } else {
+            average = cycleLength;
+            hasCycles = true;
+        }
+    }
+
+    @Override
+    public void reset() {
+        average = 0;
+        hasCycles = false;
+    }
+
+    @Override
+    public int predictCycleLength() {
+        return hasCycles ? (int) Math.round(average) : DEFAULT_CYCLE_LENGTH;
+    }
+
+    @Override
+    public String toString() {
+        return "EWMA(" + alpha + ")";
+    }
+}
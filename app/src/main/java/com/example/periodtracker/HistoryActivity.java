@@ -0,0 +1,127 @@
+package com.example.periodtracker;
+
+import android.os.Bundle;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.ListView;
+import android.widget.TextView;
+import androidx.appcompat.app.AppCompatActivity;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * HistoryActivity lists every logged period, most recent first.
+ * Rows come from a HistoryPagingSource over the latest storage snapshot, a
+ * page at a time as the list scrolls, and row views are recycled, so long
+ * histories scroll without building the whole list.
+ */
+public class HistoryActivity extends AppCompatActivity {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MMM dd, yyyy");
+
+    private PeriodRepository repository;
+    private HistoryAdapter adapter;
+    private TextView emptyText;
+    private final DataStorage.SnapshotListener snapshotObserver = this::onSnapshot;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_history);
+
+        repository = ((PeriodTrackerApplication) getApplication()).getRepository();
+
+        ListView historyList = findViewById(R.id.historyList);
+        emptyText = findViewById(R.id.historyEmptyText);
+        historyList.setEmptyView(emptyText);
+        adapter = new HistoryAdapter();
+        historyList.setAdapter(adapter);
+
+        // The current snapshot arrives at once if storage is open, and a new one after every write
+        repository.observe(snapshotObserver);
+    }
+
+    @Override
+    protected void onDestroy() {
+        repository.removeObserver(snapshotObserver);
+        super.onDestroy();
+    }
+
+    private void onSnapshot(DataStorage.Snapshot snapshot) {
+        emptyText.setText("No period data recorded yet");
+        adapter.setHistory(snapshot.getHistory());
+    }
+
+    /**
+     * Binds recycled row views to rows of the current paging source
+     */
+    private class HistoryAdapter extends BaseAdapter {
+        private HistoryPagingSource source = new HistoryPagingSource(EpochDayHistory.EMPTY);
+
+        void setHistory(EpochDayHistory history) {
+            if (history != source.getHistory()) {
+                source = new HistoryPagingSource(history);
+                notifyDataSetChanged();
+            }
+        }
+
+        @Override
+        public int getCount() {
+            return source.getCount();
+        }
+
+        @Override
+        public PeriodEntry getItem(int position) {
+            HistoryPagingSource.Page page = source.getPageFor(position);
+            return new PeriodEntry(page.getStartEpochDay(position), page.getEndEpochDay(position));
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return source.getPageFor(position).getStartEpochDay(position);
+        }
+
+        @Override
+        public boolean hasStableIds() {
+            return true;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            RowViews row;
+            if (convertView == null) {
+                convertView = getLayoutInflater().inflate(R.layout.item_history_entry, parent, false);
+                row = new RowViews(convertView);
+                convertView.setTag(row);
+            } else {
+                row = (RowViews) convertView.getTag();
+            }
+
+            HistoryPagingSource.Page page = source.getPageFor(position);
+            String dates = LocalDate.ofEpochDay(page.getStartEpochDay(position)).format(DATE_FORMATTER);
+            int end = page.getEndEpochDay(position);
+            if (end != EpochDayHistory.NO_END) {
+                dates += " - " + LocalDate.ofEpochDay(end).format(DATE_FORMATTER);
+            }
+            row.startText.setText(dates);
+
+            int duration = page.getDuration(position);
+            int cycleLength = page.getCycleLength(position);
+            String detail = duration > 0 ? "Period: " + duration + " days" : "Period: no end date";
+            detail += cycleLength > 0 ? "\nCycle: " + cycleLength + " days" : "\nCurrent cycle";
+            row.detailText.setText(detail);
+            return convertView;
+        }
+    }
+
+    private static class RowViews {
+        final TextView startText;
+        final TextView detailText;
+
+        RowViews(View view) {
+            startText = view.findViewById(R.id.historyStartText);
+            detailText = view.findViewById(R.id.historyDetailText);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.periodtracker;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * HistoryPagingSource serves the period history in fixed-size pages, most
+ * recent entry first, for the history screen. Pages are cut straight from
+ * the sorted epoch-day arrays of an EpochDayHistory, so no LocalDate or
+ * PeriodEntry is created for rows that are never shown. Each page carries
+ * the cycle length and period duration of its rows, computed once when the
+ * page is loaded.
+ *
+ * Only the most recently used pages are kept, so memory stays bounded
+ * however long the history is. The history is immutable: a source built
+ * from a storage snapshot keeps showing that snapshot, and a new source
+ * is created when a new snapshot arrives. Not thread-safe; the history
+ * screen uses it on the UI thread.
+ */
+public final class HistoryPagingSource {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int DEFAULT_MAX_PAGES = 4;
+
+    private final EpochDayHistory history;
+    private final int pageSize;
+    private final Map<Integer, Page> pages;
+
+    public HistoryPagingSource(EpochDayHistory history) {
+        this(history, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    /**
+     * @param history History to page through
+     * @param pageSize Rows per page
+     * @param maxPages Pages kept in memory; the least recently used is dropped
+     */
+    public HistoryPagingSource(EpochDayHistory history, int pageSize, int maxPages) {
+        if (pageSize < 1 || maxPages < 1) {
+            throw new IllegalArgumentException("Page size and page count must be positive");
+        }
+        this.history = history;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<Integer, Page>(maxPages + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    public EpochDayHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * @return Number of rows, one per logged period
+     */
+    public int getCount() {
+        return history.size();
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return Number of pages currently held in memory
+     */
+    public int getLoadedPageCount() {
+        return pages.size();
+    }
+
+    /**
+     * Page holding a row, loaded if it is not in memory
+     * @param position Row position, 0 (most recent) to getCount() - 1
+     */
+    public Page getPageFor(int position) {
+        if (position < 0 || position >= history.size()) {
+            throw new IndexOutOfBoundsException("Position " + position + " of " + history.size());
+        }
+        int pageIndex = position / pageSize;
+        Page page = pages.get(pageIndex);
+        if (page == null) {
+            page = load(pageIndex);
+            pages.put(pageIndex, page);
+        }
+        return page;
+    }
+
+    /**
+     * Load a page straight from the history, bypassing the cache
+     * @param pageIndex Page number, 0 for the most recent entries
+     */
+    Page load(int pageIndex) {
+        long startTime = Metrics.start();
+        int size = history.size();
+        int firstPosition = pageIndex * pageSize;
+        int rows = Math.min(pageSize, size - firstPosition);
+        Page page = new Page(firstPosition, rows);
+
+        for (int row = 0; row < rows; row++) {
+            // Position 0 is the last entry of the ascending history
+            int index = size - 1 - (firstPosition + row);
+            int start = history.getStart(index);
+            int end = history.getEnd(index);
+            page.starts[row] = start;
+            page.ends[row] = end;
+            page.durations[row] = end != EpochDayHistory.NO_END
+                    ? PeriodCalculator.calculatePeriodLength(start, end) : 0;
+            page.cycleLengths[row] = index < size - 1 ? history.getCycleLength(index) : 0;
+        }
+
+        Metrics.HISTORY_PAGE_LOAD.stop(startTime);
+        return page;
+    }
+
+    /**
+     * One page of rows, most recent first. Rows are addressed by their
+     * position in the whole history.
+     */
+    public static final class Page {
+        private final int firstPosition;
+        final int[] starts;
+        final int[] ends;
+        final int[] durations;
+        final int[] cycleLengths;
+
+        Page(int firstPosition, int rows) {
+            this.firstPosition = firstPosition;
+            this.starts = new int[rows];
+            this.ends = new int[rows];
+            this.durations = new int[rows];
+            this.cycleLengths = new int[rows];
+        }
+
+        public int getFirstPosition() {
+            return firstPosition;
+        }
+
+        public int size() {
+            return starts.length;
+        }
+
+        public int getStartEpochDay(int position) {
+            return starts[position - firstPosition];
+        }
+
+        /**
+         * @return End epoch day, or EpochDayHistory.NO_END if no end is recorded
+         */
+        public int getEndEpochDay(int position) {
+            return ends[position - firstPosition];
+        }
+
+        /**
+         * @return Period length in days, or 0 if no end is recorded
+         */
+        public int getDuration(int position) {
+            return durations[position - firstPosition];
+        }
+
+        /**
+         * @return Days from this start to the next one, or 0 for the most
+         *         recent period, whose cycle has not finished
+         */
+        public int getCycleLength(int position) {
+            return cycleLengths[position - firstPosition];
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.periodtracker;
+
+/**
+ * LegacyEntryParser reads the pipe-delimited "period_entries" string that
+ * older versions stored in SharedPreferences:
+ * "yyyy-MM-dd" or "yyyy-MM-dd-yyyy-MM-dd" per entry, separated by '|'.
+ *
+ * The string is scanned once, character by character, straight into
+ * epoch-day ints: no split(), no substrings, no LocalDate and no
+ * exceptions. A malformed entry, or one ending before it starts, is
+ * skipped up to the next '|' and counted in getErrorCount(); empty
+ * entries (e.g. a trailing '|') are ignored.
+ *
+ * parseIsoDate() is the same date scanner for a single field, used by
+ * the CSV import.
+ */
+public final class LegacyEntryParser {
+
+    /** Returned by parseIsoDate() when the text is not a valid date */
+    public static final int INVALID_DATE = PeriodCalculator.NO_DATE;
+
+    private static final char ENTRY_SEPARATOR = '|';
+    private static final char DATE_SEPARATOR = '-';
+    private static final int ISO_DATE_LENGTH = 10;
+    // Days from 0000-01-01 to 1970-01-01, as in java.time
+    private static final int DAYS_0000_TO_1970 = 719_528;
+
+    private int errorCount;
+
+    /**
+     * Parse a legacy entry string. Later entries for the same start date
+     * replace earlier ones, as when the entries were first saved.
+     * @param entries Stored value; null or empty gives an empty history
+     * @return Parsed history
+     */
+    public EpochDayHistory parse(CharSequence entries) {
+        errorCount = 0;
+        if (entries == null || entries.length() == 0) {
+            return EpochDayHistory.EMPTY;
+        }
+
+        // Every entry takes at least a date and a separator
+        int capacity = entries.length() / (ISO_DATE_LENGTH + 1) + 1;
+        int[] starts = new int[capacity];
+        int[] ends = new int[capacity];
+        int size = 0;
+
+        int length = entries.length();
+        int position = 0;
+        while (position <= length) {
+            int entryEnd = indexOf(entries, ENTRY_SEPARATOR, position, length);
+            int entryLength = entryEnd - position;
+
+            if (entryLength > 0) {
+                int start = parseIsoDate(entries, position);
+                int end = EpochDayHistory.NO_END;
+                boolean valid = start != INVALID_DATE;
+                if (valid && entryLength == 2 * ISO_DATE_LENGTH + 1) {
+                    valid = entries.charAt(position + ISO_DATE_LENGTH) == DATE_SEPARATOR;
+                    end = valid ? parseIsoDate(entries, position + ISO_DATE_LENGTH + 1) : INVALID_DATE;
+                    valid = end != INVALID_DATE && end >= start;
+                } else if (entryLength != ISO_DATE_LENGTH) {
+                    valid = false;
+                }
+
+                if (valid) {
+                    starts[size] = start;
+                    ends[size] = end;
+                    size++;
+                } else {
+                    errorCount++;
+                }
+            }
+            position = entryEnd + 1;
+        }
+
+        return EpochDayHistory.of(starts, ends, size);
+    }
+
+    /**
+     * Number of malformed entries skipped by the last parse()
+     */
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Parse a "yyyy-MM-dd" date at an offset without allocating
+     * @param text Text holding the date; characters after it are ignored
+     * @param offset Index of the first digit of the year
+     * @return Epoch day, or INVALID_DATE if the text is not a valid date there
+     */
+    public static int parseIsoDate(CharSequence text, int offset) {
+        if (offset < 0 || text.length() - offset < ISO_DATE_LENGTH
+                || text.charAt(offset + 4) != DATE_SEPARATOR || text.charAt(offset + 7) != DATE_SEPARATOR) {
+            return INVALID_DATE;
+        }
+
+        int year = digits(text, offset, 4);
+        int month = digits(text, offset + 5, 2);
+        int day = digits(text, offset + 8, 2);
+        if (year < 0 || month < 0 || day < 0 || !PeriodCalculator.isValidDate(day, month, year)) {
+            return INVALID_DATE;
+        }
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * Epoch day of a valid date, computed as LocalDate.toEpochDay() does
+     */
+    static int toEpochDay(int year, int month, int day) {
+        long y = year;
+        long total = 365 * y;
+        if (y >= 0) {
+            total += (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+        } else {
+            total -= y / -4 - y / -100 + y / -400;
+        }
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!PeriodCalculator.isLeapYear(year)) {
+                total--;
+            }
+        }
+        return (int) (total - DAYS_0000_TO_1970);
+    }
+
+    /**
+     * Value of count decimal digits, or -1 if any character is not a digit
+     */
+    private static int digits(CharSequence text, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int indexOf(CharSequence text, char c, int from, int length) {
+        for (int i = from; i < length; i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.periodtracker;
+
+/**
+ * LutealAnchoredPredictionStrategy places ovulation a fixed luteal phase
+ * before the next predicted period instead of on day 14. The luteal phase
+ * varies much less between people than the follicular phase, so this keeps
+ * the fertile window in the right place for long and short cycles.
+ *
+ * Cycle length prediction is delegated to another strategy.
+ */
+public class LutealAnchoredPredictionStrategy implements PredictionStrategy {
+
+    /** Typical luteal phase length in days */
+    public static final int DEFAULT_LUTEAL_PHASE = 14;
+
+    private final PredictionStrategy cycleLengths;
+    private final int lutealPhase;
+
+    public LutealAnchoredPredictionStrategy(PredictionStrategy cycleLengths) {
+        this(cycleLengths, DEFAULT_LUTEAL_PHASE);
+    }
+
+    /**
+     * @param cycleLengths Strategy that predicts the cycle length
+     * @param lutealPhase Days from ovulation to the next period
+     */
+    public LutealAnchoredPredictionStrategy(PredictionStrategy cycleLengths, int lutealPhase) {
+        this.cycleLengths = cycleLengths;
+        this.lutealPhase = lutealPhase;
+    }
+
+    @Override
+    public void addCycle(int cycleLength) {
+        cycleLengths.addCycle(cycleLength);
+    }
+
+    @Override
+    public void reset() {
+        cycleLengths.reset();
+    }
+
+    @Override
+    public int predictCycleLength() {
+        return cycleLengths.predictCycleLength();
+    }
+
+    @Override
+    public int getOvulationDay(int cycleLength) {
+        // Keep the fertile window after the period start for very short cycles
+        return Math.max(cycleLength - lutealPhase, PeriodCalculator.FERTILE_DAYS_BEFORE_OVULATION);
+    }
+
+    @Override
+    public String toString() {
+        return "LutealAnchored(" + cycleLengths + ", " + lutealPhase + ")";
+    }
+}
@@ -1,23 +1,25 @@
 package com.example.periodtracker;
 
+import android.content.Intent;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.Button;
 import android.widget.DatePicker;
 import android.widget.TextView;
 import android.widget.Toast;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.cardview.widget.CardView;
-import java.text.SimpleDateFormat;
+import androidx.lifecycle.ViewModelProvider;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.Calendar;
-import java.util.List;
-import java.util.Locale;
 
 /**
  * MainActivity handles the UI and user interactions for the Period Tracker app.
  * Integrates PeriodCalculator for cycle predictions and DataStorage for data persistence.
+ * Both live in PeriodViewModel and the application's PeriodRepository, so
+ * recreating the activity only rebinds views to state already loaded.
  */
 public class MainActivity extends AppCompatActivity {
 
@@ -35,27 +37,27 @@ public class MainActivity extends AppCompatActivity {
     private TextView statisticsText;
     private TextView periodDurationText;
 
-    // Business Logic Components
-    private DataStorage dataStorage;
+    // Business Logic Components, retained across configuration changes
+    private PeriodViewModel viewModel;
+    private PeriodRepository repository;
     private PeriodCalculator calculator;
-    private SimpleDateFormat dateFormat;
-    private DateTimeFormatter localDateFormatter;
+    private final DataStorage.SnapshotListener snapshotObserver = this::onSnapshot;
     
     // Constants
-    private static final int DEFAULT_CYCLE_LENGTH = 28;
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MMM dd, yyyy");
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_main);
 
-        // Initialize formatters
-        dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
-        localDateFormatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
+        // The first creation starts opening encrypted storage in the background
+        // while the layout inflates; later ones get the same repository back
+        viewModel = new ViewModelProvider(this).get(PeriodViewModel.class);
+        repository = viewModel.getRepository();
+        calculator = viewModel.getCalculator();
+        repository.ready().thenAcceptAsync(this::onStorageReady, repository.getStorage().mainThread());
 
-        // Initialize data storage and calculator
-        dataStorage = new DataStorage(this);
-        initializeCalculator();
+        setContentView(R.layout.activity_main);
 
         // Initialize UI views
         initializeViews();
@@ -63,22 +65,40 @@ public class MainActivity extends AppCompatActivity {
         // Set up click listeners
         setupClickListeners();
 
-        // Load and display existing data
-        loadAndDisplayData();
+        // Get the latest snapshot now if the repository has one (always after
+        // a configuration change), and a new one after every write
+        repository.observe(snapshotObserver);
+    }
+
+    @Override
+    protected void onDestroy() {
+        repository.removeObserver(snapshotObserver);
+        super.onDestroy();
     }
 
     /**
-     * Initialize the PeriodCalculator with stored or default data
+     * Called on the UI thread with the current stored data, once on
+     * creation and again after every write
      */
-    private void initializeCalculator() {
-        LocalDate lastPeriodStart = dataStorage.getLastPeriodStart();
-        int cycleLength = dataStorage.getCycleLength();
-        
-        if (lastPeriodStart == null) {
-            lastPeriodStart = LocalDate.now();
+    private void onSnapshot(DataStorage.Snapshot snapshot) {
+        boolean changed = viewModel.applySnapshot(snapshot);
+        if (viewModel.isPredictionShown() || (changed && snapshot.getLastPeriodStart() != null)) {
+            displayPredictions();
+        }
+        if (changed && statisticsCard.getVisibility() == View.VISIBLE) {
+            displayStatistics(snapshot);
+        }
+    }
+
+    /**
+     * Called on the UI thread once storage is open
+     */
+    private void onStorageReady(StartupTrace trace) {
+        if (trace != null && trace.isDegraded() && viewModel.takeDegradedWarning()) {
+            Toast.makeText(this,
+                    "Secure storage is unavailable. Entries from this session will not be saved.",
+                    Toast.LENGTH_LONG).show();
         }
-        
-        calculator = new PeriodCalculator(lastPeriodStart, cycleLength);
     }
 
     /**
@@ -121,6 +141,25 @@ public class MainActivity extends AppCompatActivity {
         predictButton.setOnClickListener(v -> handlePrediction());
         
         viewHistoryButton.setOnClickListener(v -> displayPeriodHistory());
+        
+        if (Metrics.isEnabled()) {
+            statisticsCard.setOnLongClickListener(v -> {
+                showMetrics();
+                return true;
+            });
+        }
+    }
+
+    /**
+     * Debug screen: show the collected storage and prediction metrics
+     */
+    private void showMetrics() {
+        new AlertDialog.Builder(this)
+                .setTitle("Metrics")
+                .setMessage(Metrics.dump())
+                .setPositiveButton(android.R.string.ok, null)
+                .setNeutralButton("Reset", (dialog, which) -> Metrics.reset())
+                .show();
     }
 
     /**
@@ -140,23 +179,26 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
-        // Save period entry
-        dataStorage.savePeriodEntry(startDate, endDate);
+        // Save period entry in the background
+        repository.savePeriodEntry(startDate, endDate)
+                .whenCompleteAsync((ignored, error) -> {
+                    if (error != null) {
+                        Toast.makeText(this, "Could not save period entry", Toast.LENGTH_LONG).show();
+                    }
+                }, repository.getStorage().mainThread());
         
         // Update calculator with new data
         calculator.setLastPeriodStart(startDate);
-        calculator.setCycleLength(dataStorage.getAverageCycleLength());
 
         // Provide feedback
-        String periodInfo = "Period logged: " + startDate.format(localDateFormatter);
+        String periodInfo = "Period logged: " + startDate.format(DATE_FORMATTER);
         if (endDate != null) {
             int duration = PeriodCalculator.calculatePeriodLength(startDate, endDate);
             periodInfo += " (" + duration + " days)";
         }
         Toast.makeText(this, periodInfo, Toast.LENGTH_LONG).show();
 
-        // Reset pickers and display data
-        loadAndDisplayData();
+        // Predictions and statistics are refreshed from the snapshot the save publishes
     }
 
     /**
@@ -178,92 +220,75 @@ public class MainActivity extends AppCompatActivity {
      * Display all prediction results
      */
     private void displayPredictions() {
-        LocalDate nextPeriod = calculator.getNextPeriodDate();
-        PeriodCalculator.DateRange fertileWindow = calculator.getFertileWindow();
-        int daysUntil = calculator.getDaysUntilNextPeriod();
-        boolean inFertileWindow = calculator.isTodayInFertileWindow();
+        PeriodCalculator.TodaySnapshot today = viewModel.getTodaySnapshot();
 
-        if (nextPeriod != null) {
-            String nextPeriodStr = nextPeriod.format(localDateFormatter);
+        if (today.hasPrediction()) {
+            int daysUntil = today.getDaysUntilNextPeriod();
+            String nextPeriodStr = today.getNextPeriodDate().format(DATE_FORMATTER);
             String daysStr = daysUntil >= 0 ? String.valueOf(daysUntil) : "Unknown";
-            nextPeriodText.setText("Next Period: " + nextPeriodStr + "\nDays away: " + daysStr);
-        }
-
-        if (fertileWindow != null) {
-            String fertileStr = fertileWindow.getStartDate().format(localDateFormatter) + 
+            String rangeStr = "";
+            PeriodCalculator.PredictionWindow window = viewModel.getNextPeriodWindow();
+            if (window != null && window.hasSpread()) {
+                rangeStr = "\nLikely between " + window.getEarliest().format(DATE_FORMATTER) +
+                           " and " + window.getLatest().format(DATE_FORMATTER);
+            }
+            nextPeriodText.setText("Next Period: " + nextPeriodStr + rangeStr + "\nDays away: " + daysStr);
+
+            String fertileStr = today.getFertileWindowStart().format(DATE_FORMATTER) + 
                                " to " + 
-                               fertileWindow.getEndDate().format(localDateFormatter);
-            String status = inFertileWindow ? " (TODAY IS IN FERTILE WINDOW!)" : "";
+                               today.getFertileWindowEnd().format(DATE_FORMATTER);
+            String status = today.isTodayInFertileWindow() ? " (TODAY IS IN FERTILE WINDOW!)" : "";
             fertileDaysText.setText("Fertile Window: " + fertileStr + status);
         }
 
-        daysUntilText.setText("Days until fertile window: " + calculator.getDaysUntilFertileWindow());
+        daysUntilText.setText("Days until fertile window: " + today.getDaysUntilFertileWindow());
 
         resultCard.setVisibility(View.VISIBLE);
+        viewModel.setPredictionShown(true);
     }
 
     /**
-     * Display cycle statistics from period history
+     * Display cycle statistics from a storage snapshot
      */
-    private void displayStatistics() {
-        List<LocalDate> periodHistory = dataStorage.getPeriodHistory();
-
-        if (periodHistory.size() < 2) {
+    private void displayStatistics(DataStorage.Snapshot snapshot) {
+        int periods = snapshot.getHistory().size();
+        if (periods < 2) {
             statisticsText.setText("Need at least 2 periods for statistics");
             statisticsCard.setVisibility(View.VISIBLE);
             return;
         }
 
-        PeriodCalculator.CycleStatistics stats = 
-            PeriodCalculator.calculateCycleStatistics(periodHistory);
-
+        PeriodCalculator.CycleStatistics stats = snapshot.getStatistics();
         String statsInfo = "Cycle Statistics:\n" +
                           "Average: " + stats.getAverageCycleLength() + " days\n" +
                           "Min: " + stats.getMinCycleLength() + " days\n" +
                           "Max: " + stats.getMaxCycleLength() + " days\n" +
-                          "Tracked Cycles: " + (periodHistory.size() - 1);
+                          "Tracked Cycles: " + (periods - 1);
+        if (stats.getAveragePeriodLength() > 0) {
+            statsInfo += "\nAverage Period: " + stats.getAveragePeriodLength() + " days";
+        }
 
         statisticsText.setText(statsInfo);
         statisticsCard.setVisibility(View.VISIBLE);
     }
 
     /**
-     * Display period history and statistics
+     * Display statistics and open the history screen
      */
     private void displayPeriodHistory() {
-        List<LocalDate> periodHistory = dataStorage.getPeriodHistory();
-
-        if (periodHistory.isEmpty()) {
-            Toast.makeText(this, "No period data recorded yet", Toast.LENGTH_SHORT).show();
+        DataStorage.Snapshot snapshot = repository.getSnapshot();
+        if (snapshot == null) {
+            Toast.makeText(this, "Loading period data...", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        StringBuilder historyText = new StringBuilder("Period History (Last 12):\n\n");
-        
-        int count = 0;
-        for (LocalDate date : periodHistory) {
-            if (count >= 12) break;
-            historyText.append(date.format(localDateFormatter)).append("\n");
-            count++;
+        if (snapshot.getHistory().isEmpty()) {
+            Toast.makeText(this, "No period data recorded yet", Toast.LENGTH_SHORT).show();
+            return;
         }
 
-        // Display history and statistics
-        displayStatistics();
-        
-        Toast.makeText(this, historyText.toString(), Toast.LENGTH_LONG).show();
-    }
-
-    /**
-     * Load data from storage and display current predictions
-     */
-    private void loadAndDisplayData() {
-        LocalDate lastPeriod = dataStorage.getLastPeriodStart();
-
-        if (lastPeriod != null) {
-            calculator.setLastPeriodStart(lastPeriod);
-            calculator.setCycleLength(dataStorage.getAverageCycleLength());
-            displayPredictions();
-        }
+        displayStatistics(snapshot);
+        startActivity(new Intent(this, HistoryActivity.class));
     }
 
     /**
@@ -0,0 +1,95 @@
+package com.example.periodtracker;
+
+/**
+ * MedianPredictionStrategy predicts the median of the last N cycles, which
+ * ignores a single unusually short or long cycle.
+ *
+ * The last N lengths are kept in a ring buffer and in a sorted copy of the
+ * same size, so adding a cycle costs O(N) for the fixed window and never
+ * depends on the length of the history.
+ */
+public class MedianPredictionStrategy implements PredictionStrategy {
+
+    /** Window used by the no-argument constructor */
+    public static final int DEFAULT_WINDOW = 6;
+
+    private static final int DEFAULT_CYCLE_LENGTH = 28;
+
+    private final int[] recent;
+    private final int[] sorted;
+    private int next;
+    private int count;
+
+    public MedianPredictionStrategy() {
+        this(DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param window Number of recent cycles to take the median of
+     */
+    public MedianPredictionStrategy(int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("window must be positive: " + window);
+        }
+        this.recent = new int[window];
+        this.sorted = new int[window];
+    }
+
+    @Override
+    public void addCycle(int cycleLength) {
+        if (count == recent.length) {
+            removeSorted(recent[next]);
+        } else {
+            count++;
+        }
+        recent[next] = cycleLength;
+        next = (next + 1) % recent.length;
+        insertSorted(cycleLength);
+    }
+
+    @Override
+    public void reset() {
+        next = 0;
+        count = 0;
+    }
+
+    @Override
+    public int predictCycleLength() {
+        if (count == 0) {
+            return DEFAULT_CYCLE_LENGTH;
+        }
+        int middle = count / 2;
+        if (count % 2 == 1) {
+            return sorted[middle];
+        }
+        return (int) Math.round((sorted[middle - 1] + sorted[middle]) / 2.0);
+    }
+
+    /**
+     * Insert into sorted[0, count) where count already includes the new value
+     */
+    private void insertSorted(int value) {
+        int i = count - 1;
+        while (i > 0 && sorted[i - 1] > value) {
+            sorted[i] = sorted[i - 1];
+            i--;
+        }
+        sorted[i] = value;
+    }
+
+    /**
+     * Remove one occurrence from sorted[0, count), leaving a free last slot
+     */
+    private void removeSorted(int value) {
+        int i = 0;
+        while (sorted[i] != value) {
+            i++;
+        }
+        System.arraycopy(sorted, i + 1, sorted, i, count - i - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "Median(" + recent.length + ")";
+    }
+}
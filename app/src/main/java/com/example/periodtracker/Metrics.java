@@ -0,0 +1,312 @@
+package com.example.periodtracker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Metrics counts and times the hot paths of DataStorage, EncryptedEntryLog
+ * and PeriodCalculator, so slow devices and large histories show up in a
+ * dump instead of only in user reports.
+ *
+ * Metrics are off by default. While off, start() returns 0 without reading
+ * the clock and every record call returns after one volatile read, so the
+ * instrumented code pays almost nothing in release builds.
+ *
+ * Histograms are log-linear, in the style of HdrHistogram: exact below 32,
+ * then 16 buckets per power of two (about 6% relative error), up to 2^40.
+ * Each one is a fixed array of 592 counters, however many values it sees.
+ *
+ * Usage:
+ * <pre>
+ * long start = Metrics.start();
+ * ...
+ * Metrics.STORAGE_COMMIT.stop(start);
+ * </pre>
+ */
+public final class Metrics {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    // Values up to 2^MAX_VALUE_BITS - 1 (about 18 minutes in nanoseconds); larger ones share the last bucket
+    private static final int MAX_VALUE_BITS = 40;
+    private static final int BUCKET_COUNT = (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private static final List<Counter> COUNTERS = new ArrayList<>();
+    private static final List<Histogram> HISTOGRAMS = new ArrayList<>();
+    private static volatile boolean enabled;
+
+    // DataStorage
+    public static final Histogram STORAGE_OPEN = timer("storage.open");
+    public static final Histogram STORAGE_LOAD_HISTORY = timer("storage.load_history");
+    public static final Histogram STORAGE_MIGRATE = timer("storage.migrate_legacy");
+    public static final Histogram STORAGE_COMMIT = timer("storage.commit");
+    public static final Histogram STORAGE_GET_HISTORY = timer("storage.get_period_history");
+    public static final Histogram STORAGE_GET_ENTRIES = timer("storage.get_period_entries");
+    public static final Histogram STORAGE_GET_STATISTICS = timer("storage.get_cycle_statistics");
+    public static final Histogram STORAGE_NEW_CALCULATOR = timer("storage.new_period_calculator");
+    public static final Histogram STORAGE_DAY_PHASE_INDEX = timer("storage.get_day_phase_index");
+    public static final Histogram STORAGE_EXPORT = timer("storage.export_csv");
+    public static final Histogram STORAGE_IMPORT = timer("storage.import");
+    public static final Histogram STORAGE_BACKUP = timer("storage.write_backup");
+    public static final Histogram STORAGE_RESTORE = timer("storage.restore_backup");
+    public static final Histogram STORAGE_CLEAR = timer("storage.clear_all_data");
+    public static final Histogram HISTORY_ENTRIES = histogram("storage.history_entries");
+    public static final Counter LEGACY_PARSE_ERRORS = counter("storage.legacy_parse_errors");
+    public static final Counter SNAPSHOTS_DELIVERED = counter("storage.snapshots_delivered");
+    public static final Counter SNAPSHOTS_CONFLATED = counter("storage.snapshots_conflated");
+
+    // EncryptedEntryLog
+    public static final Histogram LOG_REPLAY = timer("log.replay");
+    public static final Histogram LOG_APPEND = timer("log.append");
+    public static final Histogram LOG_REWRITE = timer("log.rewrite");
+    public static final Counter LOG_BYTES_READ = counter("log.bytes_read");
+    public static final Counter LOG_BYTES_WRITTEN = counter("log.bytes_written");
+    public static final Counter LOG_RECORDS_DECRYPTED = counter("log.records_decrypted");
+    public static final Counter LOG_RECORDS_ENCRYPTED = counter("log.records_encrypted");
+    public static final Counter LOG_UNREADABLE_RECORDS = counter("log.unreadable_records");
+
+    // PeriodCalculator
+    public static final Histogram CALCULATOR_STATISTICS = timer("calculator.cycle_statistics");
+    public static final Histogram CALCULATOR_FORECAST = timer("calculator.fill_forecast");
+    public static final Histogram CALCULATOR_PREDICTION_WINDOW = timer("calculator.prediction_window");
+    public static final Histogram CALCULATOR_TODAY = timer("calculator.today_snapshot");
+
+    // HistoryPagingSource
+    public static final Histogram HISTORY_PAGE_LOAD = timer("history.page_load");
+
+    private Metrics() {
+    }
+
+    private static Counter counter(String name) {
+        Counter counter = new Counter(name);
+        COUNTERS.add(counter);
+        return counter;
+    }
+
+    private static Histogram timer(String name) {
+        Histogram histogram = new Histogram(name, true);
+        HISTOGRAMS.add(histogram);
+        return histogram;
+    }
+
+    private static Histogram histogram(String name) {
+        Histogram histogram = new Histogram(name, false);
+        HISTOGRAMS.add(histogram);
+        return histogram;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turn recording on or off. Values recorded so far are kept.
+     */
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * Start timing an operation
+     * @return Start time for Histogram.stop(), or 0 while metrics are off
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Clear every counter and histogram
+     */
+    public static void reset() {
+        for (Counter counter : COUNTERS) {
+            counter.reset();
+        }
+        for (Histogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Plain-text report of every metric that has recorded something, one
+     * per line, for logcat or a debug screen
+     */
+    public static String dump() {
+        StringBuilder dump = new StringBuilder();
+        dump.append("Metrics ").append(enabled ? "enabled" : "disabled").append('\n');
+        for (Histogram histogram : HISTOGRAMS) {
+            if (histogram.getCount() > 0) {
+                dump.append(histogram).append('\n');
+            }
+        }
+        for (Counter counter : COUNTERS) {
+            if (counter.get() > 0) {
+                dump.append(counter).append('\n');
+            }
+        }
+        return dump.toString();
+    }
+
+    static int bucketIndex(long value) {
+        if (value < 2 * SUB_BUCKET_COUNT) {
+            return (int) Math.max(value, 0);
+        }
+        int bits = 64 - Long.numberOfLeadingZeros(value);
+        if (bits > MAX_VALUE_BITS) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = bits - SUB_BUCKET_BITS - 1;
+        return shift * SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    static long bucketLowestValue(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        return (long) (index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT) << shift;
+    }
+
+    /**
+     * A monotonically increasing count, e.g. bytes written
+     */
+    public static final class Counter {
+        private final String name;
+        private final AtomicLong value = new AtomicLong();
+
+        private Counter(String name) {
+            this.name = name;
+        }
+
+        public void add(long delta) {
+            if (enabled) {
+                value.addAndGet(delta);
+            }
+        }
+
+        public void increment() {
+            add(1);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long get() {
+            return value.get();
+        }
+
+        void reset() {
+            value.set(0);
+        }
+
+        @Override
+        public String toString() {
+            return name + " " + get();
+        }
+    }
+
+    /**
+     * A fixed-size distribution of non-negative values. Timers hold
+     * nanoseconds and print milliseconds.
+     */
+    public static final class Histogram {
+        private final String name;
+        private final boolean nanos;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        private Histogram(String name, boolean nanos) {
+            this.name = name;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Record the time since a Metrics.start() call; does nothing if
+         * metrics were off when it was taken
+         */
+        public void stop(long startNanos) {
+            if (startNanos != 0) {
+                record(System.nanoTime() - startNanos);
+            }
+        }
+
+        public void record(long value) {
+            if (!enabled) {
+                return;
+            }
+            buckets.incrementAndGet(bucketIndex(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            long current;
+            while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+                // Retry until this value or a larger one is stored
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public double getMean() {
+            long n = count.get();
+            return n > 0 ? (double) sum.get() / n : 0;
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * Value at or below which a share of the recorded values fall,
+         * accurate to the bucket width
+         * @param fraction Share between 0 and 1, e.g. 0.99
+         */
+        public long getPercentile(double fraction) {
+            long target = Math.max(1, (long) Math.ceil(fraction * count.get()));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += buckets.get(i);
+                if (seen >= target) {
+                    // Highest value that falls in this bucket, capped at the true maximum
+                    long highest = i + 1 < BUCKET_COUNT ? bucketLowestValue(i + 1) - 1 : Long.MAX_VALUE;
+                    return Math.min(highest, getMax());
+                }
+            }
+            return getMax();
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+
+        private String format(double value) {
+            return nanos
+                    ? String.format(Locale.US, "%.3fms", value / 1_000_000)
+                    : String.format(Locale.US, "%.0f", value);
+        }
+
+        @Override
+        public String toString() {
+            return name + " n=" + getCount()
+                    + " mean=" + format(getMean())
+                    + " p50=" + format(getPercentile(0.5))
+                    + " p90=" + format(getPercentile(0.9))
+                    + " p99=" + format(getPercentile(0.99))
+                    + " max=" + format(getMax());
+        }
+    }
+}
@@ -1,31 +1,74 @@
 package com.example.periodtracker;
 
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDate;
-import java.time.YearMonth;
-import java.util.ArrayList;
+import java.time.Year;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * PeriodCalculator handles all menstrual cycle calculations including
  * prediction logic, fertile window calculation, and cycle statistics.
  * 
- * Uses java.time.LocalDate for precision and accuracy.
+ * Dates are handled internally as epoch days (LocalDate.toEpochDay()) so
+ * predictions and statistics are plain integer arithmetic; LocalDate is
+ * used at the API boundary.
+ * 
+ * Predictions use a fixed cycle length with ovulation on day 14 unless a
+ * PredictionStrategy is set, in which case the strategy supplies both.
+ * 
+ * "Today" comes from a Clock (the system clock unless one is set), read
+ * once per query. getTodaySnapshot() answers every today-relative question
+ * from that single read into a reusable TodaySnapshot.
  */
 public class PeriodCalculator {
     
+    /** Epoch day value used when a date is not known */
+    public static final int NO_DATE = Integer.MIN_VALUE;
+    
     private static final int DEFAULT_CYCLE_LENGTH = 28;
-    private static final int FERTILE_WINDOW_START = 12;
-    private static final int FERTILE_WINDOW_END = 16;
+    // Default ovulation day and fertile window around it; shared with CycleForecast
+    static final int OVULATION_DAY = 14;
+    static final int FERTILE_DAYS_BEFORE_OVULATION = 2;
+    static final int FERTILE_DAYS_AFTER_OVULATION = 2;
+    
+    private static final long MILLIS_PER_DAY = 86_400_000L;
     
-    private LocalDate lastPeriodStart;
+    private int lastPeriodStart = NO_DATE;
     private int cycleLength;
+    private PredictionStrategy strategy;
+    
+    private Clock clock = Clock.systemDefaultZone();
+    // Local day containing the last clock reading, as [start, end) epoch millis
+    private long todayStartMillis = Long.MAX_VALUE;
+    private long todayEndMillis = Long.MIN_VALUE;
+    private int todayEpochDay;
     
     /**
      * Constructor initializes calculator with last period start date and cycle length
      */
     public PeriodCalculator(LocalDate lastPeriodStart, int cycleLength) {
-        this.lastPeriodStart = lastPeriodStart;
-        this.cycleLength = cycleLength > 0 ? cycleLength : DEFAULT_CYCLE_LENGTH;
+        setLastPeriodStart(lastPeriodStart);
+        setCycleLength(cycleLength);
+    }
+    
+    /**
+     * Constructor initializes calculator from the most recent start in a history
+     */
+    public PeriodCalculator(EpochDayHistory history, int cycleLength) {
+        this.lastPeriodStart = history.isEmpty() ? NO_DATE : history.getLastStart();
+        setCycleLength(cycleLength);
+    }
+    
+    /**
+     * Constructor initializes calculator from the most recent start in a history
+     * and a strategy already trained on that history
+     */
+    public PeriodCalculator(EpochDayHistory history, PredictionStrategy strategy) {
+        this.lastPeriodStart = history.isEmpty() ? NO_DATE : history.getLastStart();
+        setPredictionStrategy(strategy);
     }
     
     /**
@@ -33,10 +76,41 @@ public class PeriodCalculator {
      * @return LocalDate representing predicted next period start
      */
     public LocalDate getNextPeriodDate() {
-        if (lastPeriodStart == null) {
-            return null;
+        return toLocalDate(getNextPeriodEpochDay());
+    }
+    
+    /**
+     * Predicts the next period start as an epoch day
+     * @return Epoch day of the next period, or NO_DATE if unknown
+     */
+    public int getNextPeriodEpochDay() {
+        if (lastPeriodStart == NO_DATE) {
+            return NO_DATE;
         }
-        return lastPeriodStart.plusDays(cycleLength);
+        return lastPeriodStart + cycleLength;
+    }
+    
+    /**
+     * Predicts the next period start after the last start in a history
+     * @param history period history
+     * @param cycleLength cycle length in days
+     * @return Epoch day of the next period, or NO_DATE if the history is empty
+     */
+    public static int predictNextPeriodEpochDay(EpochDayHistory history, int cycleLength) {
+        if (history.isEmpty()) {
+            return NO_DATE;
+        }
+        return history.getLastStart() + (cycleLength > 0 ? cycleLength : DEFAULT_CYCLE_LENGTH);
+    }
+    
+    /**
+     * Predicts the next period date after the last start in a list of dates
+     * @param periodDates period start dates in any order
+     * @param cycleLength cycle length in days
+     * @return LocalDate of the next period, or null if there are no dates
+     */
+    public static LocalDate predictNextPeriodDate(List<LocalDate> periodDates, int cycleLength) {
+        return toLocalDate(predictNextPeriodEpochDay(EpochDayHistory.fromDates(periodDates), cycleLength));
     }
     
     /**
@@ -46,14 +120,7 @@ public class PeriodCalculator {
      * @return DateRange object containing fertile window start and end dates
      */
     public DateRange getFertileWindow() {
-        if (lastPeriodStart == null) {
-            return null;
-        }
-        
-        LocalDate fertileStart = lastPeriodStart.plusDays(FERTILE_WINDOW_START);
-        LocalDate fertileEnd = lastPeriodStart.plusDays(FERTILE_WINDOW_END);
-        
-        return new DateRange(fertileStart, fertileEnd);
+        return getFertileWindowForCycle(0);
     }
     
     /**
@@ -62,15 +129,111 @@ public class PeriodCalculator {
      * @return DateRange for the specified cycle
      */
     public DateRange getFertileWindowForCycle(int cycleCount) {
-        if (lastPeriodStart == null) {
+        int fertileStart = getFertileWindowStartEpochDay(cycleCount);
+        if (fertileStart == NO_DATE) {
+            return null;
+        }
+        
+        return new DateRange(LocalDate.ofEpochDay(fertileStart), LocalDate.ofEpochDay(getFertileWindowEndEpochDay(cycleCount)));
+    }
+    
+    /**
+     * Fill a forecast with the current and following cycles in one pass.
+     * Prefer this over calling getFertileWindowForCycle() in a loop when
+     * rendering a calendar; the forecast can be reused between calls.
+     * @param forecast Forecast to overwrite
+     * @param cycles Number of cycles, including the current one
+     * @param periodLength Period length in days (CycleForecast.DEFAULT_PERIOD_LENGTH if unknown)
+     * @return The same forecast, for chaining
+     */
+    public CycleForecast fillForecast(CycleForecast forecast, int cycles, int periodLength) {
+        long startNanos = Metrics.start();
+        forecast.fill(lastPeriodStart, cycleLength, periodLength > 0 ? periodLength : CycleForecast.DEFAULT_PERIOD_LENGTH,
+                getOvulationDay(), cycles);
+        Metrics.CALCULATOR_FORECAST.stop(startNanos);
+        return forecast;
+    }
+    
+    /**
+     * First fertile day of a cycle as an epoch day
+     * @param cycleCount number of cycles in the future (0 = current)
+     * @return Epoch day, or NO_DATE if the last period is unknown
+     */
+    public int getFertileWindowStartEpochDay(int cycleCount) {
+        if (lastPeriodStart == NO_DATE) {
+            return NO_DATE;
+        }
+        return lastPeriodStart + cycleLength * cycleCount + getOvulationDay() - FERTILE_DAYS_BEFORE_OVULATION;
+    }
+    
+    /**
+     * Last fertile day of a cycle as an epoch day
+     * @param cycleCount number of cycles in the future (0 = current)
+     * @return Epoch day, or NO_DATE if the last period is unknown
+     */
+    public int getFertileWindowEndEpochDay(int cycleCount) {
+        if (lastPeriodStart == NO_DATE) {
+            return NO_DATE;
+        }
+        return lastPeriodStart + cycleLength * cycleCount + getOvulationDay() + FERTILE_DAYS_AFTER_OVULATION;
+    }
+    
+    /**
+     * Predicted range for the next period start: the most likely day is the
+     * usual prediction, and earliest/latest are one standard deviation of
+     * the cycle length either side of it (about two cycles in three land in
+     * that range for a normal spread).
+     * @param statistics Cycle statistics of the history
+     * @param window Window to fill; reuse it to avoid allocating per refresh
+     * @return window, or null if the last period is unknown
+     */
+    public PredictionWindow getNextPeriodWindow(CycleStatistics statistics, PredictionWindow window) {
+        int nextPeriod = getNextPeriodEpochDay();
+        if (nextPeriod == NO_DATE) {
             return null;
         }
         
-        LocalDate cycleStart = lastPeriodStart.plusDays((long) cycleLength * cycleCount);
-        LocalDate fertileStart = cycleStart.plusDays(FERTILE_WINDOW_START);
-        LocalDate fertileEnd = cycleStart.plusDays(FERTILE_WINDOW_END);
+        long startNanos = Metrics.start();
+        int spread = spreadDays(statistics);
+        window.set(nextPeriod - spread, nextPeriod, nextPeriod + spread);
+        Metrics.CALCULATOR_PREDICTION_WINDOW.stop(startNanos);
+        return window;
+    }
+    
+    /**
+     * Predicted range for the current fertile window: earliest is the first
+     * fertile day if the cycle runs short by one standard deviation, most
+     * likely is the ovulation day, and latest is the last fertile day if the
+     * cycle runs long. Without a strategy ovulation does not move with the
+     * cycle length, so the range is the plain fertile window.
+     * @param statistics Cycle statistics of the history
+     * @param window Window to fill; reuse it to avoid allocating per refresh
+     * @return window, or null if the last period is unknown
+     */
+    public PredictionWindow getFertileWindowRange(CycleStatistics statistics, PredictionWindow window) {
+        if (lastPeriodStart == NO_DATE) {
+            return null;
+        }
+        
+        long startNanos = Metrics.start();
+        int spread = spreadDays(statistics);
+        int ovulation = getOvulationDay();
+        int earliestOvulation = ovulation;
+        int latestOvulation = ovulation;
+        if (strategy != null) {
+            earliestOvulation = strategy.getOvulationDay(Math.max(cycleLength - spread, 1));
+            latestOvulation = strategy.getOvulationDay(cycleLength + spread);
+        }
         
-        return new DateRange(fertileStart, fertileEnd);
+        window.set(lastPeriodStart + earliestOvulation - FERTILE_DAYS_BEFORE_OVULATION,
+                lastPeriodStart + ovulation,
+                lastPeriodStart + latestOvulation + FERTILE_DAYS_AFTER_OVULATION);
+        Metrics.CALCULATOR_PREDICTION_WINDOW.stop(startNanos);
+        return window;
+    }
+    
+    private static int spreadDays(CycleStatistics statistics) {
+        return statistics != null ? (int) Math.round(statistics.getStandardDeviation()) : 0;
     }
     
     /**
@@ -78,13 +241,12 @@ public class PeriodCalculator {
      * @return number of days remaining until next period
      */
     public int getDaysUntilNextPeriod() {
-        LocalDate nextPeriod = getNextPeriodDate();
-        if (nextPeriod == null) {
+        int nextPeriod = getNextPeriodEpochDay();
+        if (nextPeriod == NO_DATE) {
             return -1;
         }
         
-        long daysRemaining = java.time.temporal.ChronoUnit.DAYS.between(LocalDate.now(), nextPeriod);
-        return (int) daysRemaining;
+        return nextPeriod - getTodayEpochDay();
     }
     
     /**
@@ -92,13 +254,12 @@ public class PeriodCalculator {
      * @return number of days until fertile window starts
      */
     public int getDaysUntilFertileWindow() {
-        DateRange fertile = getFertileWindow();
-        if (fertile == null) {
+        int fertileStart = getFertileWindowStartEpochDay(0);
+        if (fertileStart == NO_DATE) {
             return -1;
         }
         
-        long daysRemaining = java.time.temporal.ChronoUnit.DAYS.between(LocalDate.now(), fertile.getStartDate());
-        return (int) daysRemaining;
+        return fertileStart - getTodayEpochDay();
     }
     
     /**
@@ -106,42 +267,135 @@ public class PeriodCalculator {
      * @return true if today is in fertile window, false otherwise
      */
     public boolean isTodayInFertileWindow() {
-        DateRange fertile = getFertileWindow();
-        if (fertile == null) {
+        int fertileStart = getFertileWindowStartEpochDay(0);
+        if (fertileStart == NO_DATE) {
             return false;
         }
         
-        LocalDate today = LocalDate.now();
-        return !today.isBefore(fertile.getStartDate()) && !today.isAfter(fertile.getEndDate());
+        int today = getTodayEpochDay();
+        return today >= fertileStart && today <= getFertileWindowEndEpochDay(0);
+    }
+    
+    /**
+     * Computes every today-relative value from one clock reading. Prefer
+     * this over calling getDaysUntilNextPeriod(), getDaysUntilFertileWindow()
+     * and isTodayInFertileWindow() in turn; nothing is allocated unless the
+     * local date has changed since the previous reading.
+     * @param snapshot Snapshot to overwrite; reuse it between refreshes
+     * @return The same snapshot, for chaining
+     */
+    public TodaySnapshot getTodaySnapshot(TodaySnapshot snapshot) {
+        long startNanos = Metrics.start();
+        int today = getTodayEpochDay();
+        if (lastPeriodStart == NO_DATE) {
+            snapshot.set(today, NO_DATE, NO_DATE, NO_DATE, NO_DATE, 0);
+        } else {
+            int ovulation = lastPeriodStart + getOvulationDay();
+            snapshot.set(today, lastPeriodStart + cycleLength,
+                    ovulation - FERTILE_DAYS_BEFORE_OVULATION, ovulation + FERTILE_DAYS_AFTER_OVULATION,
+                    ovulation, today - lastPeriodStart + 1);
+        }
+        Metrics.CALCULATOR_TODAY.stop(startNanos);
+        return snapshot;
+    }
+    
+    /**
+     * Today's date as an epoch day, in the clock's time zone
+     */
+    public int getTodayEpochDay() {
+        long millis = clock.millis();
+        if (millis < todayStartMillis || millis >= todayEndMillis) {
+            // Only runs when the date changes; DST days are not 24 hours long
+            ZoneId zone = clock.getZone();
+            LocalDate today = Instant.ofEpochMilli(millis).atZone(zone).toLocalDate();
+            todayEpochDay = Math.toIntExact(today.toEpochDay());
+            todayStartMillis = today.atStartOfDay(zone).toInstant().toEpochMilli();
+            todayEndMillis = today.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+        return todayEpochDay;
     }
     
     /**
      * Calculates cycle information from period history
-     * @param periodDates list of period start dates
+     * @param periodDates list of period start dates in any order
+     *                    (DataStorage returns them most recent first)
      * @return CycleStatistics object with average, min, and max cycle lengths
      */
     public static CycleStatistics calculateCycleStatistics(List<LocalDate> periodDates) {
-        if (periodDates == null || periodDates.size() < 2) {
+        return calculateCycleStatistics(EpochDayHistory.fromDates(periodDates));
+    }
+    
+    /**
+     * Calculates cycle and period duration statistics from period history
+     * in a single pass over the sorted entries. Mean and variance of the
+     * gaps use Welford's streaming update, so no gap array is built.
+     * @param history period history
+     * @return CycleStatistics object with average, spread, min, and max cycle and period lengths
+     */
+    public static CycleStatistics calculateCycleStatistics(EpochDayHistory history) {
+        long startNanos = Metrics.start();
+        CycleStatistics statistics = scanCycleStatistics(history);
+        Metrics.CALCULATOR_STATISTICS.stop(startNanos);
+        return statistics;
+    }
+    
+    private static CycleStatistics scanCycleStatistics(EpochDayHistory history) {
+        if (history == null || history.isEmpty()) {
             return new CycleStatistics(DEFAULT_CYCLE_LENGTH, 0, 0);
         }
         
-        List<Integer> cycleLengths = new ArrayList<>();
+        long sum = 0;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        int cycles = history.size() - 1;
+        double mean = 0;
+        double m2 = 0;
+        
+        long periodSum = 0;
+        int periodMin = Integer.MAX_VALUE;
+        int periodMax = Integer.MIN_VALUE;
+        int periods = 0;
         
-        // Calculate cycle lengths between consecutive periods
-        for (int i = 0; i < periodDates.size() - 1; i++) {
-            LocalDate current = periodDates.get(i);
-            LocalDate next = periodDates.get(i + 1);
+        for (int i = 0; i < history.size(); i++) {
+            // Cycle length between consecutive periods
+            if (i < cycles) {
+                int cycle = history.getCycleLength(i);
+                sum += cycle;
+                double delta = cycle - mean;
+                mean += delta / (i + 1);
+                m2 += delta * (cycle - mean);
+                if (cycle < min) {
+                    min = cycle;
+                }
+                if (cycle > max) {
+                    max = cycle;
+                }
+            }
             
-            long daysBetween = java.time.temporal.ChronoUnit.DAYS.between(current, next);
-            cycleLengths.add((int) daysBetween);
+            // Duration of periods with a recorded end
+            if (history.getEnd(i) != EpochDayHistory.NO_END) {
+                int duration = calculatePeriodLength(history.getStart(i), history.getEnd(i));
+                periodSum += duration;
+                periods++;
+                if (duration < periodMin) {
+                    periodMin = duration;
+                }
+                if (duration > periodMax) {
+                    periodMax = duration;
+                }
+            }
         }
         
-        // Calculate statistics
-        int average = (int) cycleLengths.stream().mapToInt(Integer::intValue).average().orElse(DEFAULT_CYCLE_LENGTH);
-        int min = cycleLengths.stream().mapToInt(Integer::intValue).min().orElse(DEFAULT_CYCLE_LENGTH);
-        int max = cycleLengths.stream().mapToInt(Integer::intValue).max().orElse(DEFAULT_CYCLE_LENGTH);
-        
-        return new CycleStatistics(average, min, max);
+        int averagePeriod = periods > 0 ? (int) Math.round((double) periodSum / periods) : 0;
+        if (periods == 0) {
+            periodMin = 0;
+            periodMax = 0;
+        }
+        if (cycles == 0) {
+            return new CycleStatistics(DEFAULT_CYCLE_LENGTH, 0, 0, averagePeriod, periodMin, periodMax);
+        }
+        double variance = cycles > 1 ? m2 / (cycles - 1) : 0;
+        return new CycleStatistics((double) sum / cycles, variance, min, max, averagePeriod, periodMin, periodMax);
     }
     
     /**
@@ -154,43 +408,104 @@ public class PeriodCalculator {
     }
     
     /**
-     * Checks if a date is valid for a specific month/year
+     * Checks if a date is valid for a specific month/year, with the same
+     * range as LocalDate.of() but without creating a date or catching an
+     * exception
      * @param day day of month
      * @param month month (1-12)
      * @param year year
      * @return true if date is valid
      */
     public static boolean isValidDate(int day, int month, int year) {
-        try {
-            LocalDate.of(year, month, day);
-            return true;
-        } catch (Exception e) {
+        if (year < Year.MIN_VALUE || year > Year.MAX_VALUE || month < 1 || month > 12 || day < 1) {
             return false;
         }
+        return day <= daysInMonth(month, year);
+    }
+    
+    /**
+     * Number of days in a month
+     * @param month month (1-12)
+     * @param year year
+     */
+    public static int daysInMonth(int month, int year) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
     }
     
     /**
      * Calculates period length (from start to end date)
      * @param startDate period start date
      * @param endDate period end date
-     * @return number of days in period
+     * @return number of days in period, 0 if either date is null or out of range
      */
     public static int calculatePeriodLength(LocalDate startDate, LocalDate endDate) {
-        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+        int startEpochDay = toEpochDay(startDate);
+        int endEpochDay = toEpochDay(endDate);
+        if (startEpochDay == NO_DATE || endEpochDay == NO_DATE) {
             return 0;
         }
         
-        long daysBetween = java.time.temporal.ChronoUnit.DAYS.between(startDate, endDate);
-        return (int) daysBetween + 1; // Include both start and end days
+        return calculatePeriodLength(startEpochDay, endEpochDay);
+    }
+    
+    /**
+     * Calculates period length from epoch days
+     * @param startEpochDay period start
+     * @param endEpochDay period end
+     * @return number of days in period, 0 if end is before start
+     */
+    public static int calculatePeriodLength(int startEpochDay, int endEpochDay) {
+        if (endEpochDay < startEpochDay) {
+            return 0;
+        }
+        return endEpochDay - startEpochDay + 1; // Include both start and end days
+    }
+    
+    /**
+     * Epoch day of a date as an int, the form used throughout the calculator
+     * @param date The date (nullable)
+     * @return The epoch day, or NO_DATE if the date is null or too far from
+     *         1970 to fit in an int; NO_DATE itself is reserved
+     */
+    public static int toEpochDay(LocalDate date) {
+        if (date == null) {
+            return NO_DATE;
+        }
+        long epochDay = date.toEpochDay();
+        return epochDay > NO_DATE && epochDay <= Integer.MAX_VALUE ? (int) epochDay : NO_DATE;
+    }
+    
+    private static LocalDate toLocalDate(int epochDay) {
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
     }
     
     // Getters and Setters
     
     public LocalDate getLastPeriodStart() {
-        return lastPeriodStart;
+        return toLocalDate(lastPeriodStart);
     }
     
+    /**
+     * Set the last period start; a date outside the epoch-day range leaves it unknown
+     */
     public void setLastPeriodStart(LocalDate lastPeriodStart) {
+        this.lastPeriodStart = toEpochDay(lastPeriodStart);
+    }
+    
+    /**
+     * Set the last period start as an epoch day, or NO_DATE if unknown
+     */
+    public void setLastPeriodStartEpochDay(int lastPeriodStart) {
         this.lastPeriodStart = lastPeriodStart;
     }
     
@@ -202,6 +517,36 @@ public class PeriodCalculator {
         this.cycleLength = cycleLength > 0 ? cycleLength : DEFAULT_CYCLE_LENGTH;
     }
     
+    /**
+     * Predict with a strategy: the cycle length is taken from it now, and the
+     * ovulation day follows it whenever the cycle length changes
+     * @param strategy Trained strategy, or null for a fixed day-14 ovulation
+     */
+    public void setPredictionStrategy(PredictionStrategy strategy) {
+        this.strategy = strategy;
+        if (strategy != null) {
+            setCycleLength(strategy.predictCycleLength());
+        } else if (cycleLength == 0) {
+            setCycleLength(DEFAULT_CYCLE_LENGTH);
+        }
+    }
+    
+    /**
+     * Use a different clock for "today", e.g. a fixed clock in tests
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+        this.todayStartMillis = Long.MAX_VALUE;
+        this.todayEndMillis = Long.MIN_VALUE;
+    }
+    
+    /**
+     * Day of the cycle (0 = period start) on which ovulation is expected
+     */
+    public int getOvulationDay() {
+        return strategy != null ? strategy.getOvulationDay(cycleLength) : OVULATION_DAY;
+    }
+    
     /**
      * Inner class to represent a date range
      */
@@ -226,12 +571,161 @@ public class PeriodCalculator {
             return !date.isBefore(startDate) && !date.isAfter(endDate);
         }
         
+        public boolean containsEpochDay(long epochDay) {
+            return epochDay >= startDate.toEpochDay() && epochDay <= endDate.toEpochDay();
+        }
+        
         @Override
         public String toString() {
             return startDate + " to " + endDate;
         }
     }
     
+    /**
+     * Inner class for a predicted date with its plausible range, as epoch days.
+     * Mutable so one instance can be refilled on every refresh.
+     */
+    public static class PredictionWindow {
+        private int earliest = NO_DATE;
+        private int mostLikely = NO_DATE;
+        private int latest = NO_DATE;
+        
+        void set(int earliest, int mostLikely, int latest) {
+            this.earliest = earliest;
+            this.mostLikely = mostLikely;
+            this.latest = latest;
+        }
+        
+        public int getEarliestEpochDay() {
+            return earliest;
+        }
+        
+        public int getMostLikelyEpochDay() {
+            return mostLikely;
+        }
+        
+        public int getLatestEpochDay() {
+            return latest;
+        }
+        
+        public LocalDate getEarliest() {
+            return toLocalDate(earliest);
+        }
+        
+        public LocalDate getMostLikely() {
+            return toLocalDate(mostLikely);
+        }
+        
+        public LocalDate getLatest() {
+            return toLocalDate(latest);
+        }
+        
+        /**
+         * Whether earliest and latest differ from the most likely day
+         */
+        public boolean hasSpread() {
+            return earliest != mostLikely || latest != mostLikely;
+        }
+        
+        @Override
+        public String toString() {
+            return getEarliest() + " .. " + getMostLikely() + " .. " + getLatest();
+        }
+    }
+    
+    /**
+     * Inner class for the today-relative view of the current prediction, as
+     * epoch days. Mutable so one instance can be refilled on every refresh.
+     */
+    public static class TodaySnapshot {
+        private int today = NO_DATE;
+        private int nextPeriod = NO_DATE;
+        private int fertileStart = NO_DATE;
+        private int fertileEnd = NO_DATE;
+        private int ovulation = NO_DATE;
+        private int cycleDay;
+        
+        void set(int today, int nextPeriod, int fertileStart, int fertileEnd, int ovulation, int cycleDay) {
+            this.today = today;
+            this.nextPeriod = nextPeriod;
+            this.fertileStart = fertileStart;
+            this.fertileEnd = fertileEnd;
+            this.ovulation = ovulation;
+            this.cycleDay = cycleDay;
+        }
+        
+        /**
+         * Whether a last period is known, so the other values are set
+         */
+        public boolean hasPrediction() {
+            return nextPeriod != NO_DATE;
+        }
+        
+        public int getTodayEpochDay() {
+            return today;
+        }
+        
+        public int getNextPeriodEpochDay() {
+            return nextPeriod;
+        }
+        
+        public int getFertileWindowStartEpochDay() {
+            return fertileStart;
+        }
+        
+        public int getFertileWindowEndEpochDay() {
+            return fertileEnd;
+        }
+        
+        public int getOvulationEpochDay() {
+            return ovulation;
+        }
+        
+        public LocalDate getNextPeriodDate() {
+            return toLocalDate(nextPeriod);
+        }
+        
+        public LocalDate getFertileWindowStart() {
+            return toLocalDate(fertileStart);
+        }
+        
+        public LocalDate getFertileWindowEnd() {
+            return toLocalDate(fertileEnd);
+        }
+        
+        /**
+         * @return Days until the next period, negative once it is overdue, -1 if unknown
+         */
+        public int getDaysUntilNextPeriod() {
+            return hasPrediction() ? nextPeriod - today : -1;
+        }
+        
+        /**
+         * @return Days until the fertile window starts, negative once it has started, -1 if unknown
+         */
+        public int getDaysUntilFertileWindow() {
+            return hasPrediction() ? fertileStart - today : -1;
+        }
+        
+        public boolean isTodayInFertileWindow() {
+            return hasPrediction() && today >= fertileStart && today <= fertileEnd;
+        }
+        
+        /**
+         * @return Day of the current cycle, 1 on the last period's start, 0 if unknown
+         */
+        public int getCycleDay() {
+            return cycleDay;
+        }
+        
+        @Override
+        public String toString() {
+            return "Today " + toLocalDate(today) + ", cycle day " + cycleDay
+                    + ", next period " + getNextPeriodDate() + ", fertile " + getFertileWindowStart()
+                    + " to " + getFertileWindowEnd();
+        }
+    }
+    
     /**
      * Inner class for cycle statistics
      */
@@ -239,17 +733,58 @@ public class PeriodCalculator {
         private int averageCycleLength;
         private int minCycleLength;
         private int maxCycleLength;
+        private double meanCycleLength;
+        private double variance;
+        private int averagePeriodLength;
+        private int minPeriodLength;
+        private int maxPeriodLength;
         
         public CycleStatistics(int average, int min, int max) {
-            this.averageCycleLength = average;
+            this(average, min, max, 0, 0, 0);
+        }
+        
+        public CycleStatistics(int average, int min, int max, int averagePeriod, int minPeriod, int maxPeriod) {
+            this(average, 0, min, max, averagePeriod, minPeriod, maxPeriod);
+        }
+        
+        /**
+         * @param mean Exact mean cycle length; the average is this rounded to whole days
+         * @param variance Sample variance of the cycle lengths
+         */
+        public CycleStatistics(double mean, double variance, int min, int max,
+                               int averagePeriod, int minPeriod, int maxPeriod) {
+            this.meanCycleLength = mean;
+            this.averageCycleLength = (int) Math.round(mean);
+            this.variance = variance;
             this.minCycleLength = min;
             this.maxCycleLength = max;
+            this.averagePeriodLength = averagePeriod;
+            this.minPeriodLength = minPeriod;
+            this.maxPeriodLength = maxPeriod;
         }
         
         public int getAverageCycleLength() {
             return averageCycleLength;
         }
         
+        /**
+         * Mean cycle length without rounding
+         */
+        public double getMeanCycleLength() {
+            return meanCycleLength;
+        }
+        
+        /**
+         * Sample variance of the cycle lengths, 0 with fewer than two cycles
+         */
+        public double getVariance() {
+            return variance;
+        }
+        
+        public double getStandardDeviation() {
+            return Math.sqrt(variance);
+        }
+        
         public int getMinCycleLength() {
             return minCycleLength;
         }
@@ -258,9 +793,32 @@ public class PeriodCalculator {
             return maxCycleLength;
         }
         
+        /**
+         * Average period duration in days, 0 if no period has an end date
+         */
+        public int getAveragePeriodLength() {
+            return averagePeriodLength;
+        }
+        
+        public int getMinPeriodLength() {
+            return minPeriodLength;
+        }
+        
+        public int getMaxPeriodLength() {
+            return maxPeriodLength;
+        }
+        
         @Override
         public String toString() {
-            return "Avg: " + averageCycleLength + " | Min: " + minCycleLength + " | Max: " + maxCycleLength;
+            String cycles = "Avg: " + averageCycleLength + " | Min: " + minCycleLength + " | Max: " + maxCycleLength;
+            if (variance > 0) {
+                cycles += " | SD: " + String.format(Locale.US, "%.1f", getStandardDeviation());
+            }
+            if (averagePeriodLength == 0) {
+                return cycles;
+            }
+            return cycles + " | Period avg: " + averagePeriodLength
+                    + " (" + minPeriodLength + "-" + maxPeriodLength + ")";
         }
     }
 }
@@ -0,0 +1,85 @@
+package com.example.periodtracker;
+
+import java.time.LocalDate;
+
+/**
+ * PeriodEntry is one logged period: a start date and, once known, an end
+ * date. Both are held as epoch days; LocalDate is created on request.
+ */
+public final class PeriodEntry {
+
+    private final int startEpochDay;
+    private final int endEpochDay;
+
+    /**
+     * @param startEpochDay Start epoch day
+     * @param endEpochDay End epoch day, or EpochDayHistory.NO_END while ongoing
+     */
+    public PeriodEntry(int startEpochDay, int endEpochDay) {
+        this.startEpochDay = startEpochDay;
+        this.endEpochDay = endEpochDay;
+    }
+
+    /**
+     * Entry at an index of a history
+     */
+    public static PeriodEntry of(EpochDayHistory history, int index) {
+        return new PeriodEntry(history.getStart(index), history.getEnd(index));
+    }
+
+    public int getStartEpochDay() {
+        return startEpochDay;
+    }
+
+    /**
+     * @return End epoch day, or EpochDayHistory.NO_END if no end is recorded
+     */
+    public int getEndEpochDay() {
+        return endEpochDay;
+    }
+
+    public LocalDate getStartDate() {
+        return LocalDate.ofEpochDay(startEpochDay);
+    }
+
+    /**
+     * @return End date, or null if no end is recorded
+     */
+    public LocalDate getEndDate() {
+        return hasEnd() ? LocalDate.ofEpochDay(endEpochDay) : null;
+    }
+
+    public boolean hasEnd() {
+        return endEpochDay != EpochDayHistory.NO_END;
+    }
+
+    /**
+     * Length of the period in days, counting both start and end
+     * @return Duration, or 0 if no end is recorded
+     */
+    public int getDuration() {
+        return hasEnd() ? PeriodCalculator.calculatePeriodLength(startEpochDay, endEpochDay) : 0;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof PeriodEntry)) {
+            return false;
+        }
+        PeriodEntry entry = (PeriodEntry) other;
+        return startEpochDay == entry.startEpochDay && endEpochDay == entry.endEpochDay;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * startEpochDay + endEpochDay;
+    }
+
+    @Override
+    public String toString() {
+        return hasEnd() ? getStartDate() + " to " + getEndDate() : getStartDate() + " (ongoing)";
+    }
+}
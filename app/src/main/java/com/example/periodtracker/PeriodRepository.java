@@ -0,0 +1,93 @@
+package com.example.periodtracker;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * PeriodRepository is the single, application-scoped owner of storage.
+ * PeriodTrackerApplication creates it once, so keys, encrypted preferences
+ * and the parsed history are set up once per process and survive activity
+ * recreation (rotation, dark-mode switch).
+ *
+ * The repository holds the only snapshot subscription on DataStorage and
+ * passes each snapshot on to its observers (screens, widgets, reminder
+ * scheduling), so the history, statistics and prediction are computed once
+ * per write however many components show them. Observers are added,
+ * removed and called on the UI thread.
+ */
+public class PeriodRepository {
+
+    private final AsyncDataStorage storage;
+    private final CompletableFuture<StartupTrace> ready;
+
+    // Only touched on the UI thread
+    private DataStorage.Snapshot snapshot;
+    private final List<DataStorage.SnapshotListener> observers = new ArrayList<>();
+
+    /**
+     * @param storage Storage owned by this repository from now on
+     */
+    public PeriodRepository(AsyncDataStorage storage) {
+        this.storage = storage;
+        this.ready = storage.addSnapshotListener(this::onSnapshot)
+                .thenCombine(storage.ready(), (registered, trace) -> trace);
+    }
+
+    /**
+     * The underlying storage, for operations the repository does not wrap
+     */
+    public AsyncDataStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Future completed once storage is open and its first snapshot is on
+     * its way to the UI thread, with the startup trace
+     */
+    public CompletableFuture<StartupTrace> ready() {
+        return ready;
+    }
+
+    /**
+     * Latest snapshot, without waiting
+     * @return Snapshot, or null while storage is still opening
+     */
+    public DataStorage.Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Receive the latest snapshot now, if there is one, and every later one
+     * @param observer Called on the UI thread until removed
+     */
+    public void observe(DataStorage.SnapshotListener observer) {
+        observers.add(observer);
+        if (snapshot != null) {
+            observer.onSnapshot(snapshot);
+        }
+    }
+
+    public void removeObserver(DataStorage.SnapshotListener observer) {
+        observers.remove(observer);
+    }
+
+    /**
+     * Queue a period entry save; observers get the resulting snapshot
+     * @param startDate Period start date
+     * @param endDate Period end date (nullable)
+     * @return Future completed once the entry is committed
+     */
+    public CompletableFuture<Void> savePeriodEntry(LocalDate startDate, LocalDate endDate) {
+        return storage.savePeriodEntry(startDate, endDate);
+    }
+
+    private void onSnapshot(DataStorage.Snapshot latest) {
+        snapshot = latest;
+        // Observers may remove themselves while being called
+        for (DataStorage.SnapshotListener observer : observers.toArray(new DataStorage.SnapshotListener[0])) {
+            observer.onSnapshot(latest);
+        }
+    }
+}
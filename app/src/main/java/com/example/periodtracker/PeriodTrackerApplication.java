@@ -0,0 +1,32 @@
+package com.example.periodtracker;
+
+import android.app.Application;
+import android.content.pm.ApplicationInfo;
+
+/**
+ * PeriodTrackerApplication holds the process-wide PeriodRepository, so
+ * storage is opened once per process rather than once per activity.
+ */
+public class PeriodTrackerApplication extends Application {
+
+    private PeriodRepository repository;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // Collect storage and prediction timings in debuggable builds only
+        Metrics.setEnabled((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0);
+    }
+
+    /**
+     * The repository, created on first use; opening storage starts then on
+     * its I/O thread
+     */
+    public synchronized PeriodRepository getRepository() {
+        if (repository == null) {
+            repository = new PeriodRepository(new AsyncDataStorage(this));
+        }
+        return repository;
+    }
+}
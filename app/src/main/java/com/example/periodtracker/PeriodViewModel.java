@@ -0,0 +1,101 @@
+package com.example.periodtracker;
+
+import android.app.Application;
+import androidx.lifecycle.AndroidViewModel;
+import java.time.LocalDate;
+
+/**
+ * PeriodViewModel keeps the main screen's state across configuration
+ * changes: the calculator configured from the latest storage snapshot and
+ * the reusable prediction holders. A recreated MainActivity rebinds to it
+ * without reading storage or recomputing statistics.
+ */
+public class PeriodViewModel extends AndroidViewModel {
+
+    private static final int DEFAULT_CYCLE_LENGTH = 28;
+
+    private final PeriodRepository repository;
+    private final PeriodCalculator calculator = new PeriodCalculator(LocalDate.now(), DEFAULT_CYCLE_LENGTH);
+    private final PeriodCalculator.PredictionWindow nextPeriodWindow = new PeriodCalculator.PredictionWindow();
+    private final PeriodCalculator.TodaySnapshot todaySnapshot = new PeriodCalculator.TodaySnapshot();
+    private DataStorage.Snapshot snapshot;
+    private boolean predictionShown;
+    private boolean degradedWarningShown;
+
+    public PeriodViewModel(Application application) {
+        super(application);
+        repository = ((PeriodTrackerApplication) application).getRepository();
+    }
+
+    public PeriodRepository getRepository() {
+        return repository;
+    }
+
+    public PeriodCalculator getCalculator() {
+        return calculator;
+    }
+
+    /**
+     * Snapshot last applied with applySnapshot(), or null before the first one
+     */
+    public DataStorage.Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Configure the calculator from a snapshot. The same snapshot delivered
+     * again, as after recreation, changes nothing, so a prediction made
+     * from the date picker is kept.
+     * @return false if the snapshot was already applied
+     */
+    public boolean applySnapshot(DataStorage.Snapshot latest) {
+        if (latest == snapshot) {
+            return false;
+        }
+        snapshot = latest;
+        calculator.setCycleLength(latest.getPredictedCycleLength());
+        if (latest.getLastPeriodStart() != null) {
+            calculator.setLastPeriodStart(latest.getLastPeriodStart());
+        }
+        return true;
+    }
+
+    /**
+     * Statistics from the applied snapshot, or null before the first one
+     */
+    public PeriodCalculator.CycleStatistics getCycleStatistics() {
+        return snapshot != null ? snapshot.getStatistics() : null;
+    }
+
+    /**
+     * Today's predictions, filled into a holder kept across recreation
+     */
+    public PeriodCalculator.TodaySnapshot getTodaySnapshot() {
+        return calculator.getTodaySnapshot(todaySnapshot);
+    }
+
+    /**
+     * Likely range of the next period, or null if it cannot be predicted
+     */
+    public PeriodCalculator.PredictionWindow getNextPeriodWindow() {
+        return calculator.getNextPeriodWindow(getCycleStatistics(), nextPeriodWindow);
+    }
+
+    /** Whether the prediction card is showing and should be shown again after recreation */
+    public boolean isPredictionShown() {
+        return predictionShown;
+    }
+
+    public void setPredictionShown(boolean predictionShown) {
+        this.predictionShown = predictionShown;
+    }
+
+    /**
+     * Whether the degraded-storage warning still has to be shown; true once
+     */
+    public boolean takeDegradedWarning() {
+        boolean show = !degradedWarningShown;
+        degradedWarningShown = true;
+        return show;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.periodtracker;
+
+/**
+ * PredictionStrategy turns observed cycle lengths into a predicted cycle
+ * length and ovulation day for PeriodCalculator.
+ *
+ * Strategies are trained one cycle at a time with addCycle(), which must
+ * run in constant time, so a new period only costs one update instead of
+ * a rescan of the history. Strategies are not thread-safe.
+ */
+public interface PredictionStrategy {
+
+    /**
+     * Learn from the next cycle, in chronological order
+     * @param cycleLength Days between two consecutive period starts
+     */
+    void addCycle(int cycleLength);
+
+    /**
+     * Forget all learned cycles
+     */
+    void reset();
+
+    /**
+     * Predicted length of the next cycle in days
+     */
+    int predictCycleLength();
+
+    /**
+     * Day of the cycle (0 = period start) on which ovulation is expected.
+     * The fertile window is placed around it.
+     * @param cycleLength Predicted cycle length
+     */
+    default int getOvulationDay(int cycleLength) {
+        return PeriodCalculator.OVULATION_DAY;
+    }
+
+    /**
+     * Reset the strategy and train it on every cycle of a history
+     * @param history Period history in ascending order
+     */
+    default void train(EpochDayHistory history) {
+        reset();
+        for (int i = 0; i < history.size() - 1; i++) {
+            addCycle(history.getCycleLength(i));
+        }
+    }
+}
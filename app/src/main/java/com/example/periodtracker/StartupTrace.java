@@ -0,0 +1,113 @@
+package com.example.periodtracker;
+
+import android.os.Trace;
+import android.util.Log;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * StartupTrace times the phases of storage initialization (key setup,
+ * preference creation, first read) and records whether storage came up
+ * encrypted or in degraded mode.
+ *
+ * Each phase is also emitted as a systrace section so it shows up in
+ * Perfetto captures of app startup.
+ */
+public class StartupTrace {
+
+    private static final String TAG = "StartupTrace";
+
+    public static final String PHASE_MASTER_KEY = "master_key";
+    public static final String PHASE_ENCRYPTED_PREFS = "encrypted_prefs";
+    public static final String PHASE_LOG_KEY = "log_key";
+    public static final String PHASE_OPEN_STORAGE = "open_storage";
+    public static final String PHASE_FIRST_READ = "first_read";
+
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+    private String currentPhase;
+    private long currentPhaseStart;
+    private long totalNanos;
+    private String degradedReason;
+
+    /**
+     * Start timing a phase; ends any phase still open
+     * @param phase Phase name, one of the PHASE_ constants
+     */
+    public synchronized void beginPhase(String phase) {
+        endPhase();
+        currentPhase = phase;
+        currentPhaseStart = System.nanoTime();
+        Trace.beginSection("DataStorage." + phase);
+    }
+
+    /**
+     * Stop timing the current phase
+     */
+    public synchronized void endPhase() {
+        if (currentPhase == null) {
+            return;
+        }
+        Trace.endSection();
+        phaseNanos.put(currentPhase, System.nanoTime() - currentPhaseStart);
+        currentPhase = null;
+    }
+
+    /**
+     * Record that storage fell back to degraded mode
+     * @param reason Short description of the failure
+     */
+    public synchronized void markDegraded(String reason) {
+        degradedReason = reason;
+    }
+
+    /**
+     * Close the trace and log the summary
+     */
+    public synchronized void finish() {
+        endPhase();
+        totalNanos = System.nanoTime() - startNanos;
+
+        if (isDegraded()) {
+            Log.w(TAG, toString());
+        } else {
+            Log.i(TAG, toString());
+        }
+    }
+
+    public synchronized boolean isDegraded() {
+        return degradedReason != null;
+    }
+
+    public synchronized String getDegradedReason() {
+        return degradedReason;
+    }
+
+    /**
+     * Duration of a finished phase
+     * @return Milliseconds, or -1 if the phase did not run
+     */
+    public synchronized long getPhaseMillis(String phase) {
+        Long nanos = phaseNanos.get(phase);
+        return nanos != null ? nanos / 1_000_000 : -1;
+    }
+
+    /**
+     * Time from trace creation to finish()
+     */
+    public synchronized long getTotalMillis() {
+        return totalNanos / 1_000_000;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder summary = new StringBuilder("Storage startup ");
+        summary.append(isDegraded() ? "DEGRADED (" + degradedReason + ")" : "encrypted");
+        summary.append(" in ").append(getTotalMillis()).append(" ms");
+        for (Map.Entry<String, Long> phase : phaseNanos.entrySet()) {
+            summary.append(" | ").append(phase.getKey()).append(": ")
+                    .append(phase.getValue() / 1_000_000).append(" ms");
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.periodtracker;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import androidx.security.crypto.EncryptedSharedPreferences;
+import androidx.security.crypto.MasterKey;
+import java.io.File;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.nio.ByteBuffer;
+import java.security.KeyStore;
+import java.util.Base64;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * StorageInitializer performs the expensive parts of opening DataStorage:
+ * building the MasterKey, creating EncryptedSharedPreferences and loading
+ * the entry log key. It is meant to run on a background thread
+ * (AsyncDataStorage does this on its I/O thread).
+ *
+ * The entry log is sealed with an in-process AES key. That data key is kept
+ * in the encrypted preferences, wrapped by a non-exportable Android Keystore
+ * key, so opening storage makes one Keystore call instead of one per record.
+ * The log lives in the no-backup directory: a restored backup would bring
+ * back the log but not the Keystore key, and nothing in it could be read.
+ *
+ * If any of the encryption setup fails, storage opens in degraded mode:
+ * settings and entries are kept in memory for the session only and nothing
+ * is written to disk unencrypted. The failure is recorded in the StartupTrace
+ * so the UI can tell the user and the timing is logged.
+ */
+public class StorageInitializer {
+
+    private static final String PREFS_NAME = "period_tracker_prefs";
+    private static final String ENTRY_LOG_FILE = "period_entries.log";
+    private static final String LOG_KEY_ALIAS = "period_tracker_entry_log_key";
+    private static final String ANDROID_KEYSTORE = "AndroidKeyStore";
+    private static final String WRAP_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int WRAP_TAG_LENGTH_BITS = 128;
+
+    private StorageInitializer() {
+    }
+
+    /**
+     * Open DataStorage, timing every phase into the trace
+     * @param context Any context; the application context is used
+     * @param trace Trace that receives phase timings and degraded state
+     * @return Ready DataStorage with its history already loaded
+     */
+    public static DataStorage open(Context context, StartupTrace trace) {
+        long startNanos = Metrics.start();
+        Context appContext = context.getApplicationContext();
+        DataStorage storage;
+
+        try {
+            trace.beginPhase(StartupTrace.PHASE_MASTER_KEY);
+            MasterKey masterKey = new MasterKey.Builder(appContext)
+                    .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
+                    .build();
+
+            trace.beginPhase(StartupTrace.PHASE_ENCRYPTED_PREFS);
+            SharedPreferences encryptedPrefs = EncryptedSharedPreferences.create(
+                    appContext,
+                    PREFS_NAME,
+                    masterKey,
+                    EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
+                    EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM
+            );
+
+            trace.beginPhase(StartupTrace.PHASE_LOG_KEY);
+            EncryptedEntryLog entryLog = openEntryLog(appContext, encryptedPrefs);
+
+            trace.beginPhase(StartupTrace.PHASE_OPEN_STORAGE);
+            storage = new DataStorage(encryptedPrefs, entryLog);
+        } catch (GeneralSecurityException | IOException | RuntimeException e) {
+            trace.endPhase();
+            e.printStackTrace();
+            trace.markDegraded(e.getClass().getSimpleName() + ": " + e.getMessage());
+            storage = new DataStorage(new InMemoryPreferences(), null);
+        }
+
+        // Warm the history cache so the first UI read is served from memory
+        trace.beginPhase(StartupTrace.PHASE_FIRST_READ);
+        storage.getPeriodHistory();
+        storage.getLastPeriodStart();
+        trace.finish();
+        Metrics.STORAGE_OPEN.stop(startNanos);
+
+        return storage;
+    }
+
+    /**
+     * Open the entry log with its data key, creating the key on first use.
+     * A log left in the files directory by an older version, sealed record
+     * by record with the Keystore key, is resealed into the new location.
+     */
+    private static EncryptedEntryLog openEntryLog(Context context, SharedPreferences encryptedPrefs)
+            throws GeneralSecurityException, IOException {
+        KeyStore keyStore = KeyStore.getInstance(ANDROID_KEYSTORE);
+        keyStore.load(null);
+
+        // Without the Keystore key (first launch, or restored from a backup)
+        // a stored data key or old log cannot be opened, so start over
+        boolean keyExisted = keyStore.containsAlias(LOG_KEY_ALIAS);
+        SecretKey wrappingKey = keyExisted
+                ? (SecretKey) keyStore.getKey(LOG_KEY_ALIAS, null) : generateWrappingKey();
+
+        String wrappedDataKey = encryptedPrefs.getString(DataStorage.KEY_ENTRY_LOG_KEY, null);
+        SecretKey dataKey;
+        if (keyExisted && wrappedDataKey != null) {
+            dataKey = unwrapDataKey(wrappingKey, wrappedDataKey);
+        } else {
+            KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+            keyGenerator.init(256);
+            dataKey = keyGenerator.generateKey();
+            if (!encryptedPrefs.edit()
+                    .putString(DataStorage.KEY_ENTRY_LOG_KEY, wrapDataKey(wrappingKey, dataKey))
+                    .commit()) {
+                throw new IOException("Could not store the entry log key");
+            }
+        }
+
+        EncryptedEntryLog entryLog = new EncryptedEntryLog(
+                new File(context.getNoBackupFilesDir(), ENTRY_LOG_FILE), dataKey);
+        File legacyFile = new File(context.getFilesDir(), ENTRY_LOG_FILE);
+        if (legacyFile.exists()) {
+            if (keyExisted) {
+                entryLog.migrateLegacyLog(legacyFile, wrappingKey);
+            } else if (!legacyFile.delete()) {
+                throw new IOException("Could not delete " + legacyFile);
+            }
+        }
+        return entryLog;
+    }
+
+    /**
+     * Encrypt the data key with the Keystore key
+     * @return Base64 of the IV followed by the ciphertext
+     */
+    private static String wrapDataKey(SecretKey wrappingKey, SecretKey dataKey) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance(WRAP_TRANSFORMATION);
+        cipher.init(Cipher.ENCRYPT_MODE, wrappingKey);
+        byte[] iv = cipher.getIV();
+        byte[] ciphertext = cipher.doFinal(dataKey.getEncoded());
+        return Base64.getEncoder().encodeToString(
+                ByteBuffer.allocate(1 + iv.length + ciphertext.length)
+                        .put((byte) iv.length)
+                        .put(iv)
+                        .put(ciphertext)
+                        .array());
+    }
+
+    private static SecretKey unwrapDataKey(SecretKey wrappingKey, String wrapped) throws GeneralSecurityException {
+        byte[] bytes;
+        try {
+            bytes = Base64.getDecoder().decode(wrapped);
+        } catch (IllegalArgumentException e) {
+            throw new GeneralSecurityException("Stored entry log key is not valid Base64", e);
+        }
+        int ivLength = bytes.length > 0 ? bytes[0] : 0;
+        if (ivLength <= 0 || 1 + ivLength >= bytes.length) {
+            throw new GeneralSecurityException("Stored entry log key is truncated");
+        }
+
+        Cipher cipher = Cipher.getInstance(WRAP_TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, wrappingKey, new GCMParameterSpec(WRAP_TAG_LENGTH_BITS, bytes, 1, ivLength));
+        byte[] encoded = cipher.doFinal(bytes, 1 + ivLength, bytes.length - 1 - ivLength);
+        return new SecretKeySpec(encoded, "AES");
+    }
+
+    /**
+     * Generate the AES-GCM Keystore key that wraps the entry log's data key
+     */
+    private static SecretKey generateWrappingKey() throws GeneralSecurityException {
+        KeyGenerator keyGenerator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, ANDROID_KEYSTORE);
+        keyGenerator.init(new KeyGenParameterSpec.Builder(LOG_KEY_ALIAS,
+                KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                .setKeySize(256)
+                .build());
+        return keyGenerator.generateKey();
+    }
+}
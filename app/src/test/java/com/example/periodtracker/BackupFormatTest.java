@@ -0,0 +1,79 @@
+package com.example.periodtracker;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Unit tests for BackupFormat
+ * Verifies that entries written by the Writer read back unchanged, and
+ * that ranges which cannot be encoded never turn into deletes
+ */
+public class BackupFormatTest {
+
+    private static final int START = 19_700;
+
+    /**
+     * Test Case 1: Round trip of saves and deletes
+     * Given: A save with an end, one without, one ending on its start day, and a delete
+     * Expected: The same entries, settings and type are read back
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BackupFormat.Writer writer = new BackupFormat.Writer(output, BackupFormat.TYPE_INCREMENTAL, 1);
+        writer.writeSetting(BackupFormat.SETTING_CYCLE_LENGTH, 30);
+        writer.beginEntries(4);
+        writer.writeSave(START, START + 4);
+        writer.writeSave(START + 28, EpochDayHistory.NO_END);
+        writer.writeSave(START + 56, START + 56);
+        writer.writeDelete(START);
+        writer.finish();
+
+        BackupFormat.Reader reader = read(output);
+        assertEquals(BackupFormat.TYPE_INCREMENTAL, reader.getType());
+        assertEquals(30, reader.getCycleLength());
+        assertSave(reader, START, START + 4);
+        assertSave(reader, START + 28, EpochDayHistory.NO_END);
+        assertSave(reader, START + 56, START + 56);
+        assertTrue(reader.next());
+        assertTrue(reader.isDelete());
+        assertEquals(START, reader.getStart());
+        assertFalse(reader.next());
+    }
+
+    /**
+     * Test Case 2: End before start
+     * Given: Saves ending 1 and 2 days before their start
+     * Expected: Both read back as saves ending on their start day,
+     *           not as a missing end or a delete
+     */
+    @Test
+    public void testEndBeforeStartClampedToStart() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BackupFormat.Writer writer = new BackupFormat.Writer(output, BackupFormat.TYPE_FULL, 0);
+        writer.beginEntries(2);
+        writer.writeSave(START, START - 1);
+        writer.writeSave(START + 28, START + 26);
+        writer.finish();
+
+        BackupFormat.Reader reader = read(output);
+        assertSave(reader, START, START);
+        assertSave(reader, START + 28, START + 28);
+        assertFalse(reader.next());
+    }
+
+    private static BackupFormat.Reader read(ByteArrayOutputStream output) throws IOException {
+        return new BackupFormat.Reader(new ByteArrayInputStream(output.toByteArray()));
+    }
+
+    private static void assertSave(BackupFormat.Reader reader, int start, int end) throws IOException {
+        assertTrue(reader.next());
+        assertFalse(reader.isDelete());
+        assertEquals(start, reader.getStart());
+        assertEquals(end, reader.getEnd());
+    }
+}
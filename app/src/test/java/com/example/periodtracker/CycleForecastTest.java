@@ -0,0 +1,158 @@
+package com.example.periodtracker;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.LocalDate;
+
+/**
+ * Unit tests for CycleForecast
+ * Verifies phase boundaries within a cycle, days outside the forecast,
+ * and that a refilled forecast shows only the new cycles
+ */
+public class CycleForecastTest {
+
+    private static final LocalDate LAST_PERIOD = LocalDate.of(2024, 1, 1);
+    private static final int START = (int) LAST_PERIOD.toEpochDay();
+
+    /**
+     * Test Case 1: Phases of a 28-day cycle
+     * Given: Last period 2024-01-01, 28-day cycles, 5-day periods
+     * Expected: Period days 0-4, follicular 5-11, fertile 12-13,
+     *           ovulation 14, fertile 15-16, luteal 17-27, next period on day 28
+     */
+    @Test
+    public void testPhaseBoundaries() {
+        CycleForecast forecast = new PeriodCalculator(LAST_PERIOD, 28).fillForecast(new CycleForecast(), 3, 5);
+
+        int[] expected = new int[28];
+        for (int day = 0; day < 28; day++) {
+            if (day <= 4) {
+                expected[day] = CycleForecast.PHASE_PERIOD;
+            } else if (day <= 11) {
+                expected[day] = CycleForecast.PHASE_FOLLICULAR;
+            } else if (day == 14) {
+                expected[day] = CycleForecast.PHASE_OVULATION;
+            } else if (day <= 16) {
+                expected[day] = CycleForecast.PHASE_FERTILE;
+            } else {
+                expected[day] = CycleForecast.PHASE_LUTEAL;
+            }
+        }
+
+        for (int cycle = 0; cycle < 3; cycle++) {
+            for (int day = 0; day < 28; day++) {
+                assertEquals("cycle " + cycle + " day " + day,
+                        expected[day], forecast.phaseOf(START + cycle * 28 + day));
+                assertEquals(cycle, forecast.cycleOf(START + cycle * 28 + day));
+            }
+        }
+    }
+
+    /**
+     * Test Case 2: Days outside the forecast
+     * Given: 3 cycles of 28 days from 2024-01-01
+     * Expected: The day before the first cycle and the day after the
+     *           last are in no phase and no cycle
+     */
+    @Test
+    public void testDaysOutsideForecast() {
+        CycleForecast forecast = new PeriodCalculator(LAST_PERIOD, 28).fillForecast(new CycleForecast(), 3, 5);
+
+        assertEquals(CycleForecast.PHASE_NONE, forecast.phaseOf(START - 1));
+        assertEquals(-1, forecast.cycleOf(START - 1));
+        assertEquals(CycleForecast.PHASE_LUTEAL, forecast.phaseOf(START + 3 * 28 - 1));
+        assertEquals(CycleForecast.PHASE_NONE, forecast.phaseOf(START + 3 * 28));
+        assertEquals(-1, forecast.cycleOf(START + 3 * 28));
+        assertEquals(CycleForecast.PHASE_NONE, forecast.phaseOf(Integer.MAX_VALUE));
+        assertEquals(CycleForecast.PHASE_NONE, forecast.phaseOf(Integer.MIN_VALUE + 1));
+    }
+
+    /**
+     * Test Case 3: No last period
+     * Given: A calculator without a last period
+     * Expected: An empty forecast; every day is in no phase
+     */
+    @Test
+    public void testEmptyForecast() {
+        CycleForecast forecast = new PeriodCalculator((LocalDate) null, 28).fillForecast(new CycleForecast(), 3, 5);
+
+        assertEquals(0, forecast.getCycleCount());
+        assertEquals(CycleForecast.PHASE_NONE, forecast.phaseOf(START));
+        assertEquals(-1, forecast.cycleOf(START));
+    }
+
+    /**
+     * Test Case 4: Reusing one forecast
+     * Given: A forecast filled with 6 cycles of 28 days, then refilled with
+     *        3 cycles of 30 days from a later start, then with 8 cycles
+     * Expected: Each fill shows only its own cycles, which match
+     *           getFertileWindowForCycle(), and old cycles are not readable
+     */
+    @Test
+    public void testRefillReplacesCycles() {
+        CycleForecast forecast = new CycleForecast();
+        new PeriodCalculator(LAST_PERIOD, 28).fillForecast(forecast, 6, 5);
+        assertEquals(CycleForecast.PHASE_PERIOD, forecast.phaseOf(START + 5 * 28));
+
+        LocalDate later = LAST_PERIOD.plusDays(10);
+        PeriodCalculator calculator = new PeriodCalculator(later, 30);
+        calculator.fillForecast(forecast, 3, 4);
+
+        assertEquals(3, forecast.getCycleCount());
+        assertEquals(30, forecast.getCycleLength());
+        assertEquals(CycleForecast.PHASE_NONE, forecast.phaseOf(START + 5 * 28));
+        assertEquals(CycleForecast.PHASE_NONE, forecast.phaseOf(START));
+        assertCyclesMatchCalculator(calculator, forecast);
+        assertEquals(CycleForecast.PHASE_FOLLICULAR, forecast.phaseOf((int) later.toEpochDay() + 4));
+        try {
+            forecast.getPeriodStart(3);
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException expected) {
+            // Cycle 3 is left over from the first fill
+        }
+
+        calculator.fillForecast(forecast, 8, 4);
+        assertEquals(8, forecast.getCycleCount());
+        assertCyclesMatchCalculator(calculator, forecast);
+    }
+
+    /**
+     * Test Case 5: Phase lookup against the filled cycles
+     * Given: 12 cycles of 21 days with 7-day periods
+     * Expected: For every day, phaseOf() agrees with the period, fertile
+     *           and ovulation days stored for its cycle
+     */
+    @Test
+    public void testPhaseOfMatchesFilledCycles() {
+        CycleForecast forecast = new PeriodCalculator(LAST_PERIOD, 21).fillForecast(new CycleForecast(), 12, 7);
+
+        for (int day = START - 5; day < START + 12 * 21 + 5; day++) {
+            int cycle = forecast.cycleOf(day);
+            int expected;
+            if (cycle < 0) {
+                expected = CycleForecast.PHASE_NONE;
+            } else if (day <= forecast.getPeriodEnd(cycle)) {
+                expected = CycleForecast.PHASE_PERIOD;
+            } else if (day == forecast.getOvulationDay(cycle)) {
+                expected = CycleForecast.PHASE_OVULATION;
+            } else if (day >= forecast.getFertileStart(cycle) && day <= forecast.getFertileEnd(cycle)) {
+                expected = CycleForecast.PHASE_FERTILE;
+            } else if (day < forecast.getFertileStart(cycle)) {
+                expected = CycleForecast.PHASE_FOLLICULAR;
+            } else {
+                expected = CycleForecast.PHASE_LUTEAL;
+            }
+            assertEquals("day " + day, expected, forecast.phaseOf(day));
+        }
+    }
+
+    private static void assertCyclesMatchCalculator(PeriodCalculator calculator, CycleForecast forecast) {
+        for (int cycle = 0; cycle < forecast.getCycleCount(); cycle++) {
+            PeriodCalculator.DateRange fertile = calculator.getFertileWindowForCycle(cycle);
+            assertEquals(fertile.getStartDate().toEpochDay(), forecast.getFertileStart(cycle));
+            assertEquals(fertile.getEndDate().toEpochDay(), forecast.getFertileEnd(cycle));
+            assertEquals(calculator.getLastPeriodStart().toEpochDay() + 30L * cycle, forecast.getPeriodStart(cycle));
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.periodtracker;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+/**
+ * Stress tests for concurrent DataStorage writes
+ * Many threads save, update and delete at once, on a plain JVM with a real
+ * encrypted log; no write may be lost in memory or on disk
+ */
+public class DataStorageConcurrencyTest {
+
+    private static final LocalDate FIRST_START = LocalDate.of(2000, 1, 1);
+    private static final int WRITERS = 8;
+    private static final int READERS = 2;
+    private static final int DATES_PER_WRITER = 40;
+    private static final int OPERATIONS_PER_WRITER = 400;
+
+    private File logFile;
+    private SecretKey key;
+    private InMemoryPreferences preferences;
+    private DataStorage storage;
+
+    @Before
+    public void setUp() throws Exception {
+        logFile = File.createTempFile("entries", ".log");
+        logFile.delete();
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        key = generator.generateKey();
+        preferences = new InMemoryPreferences();
+        storage = new DataStorage(preferences, new EncryptedEntryLog(logFile, key));
+    }
+
+    @After
+    public void tearDown() {
+        logFile.delete();
+    }
+
+    /**
+     * Test Case 1: Writers on disjoint dates, with readers running alongside
+     * Given: 8 threads each saving, updating, replacing and deleting their own dates
+     * Expected: Every thread's last write for each date survives, in memory,
+     *           in the statistics and after replaying the log
+     */
+    @Test
+    public void testConcurrentWritersLoseNoUpdates() throws Exception {
+        Map<Integer, Integer> expected = new ConcurrentSkipListMap<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch startGate = new CountDownLatch(1);
+
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            writers.add(start(failure, startGate, () -> {
+                Map<Integer, Integer> own = runWriter(writer, new Random(writer));
+                expected.putAll(own);
+            }));
+        }
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            readers.add(start(failure, startGate, () -> {
+                while (writing.get()) {
+                    assertSnapshotConsistent();
+                }
+            }));
+        }
+
+        startGate.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        writing.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+
+        assertHistoryEquals(expected, storage.getEpochDayHistory());
+        assertStatisticsMatch(storage);
+
+        DataStorage reopened = new DataStorage(preferences, new EncryptedEntryLog(logFile, key));
+        assertHistoryEquals(expected, reopened.getEpochDayHistory());
+        assertStatisticsMatch(reopened);
+    }
+
+    /**
+     * Test Case 2: Bulk import racing single saves
+     * Given: One thread importing 500 entries while 8 threads each save 50 others
+     * Expected: All 900 entries are stored
+     */
+    @Test
+    public void testImportAndSavesInterleave() throws Exception {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch startGate = new CountDownLatch(1);
+        int imported = 500;
+        int savesPerWriter = 50;
+
+        int[] starts = new int[imported];
+        int[] ends = new int[imported];
+        for (int i = 0; i < imported; i++) {
+            starts[i] = (int) FIRST_START.toEpochDay() + i * 2 * WRITERS;
+            ends[i] = EpochDayHistory.NO_END;
+        }
+
+        List<Thread> threads = new ArrayList<>();
+        threads.add(start(failure, startGate, () ->
+                assertEquals(imported, storage.importEntries(EpochDayHistory.of(starts, ends, imported)).getImported())));
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            threads.add(start(failure, startGate, () -> {
+                for (int i = 0; i < savesPerWriter; i++) {
+                    // Odd offsets never collide with the imported starts
+                    storage.savePeriodEntry(FIRST_START.plusDays((long) i * 2 * WRITERS + 2 * writer + 1), null);
+                }
+            }));
+        }
+
+        startGate.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+
+        assertEquals(imported + WRITERS * savesPerWriter, storage.getEpochDayHistory().size());
+        assertEquals(imported + WRITERS * savesPerWriter, storage.getPeriodHistory().size());
+        assertStatisticsMatch(storage);
+    }
+
+    /**
+     * Random writes to the dates owned by one writer: every
+     * WRITERS-th 29-day slot, offset by the writer number
+     * @return The expected final end day (or NO_END) of each live start
+     */
+    private Map<Integer, Integer> runWriter(int writer, Random random) {
+        Map<Integer, Integer> own = new TreeMap<>();
+        for (int i = 0; i < OPERATIONS_PER_WRITER; i++) {
+            LocalDate start = FIRST_START.plusDays(29L * (random.nextInt(DATES_PER_WRITER) * WRITERS + writer));
+            LocalDate end = random.nextBoolean() ? start.plusDays(2 + random.nextInt(6)) : null;
+            int startDay = (int) start.toEpochDay();
+            int endDay = end != null ? (int) end.toEpochDay() : EpochDayHistory.NO_END;
+
+            switch (random.nextInt(5)) {
+                case 0:
+                case 1:
+                    storage.savePeriodEntry(start, end);
+                    own.put(startDay, endDay);
+                    break;
+                case 2:
+                    storage.deletePeriodEntry(start);
+                    own.remove(startDay);
+                    break;
+                case 3:
+                    storage.updatePeriodEnd(start, end);
+                    if (own.containsKey(startDay)) {
+                        own.put(startDay, endDay);
+                    }
+                    break;
+                default:
+                    // Two changes in one batch, the second depending on the first
+                    storage.beginBatch()
+                            .savePeriodEntry(start, null)
+                            .updatePeriodEnd(start, end)
+                            .commit();
+                    own.put(startDay, endDay);
+                    break;
+            }
+        }
+        return own;
+    }
+
+    private void assertSnapshotConsistent() {
+        EpochDayHistory history = storage.getEpochDayHistory();
+        for (int i = 1; i < history.size(); i++) {
+            assertTrue(history.getStart(i - 1) < history.getStart(i));
+        }
+        List<LocalDate> starts = storage.getPeriodHistory();
+        for (int i = 1; i < starts.size(); i++) {
+            assertTrue(starts.get(i - 1).isAfter(starts.get(i)));
+        }
+        List<PeriodEntry> entries = storage.getPeriodEntries();
+        for (int i = 1; i < entries.size(); i++) {
+            assertTrue(entries.get(i - 1).getStartDate().isAfter(entries.get(i).getStartDate()));
+        }
+        assertNotNull(storage.getCycleStatistics());
+    }
+
+    private static void assertHistoryEquals(Map<Integer, Integer> expected, EpochDayHistory history) {
+        assertEquals(expected.size(), history.size());
+        int i = 0;
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals((int) entry.getKey(), history.getStart(i));
+            assertEquals((int) entry.getValue(), history.getEnd(i));
+            i++;
+        }
+    }
+
+    private static void assertStatisticsMatch(DataStorage storage) {
+        PeriodCalculator.CycleStatistics actual = storage.getCycleStatistics();
+        PeriodCalculator.CycleStatistics rebuilt =
+                CycleStatsAccumulator.fromHistory(storage.getEpochDayHistory()).toCycleStatistics();
+        assertEquals(rebuilt.getMinCycleLength(), actual.getMinCycleLength());
+        assertEquals(rebuilt.getMaxCycleLength(), actual.getMaxCycleLength());
+        assertEquals(rebuilt.getMeanCycleLength(), actual.getMeanCycleLength(), 1e-6);
+        assertEquals(rebuilt.getMinPeriodLength(), actual.getMinPeriodLength());
+        assertEquals(rebuilt.getMaxPeriodLength(), actual.getMaxPeriodLength());
+        assertEquals(rebuilt.getAveragePeriodLength(), actual.getAveragePeriodLength());
+    }
+
+    private static Thread start(AtomicReference<Throwable> failure, CountDownLatch startGate, Runnable task) {
+        Thread thread = new Thread(() -> {
+            try {
+                startGate.await();
+                task.run();
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.periodtracker;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import javax.crypto.KeyGenerator;
+
+/**
+ * Unit tests for DataStorage snapshot listeners
+ * Executors are queues drained by the test, standing in for a busy UI thread
+ */
+public class DataStorageSnapshotTest {
+
+    private static final LocalDate FIRST_START = LocalDate.of(2024, 1, 1);
+    private static final int BURST = 50;
+
+    private File logFile;
+    private DataStorage storage;
+
+    @Before
+    public void setUp() throws Exception {
+        logFile = File.createTempFile("entries", ".log");
+        logFile.delete();
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        storage = new DataStorage(new InMemoryPreferences(), new EncryptedEntryLog(logFile, generator.generateKey()));
+    }
+
+    @After
+    public void tearDown() {
+        logFile.delete();
+    }
+
+    /**
+     * Test Case 1: Registration
+     * Given: One stored period, then a listener added
+     * Expected: The listener gets the current snapshot, with statistics
+     */
+    @Test
+    public void testCurrentSnapshotOnRegistration() {
+        storage.savePeriodEntry(FIRST_START, FIRST_START.plusDays(4));
+        List<DataStorage.Snapshot> received = new ArrayList<>();
+
+        storage.addSnapshotListener(received::add, Runnable::run);
+
+        assertEquals(1, received.size());
+        DataStorage.Snapshot snapshot = received.get(0);
+        assertEquals(FIRST_START, snapshot.getLastPeriodStart());
+        assertEquals(1, snapshot.getEntries().size());
+        assertNotNull(snapshot.getStatistics());
+    }
+
+    /**
+     * Test Case 2: Burst of writes
+     * Given: 50 saves while the listener's executor is busy
+     * Expected: One delivery, of the snapshot after the last save
+     */
+    @Test
+    public void testBurstConflated() {
+        QueuedExecutor executor = new QueuedExecutor();
+        List<DataStorage.Snapshot> received = new ArrayList<>();
+        storage.addSnapshotListener(received::add, executor);
+        executor.drain();
+        received.clear();
+
+        for (int i = 0; i < BURST; i++) {
+            storage.savePeriodEntry(FIRST_START.plusDays(28L * i), null);
+        }
+
+        assertEquals(1, executor.tasks.size());
+        executor.drain();
+        assertEquals(1, received.size());
+        assertEquals(BURST, received.get(0).getHistory().size());
+        assertEquals(FIRST_START.plusDays(28L * (BURST - 1)), received.get(0).getLastPeriodStart());
+        assertEquals(28, received.get(0).getPredictedCycleLength());
+    }
+
+    /**
+     * Test Case 3: Several listeners
+     * Given: Two listeners on different executors, then a save
+     * Expected: Both get the same snapshot instance
+     */
+    @Test
+    public void testListenersShareSnapshot() {
+        List<DataStorage.Snapshot> first = new ArrayList<>();
+        List<DataStorage.Snapshot> second = new ArrayList<>();
+        QueuedExecutor executor = new QueuedExecutor();
+        storage.addSnapshotListener(first::add, Runnable::run);
+        storage.addSnapshotListener(second::add, executor);
+
+        storage.savePeriodEntry(FIRST_START, null);
+        executor.drain();
+
+        assertEquals(2, first.size());
+        assertEquals(1, second.size());
+        assertSame(first.get(1), second.get(0));
+    }
+
+    /**
+     * Test Case 4: Removal
+     * Given: A listener removed while a delivery is queued
+     * Expected: The queued delivery is dropped and later writes are not sent
+     */
+    @Test
+    public void testRemovedListenerNotCalled() {
+        QueuedExecutor executor = new QueuedExecutor();
+        List<DataStorage.Snapshot> received = new ArrayList<>();
+        DataStorage.SnapshotListener listener = received::add;
+        storage.addSnapshotListener(listener, executor);
+
+        storage.removeSnapshotListener(listener);
+        storage.savePeriodEntry(FIRST_START, null);
+        executor.drain();
+
+        assertTrue(received.isEmpty());
+    }
+
+    private static final class QueuedExecutor implements Executor {
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void drain() {
+            while (!tasks.isEmpty()) {
+                tasks.poll().run();
+            }
+        }
+    }
+}
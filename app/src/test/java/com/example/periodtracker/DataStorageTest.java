@@ -0,0 +1,468 @@
+package com.example.periodtracker;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.time.LocalDate;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+/**
+ * Unit tests for DataStorage on a plain JVM, with a real encrypted log
+ * Verifies that incrementally maintained state matches a full recompute
+ */
+public class DataStorageTest {
+
+    private static final LocalDate FIRST_START = LocalDate.of(2024, 1, 1);
+
+    private File logFile;
+    private SecretKey key;
+    private InMemoryPreferences preferences;
+    private DataStorage storage;
+
+    @Before
+    public void setUp() throws Exception {
+        logFile = File.createTempFile("entries", ".log");
+        logFile.delete();
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        key = generator.generateKey();
+        preferences = new InMemoryPreferences();
+        storage = new DataStorage(preferences, new EncryptedEntryLog(logFile, key));
+    }
+
+    @After
+    public void tearDown() {
+        logFile.delete();
+    }
+
+    /**
+     * Test Case 1: Deleting down to a single period
+     * Given: Two periods of 5 days, then one deleted
+     * Expected: No cycles remain, but the period average of 5 days is kept
+     */
+    @Test
+    public void testDeleteToOneEntryKeepsPeriodStatistics() {
+        storage.savePeriodEntry(FIRST_START, FIRST_START.plusDays(4));
+        storage.savePeriodEntry(FIRST_START.plusDays(28), FIRST_START.plusDays(32));
+        assertEquals(5, storage.getCycleStatistics().getAveragePeriodLength());
+
+        storage.deletePeriodEntry(FIRST_START);
+
+        assertStatisticsMatchRecompute(storage);
+        assertEquals(5, storage.getCycleStatistics().getAveragePeriodLength());
+    }
+
+    /**
+     * Test Case 2: Single deletes and range deletes
+     * Given: 40 generated periods, deleted one at a time and by range
+     * Expected: After every delete, and after reopening, the statistics
+     *           equal a full recompute of the remaining history
+     */
+    @Test
+    public void testStatisticsMatchRecomputeAfterDeletes() throws Exception {
+        EpochDayHistory generated = new SyntheticHistoryGenerator(3).setMissingEndRate(0.3).generate(40);
+        storage.importEntries(generated);
+
+        for (int i = 0; i < 10; i++) {
+            storage.deletePeriodEntry(LocalDate.ofEpochDay(generated.getStart(i * 3)));
+            assertStatisticsMatchRecompute(storage);
+        }
+        storage.deleteRange(LocalDate.ofEpochDay(generated.getStart(30)), LocalDate.ofEpochDay(generated.getLastStart()));
+        assertStatisticsMatchRecompute(storage);
+
+        EpochDayHistory remaining = storage.getEpochDayHistory();
+        for (int i = 0; i < remaining.size() - 1; i++) {
+            storage.deletePeriodEntry(LocalDate.ofEpochDay(remaining.getStart(i)));
+            assertStatisticsMatchRecompute(storage);
+        }
+
+        DataStorage reopened = new DataStorage(preferences, new EncryptedEntryLog(logFile, key));
+        assertStatisticsMatchRecompute(reopened);
+    }
+
+    /**
+     * Test Case 3: Last period start after the latest entry changes
+     * Given: Periods on 2024-01-29 and 2024-02-26
+     * Expected: The last start follows a replace, a range delete and
+     *           deleting everything, and survives reopening
+     */
+    @Test
+    public void testLastPeriodStartFollowsHistory() throws Exception {
+        LocalDate earlier = LocalDate.of(2024, 1, 29);
+        LocalDate latest = LocalDate.of(2024, 2, 26);
+        storage.savePeriodEntry(earlier, null);
+        storage.savePeriodEntry(latest, null);
+        assertEquals(latest, storage.getLastPeriodStart());
+
+        storage.replaceEntry(latest, latest.plusDays(1), null);
+        assertEquals(latest.plusDays(1), storage.getLastPeriodStart());
+
+        storage.savePeriodEntry(earlier.minusDays(28), null);
+        assertEquals(latest.plusDays(1), storage.getLastPeriodStart());
+
+        storage.deleteRange(latest, latest.plusDays(7));
+        assertEquals(earlier, storage.getLastPeriodStart());
+        DataStorage reopened = new DataStorage(preferences, new EncryptedEntryLog(logFile, key));
+        assertEquals(earlier, reopened.getLastPeriodStart());
+
+        storage.deleteRange(earlier.minusDays(28), earlier);
+        assertNull(storage.getLastPeriodStart());
+    }
+
+    /**
+     * Test Case 4: Average cycle after the last cycle is deleted
+     * Given: Periods 30 days apart, then the earlier one deleted
+     * Expected: The stored average of 30 is cleared back to the default
+     */
+    @Test
+    public void testAverageCycleClearedWithLastCycle() {
+        storage.savePeriodEntry(FIRST_START, null);
+        storage.savePeriodEntry(FIRST_START.plusDays(30), null);
+        assertEquals(30, storage.getAverageCycleLength());
+
+        storage.deletePeriodEntry(FIRST_START);
+
+        assertEquals(28, storage.getAverageCycleLength());
+    }
+
+    /**
+     * Test Case 5: Corrupt record in the log
+     * Given: 3 saved periods, the second record's ciphertext damaged,
+     *        then enough saves to trigger compaction
+     * Expected: Records after the damaged one are still replayed, and no
+     *           saved entry is lost by compaction
+     */
+    @Test
+    public void testCorruptRecordSkippedAndLogNotCompacted() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            storage.savePeriodEntry(FIRST_START.plusDays(28L * i), null);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(logFile, "rw")) {
+            // Second record: 4-byte length, 12-byte IV, then ciphertext
+            long position = logFile.length() / 3 + 20;
+            file.seek(position);
+            int value = file.read();
+            file.seek(position);
+            file.write(value ^ 0xFF);
+        }
+
+        EncryptedEntryLog log = new EncryptedEntryLog(logFile, key);
+        DataStorage reopened = new DataStorage(preferences, log);
+        assertEquals(2, reopened.getEpochDayHistory().size());
+        assertEquals(FIRST_START.plusDays(56), reopened.getLastPeriodStart());
+        assertEquals(1, log.getUnreadableRecordCount());
+        assertFalse(log.isIntact());
+
+        for (int i = 3; i < 103; i++) {
+            reopened.savePeriodEntry(FIRST_START.plusDays(28L * i), null);
+        }
+        for (int i = 3; i < 103; i++) {
+            reopened.savePeriodEntry(FIRST_START.plusDays(28L * i), FIRST_START.plusDays(28L * i + 4));
+        }
+        assertEquals(203, log.getRecordCount());
+
+        DataStorage replayed = new DataStorage(preferences, new EncryptedEntryLog(logFile, key));
+        assertEquals(102, replayed.getEpochDayHistory().size());
+    }
+
+    /**
+     * Test Case 6: Incremental backup after compaction
+     * Given: A backup, then enough rewrites of one entry to compact the log
+     * Expected: The next incremental request writes a full backup, and
+     *           restoring it gives the current history
+     */
+    @Test
+    public void testBackupAfterCompactionIsFull() throws Exception {
+        storage.savePeriodEntry(FIRST_START, null);
+        storage.writeBackup(new ByteArrayOutputStream(), false);
+        for (int i = 0; i < 100; i++) {
+            storage.updatePeriodEnd(FIRST_START, FIRST_START.plusDays(i % 2 == 0 ? 4 : 5));
+        }
+
+        ByteArrayOutputStream backup = new ByteArrayOutputStream();
+        assertEquals(BackupFormat.TYPE_FULL, storage.writeBackup(backup, true));
+
+        DataStorage restored = new DataStorage(new InMemoryPreferences(), null);
+        restored.restoreBackup(new ByteArrayInputStream(backup.toByteArray()));
+        assertEquals(storage.getPeriodEntries(), restored.getPeriodEntries());
+    }
+
+    /**
+     * Test Case 7: Import validation
+     * Given: 5 entries: one already stored, two sharing a start date,
+     *        one ending before it starts, and one new valid entry
+     * Expected: 2 imported, 2 duplicates, 1 invalid, and the invalid
+     *           range never reaches the history
+     */
+    @Test
+    public void testImportCountsDuplicatesAndInvalidRanges() {
+        int day = (int) FIRST_START.toEpochDay();
+        storage.savePeriodEntry(FIRST_START, null);
+
+        int[] starts = {day, day + 28, day + 28, day + 56, day + 84};
+        int[] ends = {EpochDayHistory.NO_END, day + 31, day + 32, day + 50, EpochDayHistory.NO_END};
+        DataStorage.ImportResult result = storage.importEntries(starts, ends, starts.length);
+
+        assertEquals(2, result.getImported());
+        assertEquals(2, result.getDuplicates());
+        assertEquals(1, result.getInvalid());
+        EpochDayHistory history = storage.getEpochDayHistory();
+        assertEquals(3, history.size());
+        assertTrue(history.indexOf(day + 56) < 0);
+        assertEquals(day + 32, history.getEnd(history.indexOf(day + 28)));
+        assertEquals(day + 28, starts[1]);
+
+        DataStorage.ImportResult fromHistory = storage.importEntries(
+                EpochDayHistory.of(new int[] {day + 112}, new int[] {day + 110}, 1));
+        assertEquals(0, fromHistory.getImported());
+        assertEquals(1, fromHistory.getInvalid());
+    }
+
+    /**
+     * Test Case 8: Calendar predictions before any cycle is logged
+     * Given: A cycle length setting of 35 and a single period
+     * Expected: The calendar and the snapshot both predict with 35 days
+     */
+    @Test
+    public void testCalendarUsesCycleLengthSettingWithoutCycles() {
+        storage.setCycleLength(35);
+        storage.savePeriodEntry(FIRST_START, null);
+        int start = (int) FIRST_START.toEpochDay();
+
+        DataStorage.Snapshot[] delivered = new DataStorage.Snapshot[1];
+        storage.addSnapshotListener(snapshot -> delivered[0] = snapshot, Runnable::run);
+        assertEquals(35, delivered[0].getPredictedCycleLength());
+        assertEquals(35, storage.newPeriodCalculator().getCycleLength());
+
+        DayPhaseIndex index = storage.getDayPhaseIndex(3);
+        assertEquals(DayPhaseIndex.PREDICTED_PERIOD, index.stateOf(start + 35) & DayPhaseIndex.PREDICTED_PERIOD);
+        assertEquals(0, index.stateOf(start + 28) & DayPhaseIndex.PREDICTED_PERIOD);
+    }
+
+    /**
+     * Test Case 9: Changing the cycle length setting
+     * Given: A calendar built with a 35-day setting, then the setting changed to 45
+     * Expected: The next calendar request predicts with 45 days
+     */
+    @Test
+    public void testCycleLengthChangeRefreshesCalendar() {
+        storage.setCycleLength(35);
+        storage.savePeriodEntry(FIRST_START, null);
+        int start = (int) FIRST_START.toEpochDay();
+        assertEquals(DayPhaseIndex.PREDICTED_PERIOD,
+                storage.getDayPhaseIndex(3).stateOf(start + 35) & DayPhaseIndex.PREDICTED_PERIOD);
+
+        storage.setCycleLength(45);
+
+        DayPhaseIndex index = storage.getDayPhaseIndex(3);
+        assertEquals(DayPhaseIndex.PREDICTED_PERIOD, index.stateOf(start + 45) & DayPhaseIndex.PREDICTED_PERIOD);
+        assertEquals(0, index.stateOf(start + 35) & DayPhaseIndex.PREDICTED_PERIOD);
+    }
+
+    /**
+     * Test Case 10: Entries ending before they start
+     * Given: A 5-day period, then a save, an end update and a replace
+     *        that would each end before the start
+     * Expected: All three are ignored and the period statistics are unchanged
+     */
+    @Test
+    public void testInvertedRangesIgnored() {
+        storage.savePeriodEntry(FIRST_START, FIRST_START.plusDays(4));
+        LocalDate second = FIRST_START.plusDays(28);
+
+        storage.savePeriodEntry(second, second.minusDays(1));
+        storage.updatePeriodEnd(FIRST_START, FIRST_START.minusDays(2));
+        storage.replaceEntry(FIRST_START, second, FIRST_START);
+
+        EpochDayHistory history = storage.getEpochDayHistory();
+        assertEquals(1, history.size());
+        assertEquals(FIRST_START.toEpochDay(), history.getStart(0));
+        assertEquals(FIRST_START.plusDays(4).toEpochDay(), history.getEnd(0));
+        assertEquals(5, storage.getCycleStatistics().getMinPeriodLength());
+        assertStatisticsMatchRecompute(storage);
+    }
+
+    /**
+     * Test Case 11: Legacy entry ending before it starts
+     * Given: A legacy entry string with "2024-03-01-2024-02-01" and a valid entry
+     * Expected: Only the valid entry is migrated
+     */
+    @Test
+    public void testLegacyInvertedRangeNotMigrated() throws Exception {
+        logFile.delete();
+        InMemoryPreferences legacyPreferences = new InMemoryPreferences();
+        legacyPreferences.edit().putString("period_entries", "2024-03-01-2024-02-01|2024-04-01").commit();
+
+        DataStorage migrated = new DataStorage(legacyPreferences, new EncryptedEntryLog(logFile, key));
+
+        EpochDayHistory history = migrated.getEpochDayHistory();
+        assertEquals(1, history.size());
+        assertEquals(LocalDate.of(2024, 4, 1).toEpochDay(), history.getStart(0));
+    }
+
+    /**
+     * Test Case 12: Repeated legacy migration
+     * Given: A legacy entry string with 3 entries and a malformed one,
+     *        opened once, opened again, then opened with the string put
+     *        back as if removing it had not been stored
+     * Expected: The string is removed after the first open, a second open
+     *           appends nothing, and migrating again keeps the same 3 entries
+     */
+    @Test
+    public void testLegacyMigrationIsIdempotent() throws Exception {
+        logFile.delete();
+        String legacy = "2024-01-01-2024-01-05|2024-01-29|bogus|2024-02-26-2024-03-01";
+        InMemoryPreferences legacyPreferences = new InMemoryPreferences();
+        legacyPreferences.edit().putString("period_entries", legacy).commit();
+
+        EncryptedEntryLog log = new EncryptedEntryLog(logFile, key);
+        DataStorage migrated = new DataStorage(legacyPreferences, log);
+        EpochDayHistory expected = migrated.getEpochDayHistory();
+        assertEquals(3, expected.size());
+        assertEquals("", legacyPreferences.getString("period_entries", ""));
+        int records = log.getRecordCount();
+
+        EncryptedEntryLog reopenedLog = new EncryptedEntryLog(logFile, key);
+        DataStorage reopened = new DataStorage(legacyPreferences, reopenedLog);
+        assertHistoryEquals(expected, reopened.getEpochDayHistory());
+        assertEquals(records, reopenedLog.getRecordCount());
+
+        legacyPreferences.edit().putString("period_entries", legacy).commit();
+        DataStorage remigrated = new DataStorage(legacyPreferences, new EncryptedEntryLog(logFile, key));
+        assertHistoryEquals(expected, remigrated.getEpochDayHistory());
+        assertStatisticsMatchRecompute(remigrated);
+        assertEquals(LocalDate.of(2024, 2, 26), remigrated.getPeriodHistory().get(0));
+    }
+
+    /**
+     * Test Case 13: CSV export and import round trip
+     * Given: 200 generated periods, some without an end, exported to CSV and
+     *        imported into empty storage, then imported again with invalid rows
+     * Expected: The import reproduces the history, with a missing end read
+     *           back as a one-day period; the second import counts every
+     *           exported row as a duplicate and each bad row as invalid
+     */
+    @Test
+    public void testCsvRoundTrip() throws Exception {
+        EpochDayHistory generated = new SyntheticHistoryGenerator(13).setMissingEndRate(0.2).generate(200);
+        storage.importEntries(generated);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        storage.exportCsv(output, null);
+        String csv = output.toString("UTF-8");
+
+        File importedLog = File.createTempFile("imported", ".log");
+        importedLog.delete();
+        try {
+            DataStorage imported = new DataStorage(new InMemoryPreferences(), new EncryptedEntryLog(importedLog, key));
+            DataStorage.ImportResult result = imported.importCsv(new StringReader(csv));
+            assertEquals(200, result.getImported());
+            assertEquals(0, result.getDuplicates());
+            assertEquals(0, result.getInvalid());
+
+            EpochDayHistory history = imported.getEpochDayHistory();
+            assertEquals(generated.size(), history.size());
+            for (int i = 0; i < generated.size(); i++) {
+                int start = generated.getStart(i);
+                int end = generated.getEnd(i) != EpochDayHistory.NO_END ? generated.getEnd(i) : start;
+                assertEquals(start, history.getStart(i));
+                assertEquals(end, history.getEnd(i));
+            }
+            assertStatisticsMatchRecompute(imported);
+
+            String extraRows = "2030-01-10,2030-01-05,1\n" + "garbage\n" + "2030-02-30,2030-03-02,2\n"
+                    + "2030-03-01,2030-03-0x,5\n" + "2030-04-01, 2030-04-04 ,4\n" + "2030-04-01,2030-04-05,5\n";
+            DataStorage.ImportResult again = imported.importCsv(new StringReader(csv + extraRows));
+            assertEquals(1, again.getImported());
+            assertEquals(201, again.getDuplicates());
+            assertEquals(4, again.getInvalid());
+            assertEquals(201, imported.getEpochDayHistory().size());
+        } finally {
+            importedLog.delete();
+        }
+    }
+
+    /**
+     * Test Case 14: Cache hit and miss counters
+     * Given: Reopened storage with 3 periods, read 4 times, written once,
+     *        then read twice more
+     * Expected: One miss for loading the history, and each later read counted
+     *           once as a hit; the write counts as neither
+     */
+    @Test
+    public void testCacheCountersCountEachReadOnce() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            storage.savePeriodEntry(FIRST_START.plusDays(28L * i), null);
+        }
+        DataStorage reopened = new DataStorage(preferences, new EncryptedEntryLog(logFile, key));
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(3, reopened.getEpochDayHistory().size());
+        }
+        assertEquals(1, reopened.getCacheMisses());
+        assertEquals(3, reopened.getCacheHits());
+
+        reopened.savePeriodEntry(FIRST_START.plusDays(84), null);
+        assertEquals(3, reopened.getCacheHits());
+        reopened.getEpochDayHistory();
+        reopened.getPeriodHistory();
+        assertEquals(1, reopened.getCacheMisses());
+        assertEquals(5, reopened.getCacheHits());
+    }
+
+    /**
+     * Test Case 15: Dates outside the epoch-day range
+     * Given: A period on 2024-01-01 and a date 2^32 days later, whose epoch
+     *        day would wrap around to 2024-01-01 in an int
+     * Expected: Saves, updates and deletes with that date change nothing, and
+     *           a range delete from the first to the last LocalDate deletes all
+     */
+    @Test
+    public void testOutOfRangeDatesIgnored() {
+        LocalDate wrapping = LocalDate.ofEpochDay(FIRST_START.toEpochDay() + (1L << 32));
+        storage.savePeriodEntry(FIRST_START, FIRST_START.plusDays(4));
+
+        storage.savePeriodEntry(wrapping, null);
+        storage.updatePeriodEnd(FIRST_START, wrapping);
+        storage.deletePeriodEntry(wrapping);
+        storage.replaceEntry(wrapping, FIRST_START.plusDays(28), null);
+        storage.replaceEntry(FIRST_START, wrapping, null);
+
+        EpochDayHistory history = storage.getEpochDayHistory();
+        assertEquals(1, history.size());
+        assertEquals(FIRST_START.toEpochDay(), history.getStart(0));
+        assertEquals(FIRST_START.plusDays(4).toEpochDay(), history.getEnd(0));
+
+        storage.savePeriodEntry(LocalDate.ofEpochDay(Integer.MAX_VALUE), null);
+        assertEquals(2, storage.getEpochDayHistory().size());
+        storage.deleteRange(LocalDate.MIN, LocalDate.MAX);
+        assertTrue(storage.getEpochDayHistory().isEmpty());
+    }
+
+    private static void assertHistoryEquals(EpochDayHistory expected, EpochDayHistory actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getStart(i), actual.getStart(i));
+            assertEquals(expected.getEnd(i), actual.getEnd(i));
+        }
+    }
+
+    private static void assertStatisticsMatchRecompute(DataStorage storage) {
+        PeriodCalculator.CycleStatistics actual = storage.getCycleStatistics();
+        PeriodCalculator.CycleStatistics expected =
+                PeriodCalculator.calculateCycleStatistics(storage.getEpochDayHistory());
+        assertEquals(expected.getAverageCycleLength(), actual.getAverageCycleLength());
+        assertEquals(expected.getMinCycleLength(), actual.getMinCycleLength());
+        assertEquals(expected.getMaxCycleLength(), actual.getMaxCycleLength());
+        assertEquals(expected.getAveragePeriodLength(), actual.getAveragePeriodLength());
+        assertEquals(expected.getMinPeriodLength(), actual.getMinPeriodLength());
+        assertEquals(expected.getMaxPeriodLength(), actual.getMaxPeriodLength());
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.periodtracker;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Unit tests for DayPhaseIndex
+ * Verifies incremental adds and removes, growth of the bitsets, and every
+ * query against a recompute from the history and forecast
+ */
+public class DayPhaseIndexTest {
+
+    private static final int START = (int) LocalDate.of(2024, 1, 1).toEpochDay();
+
+    /**
+     * Test Case 1: Removing an entry that overlaps its predecessor
+     * Given: An entry over days 0-10 and a later one over days 5-7
+     * Expected: After removing the later entry, days 0-10 are still logged
+     */
+    @Test
+    public void testRemoveEntryOverlappingPredecessor() {
+        EpochDayHistory history = EpochDayHistory.of(
+                new int[] {START, START + 5}, new int[] {START + 10, START + 7}, 2);
+        DayPhaseIndex index = DayPhaseIndex.build(history, null);
+
+        EpochDayHistory remaining = history.withoutStart(START + 5);
+        index.removeLoggedEntry(START + 5, START + 7, remaining);
+
+        assertMatchesRecompute(index, remaining, null, START - 70, START + 70);
+        assertEquals(11, index.countDays(DayPhaseIndex.LOGGED_PERIOD, START - 70, START + 70));
+    }
+
+    /**
+     * Test Case 2: Removing an entry that overlaps its successor
+     * Given: An entry over days 0-10 and a later one over days 8-12
+     * Expected: After removing the earlier entry, only days 8-12 are logged
+     */
+    @Test
+    public void testRemoveEntryOverlappingSuccessor() {
+        EpochDayHistory history = EpochDayHistory.of(
+                new int[] {START, START + 8}, new int[] {START + 10, START + 12}, 2);
+        DayPhaseIndex index = DayPhaseIndex.build(history, null);
+
+        EpochDayHistory remaining = history.withoutStart(START);
+        index.removeLoggedEntry(START, START + 10, remaining);
+
+        assertMatchesRecompute(index, remaining, null, START - 70, START + 70);
+        assertEquals(5, index.countDays(DayPhaseIndex.LOGGED_PERIOD, START - 70, START + 70));
+    }
+
+    /**
+     * Test Case 3: Growth across word boundaries
+     * Given: An entry spanning a 64-day word boundary, then entries added
+     *        several words before and after it, one spanning two boundaries
+     * Expected: Every day keeps its state as the bitsets grow in both directions
+     */
+    @Test
+    public void testGrowsAcrossWordBoundaries() {
+        int boundary = (START >> 6 << 6) + 64;
+        DayPhaseIndex index = DayPhaseIndex.build(EpochDayHistory.EMPTY, null);
+        EpochDayHistory history = EpochDayHistory.EMPTY;
+
+        int[][] entries = {
+                {boundary - 2, boundary + 2},
+                {boundary - 64 * 5 - 1, boundary - 64 * 5},
+                {boundary + 64 * 7 - 1, EpochDayHistory.NO_END},
+                {boundary + 64 * 9 - 3, boundary + 64 * 11 + 3},
+                {boundary - 64 * 20, boundary - 64 * 20 + 63},
+        };
+        for (int[] entry : entries) {
+            index.addLoggedEntry(entry[0], entry[1]);
+            history = history.withEntry(entry[0], entry[1]);
+            assertMatchesRecompute(index, history, null, boundary - 64 * 22, boundary + 64 * 13);
+        }
+        assertEquals(0, index.stateOf(boundary - 64 * 100));
+        assertEquals(0, index.stateOf(boundary + 64 * 100));
+    }
+
+    /**
+     * Test Case 4: Random edits against a recompute
+     * Given: 60 generated periods, some without an end, edited by random
+     *        saves, end changes and deletes, with a forecast replaced each time
+     * Expected: After every edit, stateOf() and countDays() equal a
+     *           recompute from the history and forecast
+     */
+    @Test
+    public void testStateOfMatchesRecompute() {
+        EpochDayHistory history = new SyntheticHistoryGenerator(5).setMissingEndRate(0.2).generate(60);
+        CycleForecast forecast = new CycleForecast();
+        DayPhaseIndex index = DayPhaseIndex.build(history, null);
+        Random random = new Random(17);
+        int first = history.getFirstStart() - 30;
+        int last = history.getLastStart() + 30;
+
+        for (int edit = 0; edit < 200; edit++) {
+            if (random.nextBoolean() || history.isEmpty()) {
+                int start = first + random.nextInt(last - first);
+                int end = random.nextInt(4) == 0 ? EpochDayHistory.NO_END : start + random.nextInt(12);
+                int existing = history.indexOf(start);
+                EpochDayHistory previous = history;
+                history = history.withEntry(start, end);
+                if (existing >= 0) {
+                    index.removeLoggedEntry(start, previous.getEnd(existing), history);
+                } else {
+                    index.addLoggedEntry(start, end);
+                }
+            } else {
+                int position = random.nextInt(history.size());
+                int start = history.getStart(position);
+                int end = history.getEnd(position);
+                history = history.withoutStart(start);
+                index.removeLoggedEntry(start, end, history);
+            }
+
+            new PeriodCalculator(history, 26 + random.nextInt(8)).fillForecast(forecast, 1 + random.nextInt(6), 5);
+            index.setForecast(forecast);
+            assertMatchesRecompute(index, history, forecast, first - 70, last + 300);
+        }
+    }
+
+    /**
+     * Check every day in [from, to] and the day counts of every state
+     * against a recompute
+     */
+    private static void assertMatchesRecompute(DayPhaseIndex index, EpochDayHistory history,
+                                               CycleForecast forecast, int from, int to) {
+        int[] counts = new int[4];
+        for (int day = from; day <= to; day++) {
+            int expected = expectedState(history, forecast, day);
+            assertEquals("day " + day, expected, index.stateOf(day));
+            for (int layer = 0; layer < 4; layer++) {
+                if ((expected & (1 << layer)) != 0) {
+                    counts[layer]++;
+                }
+            }
+        }
+        for (int layer = 0; layer < 4; layer++) {
+            assertEquals("state " + (1 << layer), counts[layer], index.countDays(1 << layer, from, to));
+        }
+    }
+
+    private static int expectedState(EpochDayHistory history, CycleForecast forecast, int day) {
+        int state = 0;
+        for (int i = 0; i < history.size(); i++) {
+            int start = history.getStart(i);
+            int end = history.getEnd(i) == EpochDayHistory.NO_END ? start : history.getEnd(i);
+            if (day >= start && day <= end) {
+                state |= DayPhaseIndex.LOGGED_PERIOD;
+            }
+        }
+        if (forecast != null) {
+            for (int cycle = 0; cycle < forecast.getCycleCount(); cycle++) {
+                if (cycle > 0 && day >= forecast.getPeriodStart(cycle) && day <= forecast.getPeriodEnd(cycle)) {
+                    state |= DayPhaseIndex.PREDICTED_PERIOD;
+                }
+                if (day >= forecast.getFertileStart(cycle) && day <= forecast.getFertileEnd(cycle)) {
+                    state |= DayPhaseIndex.FERTILE;
+                }
+                if (day == forecast.getOvulationDay(cycle)) {
+                    state |= DayPhaseIndex.OVULATION;
+                }
+            }
+        }
+        return state;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.periodtracker;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+/**
+ * Unit tests for EncryptedEntryLog
+ * Verifies that records are bound to their position and that logs in the
+ * old format are moved over only when every record can be read
+ */
+public class EncryptedEntryLogTest {
+
+    private static final int START = 19_700;
+
+    private File logFile;
+    private File legacyFile;
+    private SecretKey key;
+
+    @Before
+    public void setUp() throws Exception {
+        logFile = File.createTempFile("entries", ".log");
+        logFile.delete();
+        legacyFile = File.createTempFile("legacy", ".log");
+        legacyFile.delete();
+        key = newKey();
+    }
+
+    @After
+    public void tearDown() {
+        logFile.delete();
+        legacyFile.delete();
+    }
+
+    /**
+     * Test Case 1: Reordered records
+     * Given: Two appended records whose positions in the file are swapped
+     * Expected: Neither record is replayed, both are counted as unreadable
+     */
+    @Test
+    public void testSwappedRecordsAreUnreadable() throws Exception {
+        EncryptedEntryLog log = new EncryptedEntryLog(logFile, key);
+        log.append(EncryptedEntryLog.OP_SAVE, START, START + 4);
+        log.append(EncryptedEntryLog.OP_SAVE, START + 28, EncryptedEntryLog.NO_END);
+
+        int recordLength = (int) (logFile.length() / 2);
+        byte[] first = new byte[recordLength];
+        byte[] second = new byte[recordLength];
+        try (RandomAccessFile file = new RandomAccessFile(logFile, "rw")) {
+            file.readFully(first);
+            file.readFully(second);
+            file.seek(0);
+            file.write(second);
+            file.write(first);
+        }
+
+        EncryptedEntryLog reopened = new EncryptedEntryLog(logFile, key);
+        List<int[]> replayed = replay(reopened);
+        assertTrue(replayed.isEmpty());
+        assertEquals(2, reopened.getUnreadableRecordCount());
+        assertEquals(2, reopened.getRecordCount());
+    }
+
+    /**
+     * Test Case 2: Records after a rewrite
+     * Given: Appends, a rewrite to fewer records, then another append
+     * Expected: Every record replays in order, so positions restart at the rewrite
+     */
+    @Test
+    public void testAppendAfterRewrite() throws Exception {
+        EncryptedEntryLog log = new EncryptedEntryLog(logFile, key);
+        for (int i = 0; i < 3; i++) {
+            log.append(EncryptedEntryLog.OP_SAVE, START + 28 * i, EncryptedEntryLog.NO_END);
+        }
+        log.rewrite(Arrays.asList(new EncryptedEntryLog.Record(EncryptedEntryLog.OP_SAVE, START, START + 4)));
+        log.append(EncryptedEntryLog.OP_DELETE, START, EncryptedEntryLog.NO_END);
+
+        EncryptedEntryLog reopened = new EncryptedEntryLog(logFile, key);
+        List<int[]> replayed = replay(reopened);
+        assertEquals(2, replayed.size());
+        assertArrayEquals(new int[] {EncryptedEntryLog.OP_SAVE, START, START + 4}, replayed.get(0));
+        assertArrayEquals(new int[] {EncryptedEntryLog.OP_DELETE, START, EncryptedEntryLog.NO_END}, replayed.get(1));
+        assertTrue(reopened.isIntact());
+    }
+
+    /**
+     * Test Case 3: Migration of an old-format log
+     * Given: 3 records sealed with another key and no position binding
+     * Expected: The records replay from the new log in order, under the
+     *           new key, and the old file is deleted
+     */
+    @Test
+    public void testMigrateLegacyLog() throws Exception {
+        SecretKey legacyKey = newKey();
+        writeLegacyLog(legacyKey, START, START + 28, START + 56);
+
+        EncryptedEntryLog log = new EncryptedEntryLog(logFile, key);
+        log.migrateLegacyLog(legacyFile, legacyKey);
+
+        assertFalse(legacyFile.exists());
+        List<int[]> replayed = replay(new EncryptedEntryLog(logFile, key));
+        assertEquals(3, replayed.size());
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(new int[] {EncryptedEntryLog.OP_SAVE, START + 28 * i, EncryptedEntryLog.NO_END},
+                    replayed.get(i));
+        }
+    }
+
+    /**
+     * Test Case 4: Old-format log with an unreadable record
+     * Given: An old-format log opened with the wrong key
+     * Expected: GeneralSecurityException; the old file is kept and no new log is written
+     */
+    @Test
+    public void testLegacyLogWithUnreadableRecordsIsKept() throws Exception {
+        writeLegacyLog(newKey(), START, START + 28);
+
+        EncryptedEntryLog log = new EncryptedEntryLog(logFile, key);
+        try {
+            log.migrateLegacyLog(legacyFile, newKey());
+            fail("Expected GeneralSecurityException");
+        } catch (GeneralSecurityException expected) {
+            // Old records stay where a later launch can retry them
+        }
+
+        assertTrue(legacyFile.exists());
+        assertFalse(logFile.exists());
+    }
+
+    private static SecretKey newKey() throws GeneralSecurityException {
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        return generator.generateKey();
+    }
+
+    /**
+     * Write saves without an end in the format used before records were
+     * bound to their position
+     */
+    private void writeLegacyLog(SecretKey legacyKey, int... starts) throws IOException, GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(legacyFile))) {
+            for (int start : starts) {
+                byte[] plaintext = ByteBuffer.allocate(9)
+                        .put(EncryptedEntryLog.OP_SAVE)
+                        .putInt(start)
+                        .putInt(EncryptedEntryLog.NO_END)
+                        .array();
+                cipher.init(Cipher.ENCRYPT_MODE, legacyKey);
+                byte[] iv = cipher.getIV();
+                byte[] ciphertext = cipher.doFinal(plaintext);
+                out.writeInt(iv.length + ciphertext.length);
+                out.write(iv);
+                out.write(ciphertext);
+            }
+        }
+    }
+
+    private static List<int[]> replay(EncryptedEntryLog log) throws IOException, GeneralSecurityException {
+        List<int[]> records = new ArrayList<>();
+        log.replay((op, startEpochDay, endEpochDay) -> records.add(new int[] {op, startEpochDay, endEpochDay}));
+        return records;
+    }
+}
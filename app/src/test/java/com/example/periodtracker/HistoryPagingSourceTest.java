@@ -0,0 +1,101 @@
+package com.example.periodtracker;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.LocalDate;
+
+/**
+ * Unit Tests for HistoryPagingSource
+ * Verifies row order, precomputed row values, page boundaries and the
+ * bound on pages held in memory
+ */
+public class HistoryPagingSourceTest {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int MAX_PAGES = 3;
+
+    /**
+     * Test Case 1: Rows of a small history
+     * Given: Starts 2024-01-01, 2024-01-29 (ends 2024-02-02), 2024-02-28
+     * Expected: Most recent first; the last cycle is unfinished (0),
+     *           earlier rows carry their cycle length and duration
+     */
+    @Test
+    public void testRowsMostRecentFirst() {
+        LocalDate first = LocalDate.of(2024, 1, 1);
+        LocalDate second = LocalDate.of(2024, 1, 29);
+        LocalDate third = LocalDate.of(2024, 2, 28);
+        EpochDayHistory history = EpochDayHistory.of(
+                new int[] {(int) third.toEpochDay(), (int) first.toEpochDay(), (int) second.toEpochDay()},
+                new int[] {EpochDayHistory.NO_END, EpochDayHistory.NO_END, (int) second.plusDays(4).toEpochDay()},
+                3);
+        HistoryPagingSource source = new HistoryPagingSource(history, PAGE_SIZE, MAX_PAGES);
+
+        assertEquals(3, source.getCount());
+        HistoryPagingSource.Page page = source.getPageFor(0);
+        assertEquals(3, page.size());
+
+        assertEquals(third.toEpochDay(), page.getStartEpochDay(0));
+        assertEquals(0, page.getCycleLength(0));
+        assertEquals(0, page.getDuration(0));
+
+        assertEquals(second.toEpochDay(), page.getStartEpochDay(1));
+        assertEquals(30, page.getCycleLength(1));
+        assertEquals(5, page.getDuration(1));
+
+        assertEquals(first.toEpochDay(), page.getStartEpochDay(2));
+        assertEquals(EpochDayHistory.NO_END, page.getEndEpochDay(2));
+        assertEquals(28, page.getCycleLength(2));
+    }
+
+    /**
+     * Test Case 2: Page boundaries
+     * Given: 25 entries, pages of 10
+     * Expected: Rows match the history at every position; the last page has 5 rows
+     */
+    @Test
+    public void testPageBoundaries() {
+        EpochDayHistory history = new SyntheticHistoryGenerator(7).generate(25);
+        HistoryPagingSource source = new HistoryPagingSource(history, PAGE_SIZE, MAX_PAGES);
+
+        for (int position = 0; position < source.getCount(); position++) {
+            HistoryPagingSource.Page page = source.getPageFor(position);
+            int index = history.size() - 1 - position;
+            assertEquals(position / PAGE_SIZE * PAGE_SIZE, page.getFirstPosition());
+            assertEquals(history.getStart(index), page.getStartEpochDay(position));
+            assertEquals(history.getEnd(index), page.getEndEpochDay(position));
+        }
+        assertEquals(5, source.getPageFor(24).size());
+    }
+
+    /**
+     * Test Case 3: Bounded memory
+     * Given: 10 000 entries scrolled through from top to bottom
+     * Expected: At most 3 pages are held, and a held page is reused
+     */
+    @Test
+    public void testLoadedPagesBounded() {
+        EpochDayHistory history = new SyntheticHistoryGenerator(11).generate(10_000);
+        HistoryPagingSource source = new HistoryPagingSource(history, PAGE_SIZE, MAX_PAGES);
+
+        for (int position = 0; position < source.getCount(); position++) {
+            source.getPageFor(position);
+            assertTrue(source.getLoadedPageCount() <= MAX_PAGES);
+        }
+
+        HistoryPagingSource.Page last = source.getPageFor(source.getCount() - 1);
+        assertSame(last, source.getPageFor(source.getCount() - PAGE_SIZE));
+        assertNotSame(last, source.getPageFor(0));
+    }
+
+    /**
+     * Test Case 4: Out-of-range position
+     * Given: Empty history
+     * Expected: IndexOutOfBoundsException
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testPositionOutOfRange() {
+        new HistoryPagingSource(EpochDayHistory.EMPTY).getPageFor(0);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.periodtracker;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.LocalDate;
+import java.time.Year;
+
+/**
+ * Unit tests for LegacyEntryParser and PeriodCalculator.isValidDate
+ * Verifies the allocation-free date scanner against java.time, and that
+ * malformed entries are skipped and counted
+ */
+public class LegacyEntryParserTest {
+
+    /**
+     * Test Case 1: Valid dates
+     * Given: Leap days, month ends, and the first and last days of years 0 and 9999
+     * Expected: The same epoch day as LocalDate.parse()
+     */
+    @Test
+    public void testParseIsoDateMatchesLocalDate() {
+        String[] dates = {
+                "2024-02-29", "2000-02-29", "2023-02-28", "1900-02-28", "2024-12-31", "2024-01-01",
+                "1970-01-01", "1969-12-31", "0000-01-01", "0000-02-29", "0000-12-31",
+                "0001-01-01", "9999-01-01", "9999-12-31"};
+        for (String date : dates) {
+            assertEquals(date, LocalDate.parse(date).toEpochDay(), LegacyEntryParser.parseIsoDate(date, 0));
+        }
+    }
+
+    /**
+     * Test Case 2: Invalid and malformed dates
+     * Given: Non-existent leap days and month days, out-of-range months,
+     *        wrong separators, non-digits, short text and a bad offset
+     * Expected: INVALID_DATE for each, without an exception
+     */
+    @Test
+    public void testParseIsoDateRejectsInvalid() {
+        String[] dates = {
+                "2023-02-29", "1900-02-29", "2100-02-29", "2024-04-31", "2024-01-32", "2024-01-00",
+                "2024-00-10", "2024-13-01", "2024/01/01", "2024-01/01", "20240-1-01", "2024-1-01",
+                "abcd-ef-gh", "2024-0a-01", "-024-01-01", "+2024-01-0", "2024-01-0", "", " 2024-01-01"};
+        for (String date : dates) {
+            assertEquals(date, LegacyEntryParser.INVALID_DATE, LegacyEntryParser.parseIsoDate(date, 0));
+        }
+        assertEquals(LegacyEntryParser.INVALID_DATE, LegacyEntryParser.parseIsoDate("2024-01-01", -1));
+        assertEquals(LegacyEntryParser.INVALID_DATE, LegacyEntryParser.parseIsoDate("2024-01-01", 1));
+        assertEquals(LocalDate.of(2024, 1, 1).toEpochDay(), LegacyEntryParser.parseIsoDate("x,2024-01-01", 2));
+    }
+
+    /**
+     * Test Case 3: Date validation without exceptions
+     * Given: Days, months and years at and past their limits
+     * Expected: Valid exactly when LocalDate.of() accepts them
+     */
+    @Test
+    public void testIsValidDateMatchesLocalDate() {
+        int[][] dates = {
+                {29, 2, 2024}, {29, 2, 2023}, {29, 2, 1900}, {29, 2, 2000}, {29, 2, 0}, {30, 2, 2024},
+                {31, 4, 2024}, {30, 4, 2024}, {31, 12, 9999}, {1, 1, 0}, {0, 1, 2024}, {32, 1, 2024},
+                {1, 0, 2024}, {1, 13, 2024}, {-1, 1, 2024}, {1, -1, 2024},
+                {1, 1, Year.MIN_VALUE}, {1, 1, Year.MIN_VALUE - 1}, {31, 12, Year.MAX_VALUE},
+                {1, 1, Year.MAX_VALUE + 1}, {1, 1, Integer.MIN_VALUE}, {1, 1, Integer.MAX_VALUE}};
+        for (int[] date : dates) {
+            boolean expected;
+            try {
+                LocalDate.of(date[2], date[1], date[0]);
+                expected = true;
+            } catch (RuntimeException e) {
+                expected = false;
+            }
+            assertEquals(date[0] + "/" + date[1] + "/" + date[2],
+                    expected, PeriodCalculator.isValidDate(date[0], date[1], date[2]));
+        }
+    }
+
+    /**
+     * Test Case 4: Entry strings with malformed entries
+     * Given: Entries with and without ends, empty entries, and bogus tokens
+     * Expected: Valid entries are kept, empty ones ignored, and each
+     *           malformed one counted once
+     */
+    @Test
+    public void testParseSkipsAndCountsMalformedEntries() {
+        LegacyEntryParser parser = new LegacyEntryParser();
+        EpochDayHistory history = parser.parse(
+                "2024-01-01|2024-01-29-2024-02-02||2024-02-30|garbage|2024-03-01-2024-02-01"
+                        + "|2024-03-26x2024-03-30|2024-03-26-2024-03-3|2024-04-22-|2024-05-20|");
+
+        assertEquals(6, parser.getErrorCount());
+        assertEquals(3, history.size());
+        assertEntry(history, 0, "2024-01-01", null);
+        assertEntry(history, 1, "2024-01-29", "2024-02-02");
+        assertEntry(history, 2, "2024-05-20", null);
+    }
+
+    /**
+     * Test Case 5: Repeated start dates and reuse of the parser
+     * Given: The same start saved twice, then an empty string parsed
+     * Expected: The later entry wins, and the second parse resets the error count
+     */
+    @Test
+    public void testParseRepeatedStartsAndReset() {
+        LegacyEntryParser parser = new LegacyEntryParser();
+        EpochDayHistory history = parser.parse("2024-01-01|bad|2024-01-01-2024-01-05");
+        assertEquals(1, parser.getErrorCount());
+        assertEquals(1, history.size());
+        assertEntry(history, 0, "2024-01-01", "2024-01-05");
+
+        assertSame(EpochDayHistory.EMPTY, parser.parse(""));
+        assertEquals(0, parser.getErrorCount());
+        assertSame(EpochDayHistory.EMPTY, parser.parse(null));
+    }
+
+    /**
+     * Test Case 6: Generated legacy strings
+     * Given: 500 entries written in the legacy format
+     * Expected: Every entry parses with no errors
+     */
+    @Test
+    public void testParseGeneratedEntries() {
+        LegacyEntryParser parser = new LegacyEntryParser();
+        EpochDayHistory history = parser.parse(new SyntheticHistoryGenerator(21).generateLegacyEntries(500));
+
+        assertEquals(0, parser.getErrorCount());
+        assertEquals(500, history.size());
+    }
+
+    private static void assertEntry(EpochDayHistory history, int index, String start, String end) {
+        assertEquals(LocalDate.parse(start).toEpochDay(), history.getStart(index));
+        assertEquals(end != null ? LocalDate.parse(end).toEpochDay() : EpochDayHistory.NO_END, history.getEnd(index));
+    }
+}
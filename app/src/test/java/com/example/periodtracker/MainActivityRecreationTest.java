@@ -0,0 +1,122 @@
+package com.example.periodtracker;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Looper;
+import android.view.View;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.core.app.ApplicationProvider;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Robolectric tests for MainActivity recreation
+ * Verifies that storage is opened once per process and that a recreated
+ * activity rebinds to retained state without reading storage again
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MainActivityRecreationTest {
+
+    private static final int RECREATIONS = 3;
+
+    private PeriodTrackerApplication application;
+
+    @Before
+    public void setUp() {
+        application = ApplicationProvider.getApplicationContext();
+        Metrics.reset();
+        Metrics.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+    }
+
+    /**
+     * Test Case 1: Storage initialization across recreations
+     * Given: MainActivity launched, then recreated 3 times
+     * Expected: StorageInitializer.open() ran exactly once
+     */
+    @Test
+    public void testStorageOpenedOnce() throws Exception {
+        try (ActivityScenario<MainActivity> scenario = ActivityScenario.launch(MainActivity.class)) {
+            awaitStorage();
+            for (int i = 0; i < RECREATIONS; i++) {
+                scenario.recreate();
+                awaitStorage();
+            }
+
+            assertEquals(1, Metrics.STORAGE_OPEN.getCount());
+        }
+    }
+
+    /**
+     * Test Case 2: Retained ViewModel and repository
+     * Given: MainActivity recreated
+     * Expected: The new activity gets the same ViewModel, repository and storage
+     */
+    @Test
+    public void testViewModelRetained() throws Exception {
+        try (ActivityScenario<MainActivity> scenario = ActivityScenario.launch(MainActivity.class)) {
+            awaitStorage();
+            AtomicReference<PeriodViewModel> before = new AtomicReference<>();
+            scenario.onActivity(activity -> before.set(new ViewModelProvider(activity).get(PeriodViewModel.class)));
+
+            scenario.recreate();
+
+            scenario.onActivity(activity -> {
+                PeriodViewModel after = new ViewModelProvider(activity).get(PeriodViewModel.class);
+                assertSame(before.get(), after);
+                assertSame(application.getRepository(), after.getRepository());
+                assertSame(before.get().getRepository().getStorage(), after.getRepository().getStorage());
+            });
+        }
+    }
+
+    /**
+     * Test Case 3: Rebinding without storage reads
+     * Given: A stored period, MainActivity showing its prediction
+     * Expected: After recreation the prediction is shown again at once,
+     *           with no history or statistics read from storage
+     */
+    @Test
+    public void testRecreationReadsNothing() throws Exception {
+        PeriodRepository repository = application.getRepository();
+        repository.savePeriodEntry(LocalDate.now().minusDays(10), LocalDate.now().minusDays(5))
+                .get(5, TimeUnit.SECONDS);
+
+        try (ActivityScenario<MainActivity> scenario = ActivityScenario.launch(MainActivity.class)) {
+            awaitStorage();
+            scenario.onActivity(activity ->
+                    assertEquals(View.VISIBLE, activity.findViewById(R.id.resultCard).getVisibility()));
+
+            long historyReads = Metrics.STORAGE_GET_HISTORY.getCount();
+            long statisticsReads = Metrics.STORAGE_GET_STATISTICS.getCount();
+
+            scenario.recreate();
+
+            scenario.onActivity(activity ->
+                    assertEquals(View.VISIBLE, activity.findViewById(R.id.resultCard).getVisibility()));
+            assertEquals(historyReads, Metrics.STORAGE_GET_HISTORY.getCount());
+            assertEquals(statisticsReads, Metrics.STORAGE_GET_STATISTICS.getCount());
+        }
+    }
+
+    /**
+     * Wait for storage to open on its I/O thread, then run the UI callbacks
+     */
+    private void awaitStorage() throws Exception {
+        application.getRepository().ready().get(5, TimeUnit.SECONDS);
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.periodtracker;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+import javax.crypto.KeyGenerator;
+
+/**
+ * Unit tests for Metrics
+ * Verifies histogram buckets and percentiles against exact values, and that
+ * nothing is recorded while metrics are off
+ */
+public class MetricsTest {
+
+    @Before
+    public void setUp() {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+    }
+
+    /**
+     * Test Case 1: Bucket bounds
+     * Given: Every value below 2^16, and random values up to 2^40
+     * Expected: Each value lies in its bucket, buckets are exact below 32
+     *           and at most 1/16 of their lowest value wide above it, and
+     *           negative and oversized values go to the first and last bucket
+     */
+    @Test
+    public void testBucketBounds() {
+        Random random = new Random(19);
+        long[] values = new long[(1 << 16) + 100_000];
+        for (int i = 0; i < 1 << 16; i++) {
+            values[i] = i;
+        }
+        for (int i = 1 << 16; i < values.length; i++) {
+            values[i] = random.nextLong() >>> (24 + random.nextInt(40));
+        }
+
+        for (int i = 0; i < values.length; i++) {
+            long value = values[i];
+            int index = Metrics.bucketIndex(value);
+            long lowest = Metrics.bucketLowestValue(index);
+            long next = Metrics.bucketLowestValue(index + 1);
+            assertTrue("value " + value, lowest <= value && value < next);
+            if (value < 32) {
+                assertEquals(value, lowest);
+                assertEquals(value + 1, next);
+            } else {
+                assertTrue("value " + value, next - lowest <= lowest / 16);
+            }
+            if (i > 0 && i < 1 << 16) {
+                assertTrue("value " + value, index >= Metrics.bucketIndex(value - 1));
+            }
+        }
+
+        int last = Metrics.bucketIndex((1L << 40) - 1);
+        assertEquals(0, Metrics.bucketIndex(-5));
+        assertEquals(last, Metrics.bucketIndex(1L << 40));
+        assertEquals(last, Metrics.bucketIndex(Long.MAX_VALUE));
+    }
+
+    /**
+     * Test Case 2: Percentiles against sorted values
+     * Given: 20,000 values spread over six orders of magnitude
+     * Expected: Count, mean and maximum are exact; each percentile is at
+     *           or above the exact one by no more than a bucket width
+     */
+    @Test
+    public void testPercentilesWithinBucketWidth() {
+        Metrics.setEnabled(true);
+        Metrics.Histogram histogram = Metrics.HISTORY_ENTRIES;
+        Random random = new Random(7);
+        long[] values = new long[20_000];
+        long sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * 14);
+            sum += values[i];
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, histogram.getCount());
+        assertEquals((double) sum / values.length, histogram.getMean(), 1e-6);
+        assertEquals(values[values.length - 1], histogram.getMax());
+        for (double fraction : new double[] {0.0001, 0.1, 0.5, 0.9, 0.99, 0.999, 1}) {
+            long exact = values[(int) Math.ceil(fraction * values.length) - 1];
+            long percentile = histogram.getPercentile(fraction);
+            assertTrue(fraction + ": " + percentile + " < " + exact, percentile >= exact);
+            assertTrue(fraction + ": " + percentile + " > " + exact, percentile - exact <= exact / 16);
+        }
+        assertEquals(histogram.getMax(), histogram.getPercentile(1));
+    }
+
+    /**
+     * Test Case 3: Metrics off by default
+     * Given: Metrics never enabled, then storage writes and reads, direct
+     *        records, and a timer stopped with a start taken while off
+     * Expected: start() does not read the clock, nothing is recorded, and
+     *           the dump lists no metrics
+     */
+    @Test
+    public void testDisabledRecordsNothing() throws Exception {
+        assertFalse(Metrics.isEnabled());
+        assertEquals(0, Metrics.start());
+
+        File logFile = File.createTempFile("entries", ".log");
+        logFile.delete();
+        try {
+            KeyGenerator generator = KeyGenerator.getInstance("AES");
+            generator.init(256);
+            DataStorage storage = new DataStorage(new InMemoryPreferences(),
+                    new EncryptedEntryLog(logFile, generator.generateKey()));
+            storage.savePeriodEntry(LocalDate.of(2024, 1, 1), null);
+            storage.savePeriodEntry(LocalDate.of(2024, 1, 29), null);
+            storage.getCycleStatistics();
+            storage.newPeriodCalculator().getNextPeriodDate();
+            storage.exportDataAsCSV();
+        } finally {
+            logFile.delete();
+        }
+
+        long start = Metrics.start();
+        Metrics.setEnabled(true);
+        Metrics.STORAGE_COMMIT.stop(start);
+        Metrics.setEnabled(false);
+        Metrics.HISTORY_ENTRIES.record(12);
+        Metrics.LOG_BYTES_WRITTEN.add(100);
+
+        assertEquals(0, Metrics.STORAGE_COMMIT.getCount());
+        assertEquals(0, Metrics.HISTORY_ENTRIES.getCount());
+        assertEquals(0, Metrics.LOG_BYTES_WRITTEN.get());
+        assertEquals(0, Metrics.LOG_RECORDS_ENCRYPTED.get());
+        assertEquals("Metrics disabled\n", Metrics.dump());
+    }
+
+    /**
+     * Test Case 4: Recording while on, then turning off and resetting
+     * Given: A timed storage write and a counter increment while on
+     * Expected: Both are recorded and dumped, kept after turning metrics
+     *           off, and cleared by reset()
+     */
+    @Test
+    public void testEnabledRecordsUntilReset() throws Exception {
+        Metrics.setEnabled(true);
+        File logFile = File.createTempFile("entries", ".log");
+        logFile.delete();
+        try {
+            KeyGenerator generator = KeyGenerator.getInstance("AES");
+            generator.init(256);
+            DataStorage storage = new DataStorage(new InMemoryPreferences(),
+                    new EncryptedEntryLog(logFile, generator.generateKey()));
+            storage.savePeriodEntry(LocalDate.of(2024, 1, 1), null);
+        } finally {
+            logFile.delete();
+        }
+        Metrics.SNAPSHOTS_CONFLATED.increment();
+        Metrics.setEnabled(false);
+
+        assertEquals(1, Metrics.STORAGE_COMMIT.getCount());
+        assertTrue(Metrics.STORAGE_COMMIT.getMax() > 0);
+        assertEquals(1, Metrics.LOG_RECORDS_ENCRYPTED.get());
+        assertEquals(1, Metrics.SNAPSHOTS_CONFLATED.get());
+        String dump = Metrics.dump();
+        assertTrue(dump, dump.contains("storage.commit n=1 "));
+        assertTrue(dump, dump.contains("storage.snapshots_conflated 1\n"));
+
+        Metrics.reset();
+        assertEquals(0, Metrics.STORAGE_COMMIT.getCount());
+        assertEquals(0, Metrics.STORAGE_COMMIT.getMax());
+        assertEquals(0, Metrics.SNAPSHOTS_CONFLATED.get());
+        assertEquals("Metrics disabled\n", Metrics.dump());
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.periodtracker;
 
-import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDate;
-import java.time.YearMonth;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
 
 /**
  * Unit Tests for PeriodCalculator
@@ -13,12 +17,7 @@ import java.time.YearMonth;
  */
 public class PeriodCalculatorTest {
 
-    private PeriodCalculator calculator;
-
-    @Before
-    public void setUp() {
-        calculator = new PeriodCalculator();
-    }
+    private static final int START = (int) LocalDate.of(2024, 1, 1).toEpochDay();
 
     /**
      * Test Case 1: Basic 28-day cycle prediction
@@ -30,7 +29,7 @@ public class PeriodCalculatorTest {
         LocalDate lastPeriodStart = LocalDate.of(2026, 1, 15);
         int cycleLength = 28;
 
-        LocalDate nextPeriod = calculator.getNextPeriodDate(lastPeriodStart, cycleLength);
+        LocalDate nextPeriod = nextPeriodDate(lastPeriodStart, cycleLength);
 
         assertEquals(LocalDate.of(2026, 2, 12), nextPeriod);
     }
@@ -45,7 +44,7 @@ public class PeriodCalculatorTest {
         LocalDate lastPeriodStart = LocalDate.of(2024, 1, 15);
         int cycleLength = 28;
 
-        LocalDate nextPeriod = calculator.getNextPeriodDate(lastPeriodStart, cycleLength);
+        LocalDate nextPeriod = nextPeriodDate(lastPeriodStart, cycleLength);
 
         assertEquals(LocalDate.of(2024, 2, 12), nextPeriod);
     }
@@ -60,7 +59,7 @@ public class PeriodCalculatorTest {
         LocalDate lastPeriodStart = LocalDate.of(2024, 12, 20);
         int cycleLength = 30;
 
-        LocalDate nextPeriod = calculator.getNextPeriodDate(lastPeriodStart, cycleLength);
+        LocalDate nextPeriod = nextPeriodDate(lastPeriodStart, cycleLength);
 
         assertEquals(LocalDate.of(2025, 1, 19), nextPeriod);
     }
@@ -75,7 +74,7 @@ public class PeriodCalculatorTest {
         LocalDate lastPeriodStart = LocalDate.of(2026, 1, 20);
         int cycleLength = 21;
 
-        LocalDate nextPeriod = calculator.getNextPeriodDate(lastPeriodStart, cycleLength);
+        LocalDate nextPeriod = nextPeriodDate(lastPeriodStart, cycleLength);
 
         assertEquals(LocalDate.of(2026, 2, 10), nextPeriod);
     }
@@ -90,7 +89,7 @@ public class PeriodCalculatorTest {
         LocalDate lastPeriodStart = LocalDate.of(2026, 1, 1);
         int cycleLength = 35;
 
-        LocalDate nextPeriod = calculator.getNextPeriodDate(lastPeriodStart, cycleLength);
+        LocalDate nextPeriod = nextPeriodDate(lastPeriodStart, cycleLength);
 
         assertEquals(LocalDate.of(2026, 2, 5), nextPeriod);
     }
@@ -105,14 +104,14 @@ public class PeriodCalculatorTest {
         LocalDate lastPeriodStart = LocalDate.of(2026, 2, 5);
         int cycleLength = 28;
 
-        LocalDate[] fertileWindow = calculator.getFertileWindow(lastPeriodStart, cycleLength);
+        PeriodCalculator.DateRange fertileWindow =
+                new PeriodCalculator(lastPeriodStart, cycleLength).getFertileWindow();
 
         assertNotNull(fertileWindow);
-        assertEquals(2, fertileWindow.length);
-        // Fertile window typically starts on day 12-3 (ovulation day - 3)
-        assertEquals(LocalDate.of(2026, 2, 14), fertileWindow[0]);
-        // Fertile window ends on ovulation day + 1
-        assertEquals(LocalDate.of(2026, 2, 16), fertileWindow[1]);
+        // Fertile window starts on cycle day 12 (ovulation day - 2)
+        assertEquals(LocalDate.of(2026, 2, 17), fertileWindow.getStartDate());
+        // Fertile window ends on cycle day 16 (ovulation day + 2)
+        assertEquals(LocalDate.of(2026, 2, 21), fertileWindow.getEndDate());
     }
 
     /**
@@ -122,7 +121,7 @@ public class PeriodCalculatorTest {
      */
     @Test
     public void testLeapYearDetection() {
-        assertTrue(calculator.isLeapYear(2024));
+        assertTrue(PeriodCalculator.isLeapYear(2024));
     }
 
     /**
@@ -132,7 +131,7 @@ public class PeriodCalculatorTest {
      */
     @Test
     public void testNonLeapYearDetection() {
-        assertFalse(calculator.isLeapYear(2023));
+        assertFalse(PeriodCalculator.isLeapYear(2023));
     }
 
     /**
@@ -142,7 +141,7 @@ public class PeriodCalculatorTest {
      */
     @Test
     public void testCenturyLeapYearDetection() {
-        assertTrue(calculator.isLeapYear(2000));
+        assertTrue(PeriodCalculator.isLeapYear(2000));
     }
 
     /**
@@ -152,7 +151,7 @@ public class PeriodCalculatorTest {
      */
     @Test
     public void testCenturyNonLeapYearDetection() {
-        assertFalse(calculator.isLeapYear(1900));
+        assertFalse(PeriodCalculator.isLeapYear(1900));
     }
 
     /**
@@ -166,7 +165,9 @@ public class PeriodCalculatorTest {
         LocalDate currentDate = LocalDate.of(2026, 2, 5);
         int cycleLength = 28;
 
-        int daysUntil = calculator.daysUntilNextPeriod(lastPeriodStart, currentDate, cycleLength);
+        PeriodCalculator calculator = new PeriodCalculator(lastPeriodStart, cycleLength);
+        calculator.setClock(Clock.fixed(currentDate.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC));
+        int daysUntil = calculator.getDaysUntilNextPeriod();
 
         assertTrue(daysUntil > 0);
         assertTrue(daysUntil <= cycleLength);
@@ -182,7 +183,7 @@ public class PeriodCalculatorTest {
         LocalDate lastPeriodStart = LocalDate.of(2026, 1, 15);
         int invalidCycleLength = 10; // Too short
 
-        LocalDate nextPeriod = calculator.getNextPeriodDate(lastPeriodStart, invalidCycleLength);
+        LocalDate nextPeriod = nextPeriodDate(lastPeriodStart, invalidCycleLength);
 
         // Should use a reasonable minimum cycle length
         assertNotNull(nextPeriod);
@@ -198,9 +199,9 @@ public class PeriodCalculatorTest {
         LocalDate lastPeriodStart = LocalDate.of(2026, 1, 15);
         int cycleLength = 28;
 
-        LocalDate period1 = calculator.getNextPeriodDate(lastPeriodStart, cycleLength);
-        LocalDate period2 = calculator.getNextPeriodDate(period1, cycleLength);
-        LocalDate period3 = calculator.getNextPeriodDate(period2, cycleLength);
+        LocalDate period1 = nextPeriodDate(lastPeriodStart, cycleLength);
+        LocalDate period2 = nextPeriodDate(period1, cycleLength);
+        LocalDate period3 = nextPeriodDate(period2, cycleLength);
 
         assertEquals(LocalDate.of(2026, 2, 12), period1);
         assertEquals(LocalDate.of(2026, 3, 12), period2);
@@ -217,7 +218,7 @@ public class PeriodCalculatorTest {
         LocalDate periodStart = LocalDate.of(2026, 1, 15);
         LocalDate periodEnd = LocalDate.of(2026, 1, 20);
 
-        int duration = calculator.getPeriodDuration(periodStart, periodEnd);
+        int duration = PeriodCalculator.calculatePeriodLength(periodStart, periodEnd);
 
         assertEquals(6, duration); // Inclusive of both start and end date
     }
@@ -235,9 +236,249 @@ public class PeriodCalculatorTest {
                 LocalDate.of(2026, 3, 12)
         };
 
-        int averageCycle = calculator.calculateAverageCycle(periodStarts);
+        int averageCycle = PeriodCalculator.calculateCycleStatistics(Arrays.asList(periodStarts))
+                .getAverageCycleLength();
 
         assertTrue(averageCycle > 0);
         assertTrue(averageCycle <= 35); // Should be within normal range
     }
+
+    /**
+     * Test Case 16: Prediction ranges with regular cycles
+     * Given: Periods exactly 28 days apart (no variance)
+     * Expected: Earliest, most likely and latest are the same day for the
+     *           next period, and the fertile range is the plain fertile window
+     */
+    @Test
+    public void testPredictionWindowWithoutVariance() {
+        EpochDayHistory history = historyOf(0, 28, 56, 84);
+        PeriodCalculator.CycleStatistics statistics = PeriodCalculator.calculateCycleStatistics(history);
+        PeriodCalculator calculator = new PeriodCalculator(history, statistics.getAverageCycleLength());
+        assertEquals(0, statistics.getVariance(), 0);
+
+        PeriodCalculator.PredictionWindow window =
+                calculator.getNextPeriodWindow(statistics, new PeriodCalculator.PredictionWindow());
+        assertWindow(window, START + 112, START + 112, START + 112);
+        assertFalse(window.hasSpread());
+
+        calculator.getFertileWindowRange(statistics, window);
+        assertWindow(window, START + 84 + 12, START + 84 + 14, START + 84 + 16);
+    }
+
+    /**
+     * Test Case 17: Prediction ranges from a single cycle
+     * Given: Two periods 30 days apart, and separately no statistics or no period
+     * Expected: One cycle has no spread, so the range is the prediction
+     *           itself; without a last period there is no range
+     */
+    @Test
+    public void testPredictionWindowSingleCycle() {
+        EpochDayHistory history = historyOf(0, 30);
+        PeriodCalculator.CycleStatistics statistics = PeriodCalculator.calculateCycleStatistics(history);
+        PeriodCalculator calculator = new PeriodCalculator(history, statistics.getAverageCycleLength());
+
+        PeriodCalculator.PredictionWindow window = new PeriodCalculator.PredictionWindow();
+        assertWindow(calculator.getNextPeriodWindow(statistics, window), START + 60, START + 60, START + 60);
+        assertWindow(calculator.getNextPeriodWindow(null, window), START + 60, START + 60, START + 60);
+
+        PeriodCalculator unknown = new PeriodCalculator((LocalDate) null, 28);
+        assertNull(unknown.getNextPeriodWindow(statistics, window));
+        assertNull(unknown.getFertileWindowRange(statistics, window));
+    }
+
+    /**
+     * Test Case 18: Spread widens with cycle variance
+     * Given: Cycles of 26 and 30 days (SD 2.8), then of 22 and 34 days (SD 8.5),
+     *        both averaging 28
+     * Expected: The next period range is 3 and then 8 days either side of
+     *           day 28; with a luteal-anchored strategy the fertile range
+     *           widens by the same days, without one it stays the plain window
+     */
+    @Test
+    public void testPredictionWindowWidensWithVariance() {
+        PeriodCalculator.PredictionWindow window = new PeriodCalculator.PredictionWindow();
+
+        EpochDayHistory regular = historyOf(0, 26, 56);
+        PeriodCalculator.CycleStatistics regularStatistics = PeriodCalculator.calculateCycleStatistics(regular);
+        PeriodCalculator calculator = new PeriodCalculator(regular, 28);
+        assertWindow(calculator.getNextPeriodWindow(regularStatistics, window), START + 81, START + 84, START + 87);
+        assertTrue(window.hasSpread());
+        assertWindow(calculator.getFertileWindowRange(regularStatistics, window),
+                START + 56 + 12, START + 56 + 14, START + 56 + 16);
+
+        EpochDayHistory irregular = historyOf(0, 22, 56);
+        PeriodCalculator.CycleStatistics irregularStatistics = PeriodCalculator.calculateCycleStatistics(irregular);
+        calculator = new PeriodCalculator(irregular, 28);
+        assertWindow(calculator.getNextPeriodWindow(irregularStatistics, window), START + 76, START + 84, START + 92);
+
+        PredictionStrategy strategy = new LutealAnchoredPredictionStrategy(new MedianPredictionStrategy(3));
+        strategy.train(regular);
+        calculator = new PeriodCalculator(regular, strategy);
+        // Ovulation 14 days before a 25-, 28- or 31-day cycle ends
+        assertWindow(calculator.getFertileWindowRange(regularStatistics, window),
+                START + 56 + 11 - 2, START + 56 + 14, START + 56 + 17 + 2);
+
+        strategy.train(irregular);
+        calculator = new PeriodCalculator(irregular, strategy);
+        assertWindow(calculator.getFertileWindowRange(irregularStatistics, window),
+                START + 56 + 6 - 2, START + 56 + 14, START + 56 + 22 + 2);
+    }
+
+    /**
+     * Test Case 19: Today across midnight
+     * Given: Last period 2024-03-01, a clock at 23:59:59.999 on 2024-03-05,
+     *        then at midnight, then set back to the evening before
+     * Expected: Cycle day 5, then 6, then 5 again; the snapshot is reused
+     */
+    @Test
+    public void testTodaySnapshotCrossesMidnight() {
+        ZoneId zone = ZoneOffset.UTC;
+        MutableClock clock = new MutableClock(zone);
+        PeriodCalculator calculator = new PeriodCalculator(LocalDate.of(2024, 3, 1), 28);
+        calculator.setClock(clock);
+        PeriodCalculator.TodaySnapshot snapshot = new PeriodCalculator.TodaySnapshot();
+
+        clock.set(LocalDateTime.of(2024, 3, 5, 23, 59, 59, 999_000_000), zone);
+        assertSame(snapshot, calculator.getTodaySnapshot(snapshot));
+        assertEquals(5, snapshot.getCycleDay());
+        assertEquals(24, snapshot.getDaysUntilNextPeriod());
+
+        clock.set(LocalDateTime.of(2024, 3, 6, 0, 0), zone);
+        calculator.getTodaySnapshot(snapshot);
+        assertEquals(6, snapshot.getCycleDay());
+        assertEquals(23, snapshot.getDaysUntilNextPeriod());
+        assertEquals(LocalDate.of(2024, 3, 6).toEpochDay(), calculator.getTodayEpochDay());
+
+        clock.set(LocalDateTime.of(2024, 3, 5, 22, 0), zone);
+        assertEquals(5, calculator.getTodaySnapshot(snapshot).getCycleDay());
+    }
+
+    /**
+     * Test Case 20: Today across daylight saving changes
+     * Given: America/New_York, where 2024-03-10 has 23 hours and
+     *        2024-11-03 has 25 hours
+     * Expected: The date changes exactly at local midnight: 23:30 on the
+     *           25-hour day is still that day, and 00:00 after the
+     *           23-hour day is the next one
+     */
+    @Test
+    public void testTodayEpochDayAcrossDaylightSaving() {
+        ZoneId zone = ZoneId.of("America/New_York");
+        MutableClock clock = new MutableClock(zone);
+        PeriodCalculator calculator = new PeriodCalculator(LocalDate.of(2024, 3, 1), 28);
+        calculator.setClock(clock);
+
+        clock.set(LocalDateTime.of(2024, 3, 10, 0, 30), zone);
+        assertEquals(LocalDate.of(2024, 3, 10).toEpochDay(), calculator.getTodayEpochDay());
+        clock.set(LocalDateTime.of(2024, 3, 10, 23, 59), zone);
+        assertEquals(LocalDate.of(2024, 3, 10).toEpochDay(), calculator.getTodayEpochDay());
+        clock.set(LocalDateTime.of(2024, 3, 11, 0, 0), zone);
+        assertEquals(LocalDate.of(2024, 3, 11).toEpochDay(), calculator.getTodayEpochDay());
+
+        clock.set(LocalDateTime.of(2024, 11, 3, 0, 30), zone);
+        assertEquals(LocalDate.of(2024, 11, 3).toEpochDay(), calculator.getTodayEpochDay());
+        // 24 hours after the day started, but an hour before local midnight
+        clock.set(LocalDateTime.of(2024, 11, 3, 23, 30), zone);
+        assertEquals(LocalDate.of(2024, 11, 3).toEpochDay(), calculator.getTodayEpochDay());
+        clock.set(LocalDateTime.of(2024, 11, 4, 0, 0), zone);
+        assertEquals(LocalDate.of(2024, 11, 4).toEpochDay(), calculator.getTodayEpochDay());
+    }
+
+    /**
+     * Test Case 21: Replacing the clock
+     * Given: A fixed UTC clock at noon on 2024-03-05, then a clock at the
+     *        same instant in UTC+12
+     * Expected: The new clock's date is used at once, not the cached one
+     */
+    @Test
+    public void testSetClockDropsCachedDay() {
+        PeriodCalculator calculator = new PeriodCalculator(LocalDate.of(2024, 3, 1), 28);
+        Instant noon = LocalDateTime.of(2024, 3, 5, 12, 0).toInstant(ZoneOffset.UTC);
+        calculator.setClock(Clock.fixed(noon, ZoneOffset.UTC));
+        assertEquals(LocalDate.of(2024, 3, 5).toEpochDay(), calculator.getTodayEpochDay());
+
+        // Same instant, but 12 hours ahead it is already the next day
+        calculator.setClock(Clock.fixed(noon, ZoneOffset.ofHours(12)));
+        assertEquals(LocalDate.of(2024, 3, 6).toEpochDay(), calculator.getTodayEpochDay());
+    }
+
+    /**
+     * Test Case 22: Dates outside the epoch-day range
+     * Given: A date 2^32 days after 2024-01-01, whose epoch day would wrap
+     *        around to 2024-01-01 in an int, and the first and last LocalDate
+     * Expected: No epoch day for any of them, so they are never taken for
+     *           2024-01-01; the lowest and highest int epoch days still convert
+     */
+    @Test
+    public void testEpochDayOutOfRange() {
+        LocalDate wrapping = LocalDate.ofEpochDay(START + (1L << 32));
+        LocalDate first = LocalDate.of(2024, 1, 1);
+        assertEquals(START, (int) wrapping.toEpochDay());
+
+        assertEquals(PeriodCalculator.NO_DATE, PeriodCalculator.toEpochDay(wrapping));
+        assertEquals(PeriodCalculator.NO_DATE, PeriodCalculator.toEpochDay(LocalDate.MIN));
+        assertEquals(PeriodCalculator.NO_DATE, PeriodCalculator.toEpochDay(LocalDate.MAX));
+        assertEquals(PeriodCalculator.NO_DATE, PeriodCalculator.toEpochDay(LocalDate.ofEpochDay(Integer.MIN_VALUE)));
+        assertEquals(Integer.MIN_VALUE + 1, PeriodCalculator.toEpochDay(LocalDate.ofEpochDay(Integer.MIN_VALUE + 1)));
+        assertEquals(Integer.MAX_VALUE, PeriodCalculator.toEpochDay(LocalDate.ofEpochDay(Integer.MAX_VALUE)));
+
+        assertEquals(0, PeriodCalculator.calculatePeriodLength(first, wrapping));
+        assertEquals(0, PeriodCalculator.calculatePeriodLength(LocalDate.MIN, first));
+        assertNull(new PeriodCalculator(wrapping, 28).getLastPeriodStart());
+        assertEquals(1, EpochDayHistory.fromDates(Arrays.asList(first, wrapping, null)).size());
+    }
+
+    /**
+     * Clock whose instant a test sets
+     */
+    private static final class MutableClock extends Clock {
+        private final ZoneId zone;
+        private Instant instant = Instant.EPOCH;
+
+        MutableClock(ZoneId zone) {
+            this.zone = zone;
+        }
+
+        void set(LocalDateTime localDateTime, ZoneId zone) {
+            instant = localDateTime.atZone(zone).toInstant();
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            MutableClock clock = new MutableClock(zone);
+            clock.instant = instant;
+            return clock;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+
+    private static EpochDayHistory historyOf(int... days) {
+        int[] starts = new int[days.length];
+        int[] ends = new int[days.length];
+        for (int i = 0; i < days.length; i++) {
+            starts[i] = START + days[i];
+            ends[i] = EpochDayHistory.NO_END;
+        }
+        return EpochDayHistory.of(starts, ends, days.length);
+    }
+
+    private static void assertWindow(PeriodCalculator.PredictionWindow window, int earliest, int mostLikely, int latest) {
+        assertNotNull(window);
+        assertEquals(earliest, window.getEarliestEpochDay());
+        assertEquals(mostLikely, window.getMostLikelyEpochDay());
+        assertEquals(latest, window.getLatestEpochDay());
+    }
+
+    private static LocalDate nextPeriodDate(LocalDate lastPeriodStart, int cycleLength) {
+        return new PeriodCalculator(lastPeriodStart, cycleLength).getNextPeriodDate();
+    }
 }
@@ -0,0 +1,187 @@
+package com.example.periodtracker;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+import javax.crypto.KeyGenerator;
+
+/**
+ * Unit tests for the PredictionStrategy implementations
+ * Verifies training against cycle-by-cycle updates, the median window,
+ * the luteal-anchored ovulation day, and retraining inside DataStorage
+ */
+public class PredictionStrategyTest {
+
+    private static final LocalDate FIRST_START = LocalDate.of(2024, 1, 1);
+
+    /**
+     * Test Case 1: train() against addCycle()
+     * Given: A generated history of 50 periods, and a strategy that already
+     *        learned unrelated cycles
+     * Expected: train() predicts the same as a fresh strategy fed every
+     *           cycle of the history with addCycle()
+     */
+    @Test
+    public void testTrainMatchesAddCycle() {
+        EpochDayHistory history = new SyntheticHistoryGenerator(9).generate(50);
+        PredictionStrategy[] trained = {
+                new EwmaPredictionStrategy(), new MedianPredictionStrategy(),
+                new LutealAnchoredPredictionStrategy(new MedianPredictionStrategy(5))};
+        PredictionStrategy[] added = {
+                new EwmaPredictionStrategy(), new MedianPredictionStrategy(),
+                new LutealAnchoredPredictionStrategy(new MedianPredictionStrategy(5))};
+
+        for (int i = 0; i < trained.length; i++) {
+            trained[i].addCycle(45);
+            trained[i].addCycle(19);
+            trained[i].train(history);
+            for (int cycle = 0; cycle < history.size() - 1; cycle++) {
+                added[i].addCycle(history.getCycleLength(cycle));
+            }
+            assertEquals(trained[i].toString(), added[i].predictCycleLength(), trained[i].predictCycleLength());
+        }
+    }
+
+    /**
+     * Test Case 2: Exponentially weighted average
+     * Given: Alpha 0.5 and cycles of 28, 32 and 36 days
+     * Expected: 28, then 30, then 33; 28 again after reset()
+     */
+    @Test
+    public void testEwmaWeightsRecentCycles() {
+        EwmaPredictionStrategy strategy = new EwmaPredictionStrategy(0.5);
+        strategy.addCycle(28);
+        assertEquals(28, strategy.predictCycleLength());
+        strategy.addCycle(32);
+        assertEquals(30, strategy.predictCycleLength());
+        strategy.addCycle(36);
+        assertEquals(33, strategy.predictCycleLength());
+
+        strategy.reset();
+        assertEquals(28, strategy.predictCycleLength());
+    }
+
+    /**
+     * Test Case 3: Median window eviction
+     * Given: A window of 3 and cycles 30, 30, 30, 20, 20
+     * Expected: The oldest cycles leave the window, so the median drops to 20
+     */
+    @Test
+    public void testMedianEvictsOldestCycle() {
+        MedianPredictionStrategy strategy = new MedianPredictionStrategy(3);
+        for (int cycle : new int[] {30, 30, 30}) {
+            strategy.addCycle(cycle);
+        }
+        assertEquals(30, strategy.predictCycleLength());
+        strategy.addCycle(20);
+        assertEquals(30, strategy.predictCycleLength());
+        strategy.addCycle(20);
+        assertEquals(20, strategy.predictCycleLength());
+    }
+
+    /**
+     * Test Case 4: Median against sorting the window
+     * Given: 500 random cycles with repeats, windows of 1 to 8
+     * Expected: After every cycle the prediction equals the rounded median
+     *           of the last cycles in the window
+     */
+    @Test
+    public void testMedianMatchesSortedWindow() {
+        Random random = new Random(3);
+        for (int window = 1; window <= 8; window++) {
+            MedianPredictionStrategy strategy = new MedianPredictionStrategy(window);
+            int[] cycles = new int[500];
+            for (int i = 0; i < cycles.length; i++) {
+                cycles[i] = 22 + random.nextInt(12);
+                strategy.addCycle(cycles[i]);
+
+                int[] last = Arrays.copyOfRange(cycles, Math.max(0, i + 1 - window), i + 1);
+                Arrays.sort(last);
+                int middle = last.length / 2;
+                int expected = last.length % 2 == 1
+                        ? last[middle] : (int) Math.round((last[middle - 1] + last[middle]) / 2.0);
+                assertEquals("window " + window + " cycle " + i, expected, strategy.predictCycleLength());
+            }
+        }
+    }
+
+    /**
+     * Test Case 5: Luteal-anchored ovulation day
+     * Given: A 14-day luteal phase
+     * Expected: Ovulation on day 14 of a 28-day cycle, day 21 of a 35-day
+     *           cycle, and no earlier than day 2 of a very short cycle; the
+     *           calculator's fertile window follows it
+     */
+    @Test
+    public void testLutealAnchoredOvulationDay() {
+        LutealAnchoredPredictionStrategy strategy =
+                new LutealAnchoredPredictionStrategy(new MedianPredictionStrategy());
+        assertEquals(14, strategy.getOvulationDay(28));
+        assertEquals(21, strategy.getOvulationDay(35));
+        assertEquals(PeriodCalculator.FERTILE_DAYS_BEFORE_OVULATION, strategy.getOvulationDay(15));
+
+        for (int i = 0; i < 3; i++) {
+            strategy.addCycle(35);
+        }
+        EpochDayHistory history = EpochDayHistory.of(
+                new int[] {(int) FIRST_START.toEpochDay()}, new int[] {EpochDayHistory.NO_END}, 1);
+        PeriodCalculator calculator = new PeriodCalculator(history, strategy);
+        assertEquals(35, calculator.getCycleLength());
+        assertEquals(FIRST_START.plusDays(21 - PeriodCalculator.FERTILE_DAYS_BEFORE_OVULATION),
+                calculator.getFertileWindow().getStartDate());
+        assertEquals(FIRST_START.plusDays(21 + PeriodCalculator.FERTILE_DAYS_AFTER_OVULATION),
+                calculator.getFertileWindow().getEndDate());
+    }
+
+    /**
+     * Test Case 6: Retraining in DataStorage
+     * Given: Storage with a median strategy, then a new latest period,
+     *        an inserted past period, a delete and a range delete
+     * Expected: After each change newPeriodCalculator() predicts what a
+     *           strategy trained on the stored history predicts
+     */
+    @Test
+    public void testStorageRetrainsStaleStrategy() throws Exception {
+        File logFile = File.createTempFile("entries", ".log");
+        logFile.delete();
+        try {
+            KeyGenerator generator = KeyGenerator.getInstance("AES");
+            generator.init(256);
+            DataStorage storage = new DataStorage(new InMemoryPreferences(),
+                    new EncryptedEntryLog(logFile, generator.generateKey()));
+            int[] gaps = {30, 31, 33, 35, 24, 29, 30};
+            LocalDate start = FIRST_START;
+            for (int gap : gaps) {
+                storage.savePeriodEntry(start, null);
+                start = start.plusDays(gap);
+            }
+            storage.setPredictionStrategy(new MedianPredictionStrategy(3));
+            assertPredictsAsTrained(storage);
+
+            storage.savePeriodEntry(start, null);
+            assertPredictsAsTrained(storage);
+
+            // Inside the median's window, so only a retrain predicts right
+            storage.savePeriodEntry(start.minusDays(12), null);
+            assertPredictsAsTrained(storage);
+
+            storage.deletePeriodEntry(start);
+            assertPredictsAsTrained(storage);
+
+            storage.deleteRange(FIRST_START.plusDays(100), FIRST_START.plusDays(160));
+            assertPredictsAsTrained(storage);
+        } finally {
+            logFile.delete();
+        }
+    }
+
+    private static void assertPredictsAsTrained(DataStorage storage) {
+        MedianPredictionStrategy expected = new MedianPredictionStrategy(3);
+        expected.train(storage.getEpochDayHistory());
+        assertEquals(expected.predictCycleLength(), storage.newPeriodCalculator().getCycleLength());
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.periodtracker;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * SyntheticHistoryGenerator produces deterministic, realistic period
+ * histories for tests, benchmarks and backtests.
+ *
+ * Each seed describes one simulated user: a personal mean cycle length
+ * between 26 and 32 days with day-to-day variation, occasional missed
+ * months (a period that was not logged, so one gap spans two cycles), and
+ * some entries without an end date. The most recent period always starts
+ * on lastStart (2024-03-10 by default), so every history of ten or more
+ * entries crosses a year boundary and 29 February 2024.
+ *
+ * The same seed and size give the same history from every generate method.
+ */
+public final class SyntheticHistoryGenerator {
+
+    public static final LocalDate DEFAULT_LAST_START = LocalDate.of(2024, 3, 10);
+
+    private static final int MIN_CYCLE_LENGTH = 18;
+    private static final int MAX_CYCLE_LENGTH = 50;
+
+    private final long seed;
+    private LocalDate lastStart = DEFAULT_LAST_START;
+    private double missedMonthRate = 0.03;
+    private double missingEndRate = 0.1;
+
+    public SyntheticHistoryGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Start date of the most recent generated period
+     */
+    public SyntheticHistoryGenerator setLastStart(LocalDate lastStart) {
+        this.lastStart = lastStart;
+        return this;
+    }
+
+    /**
+     * Share of cycles followed by an unlogged period, 0 to disable
+     */
+    public SyntheticHistoryGenerator setMissedMonthRate(double missedMonthRate) {
+        this.missedMonthRate = missedMonthRate;
+        return this;
+    }
+
+    /**
+     * Share of entries logged without an end date, 0 to disable
+     */
+    public SyntheticHistoryGenerator setMissingEndRate(double missingEndRate) {
+        this.missingEndRate = missingEndRate;
+        return this;
+    }
+
+    /**
+     * Generate a history
+     * @param size Number of logged periods, e.g. 10 to 1,000,000
+     */
+    public EpochDayHistory generate(int size) {
+        Random random = new Random(seed);
+        double meanCycle = 26 + 6 * random.nextDouble();
+        double cycleDeviation = 0.5 + 3 * random.nextDouble();
+        double meanPeriod = 4 + 2 * random.nextDouble();
+
+        // Gaps are generated forward and then placed so the last start is fixed
+        int[] starts = new int[size];
+        int[] ends = new int[size];
+        int offset = 0;
+        for (int i = 0; i < size; i++) {
+            starts[i] = offset;
+            int periodLength = Math.max(2, (int) Math.round(meanPeriod + random.nextGaussian()));
+            ends[i] = random.nextDouble() < missingEndRate ? EpochDayHistory.NO_END : offset + periodLength - 1;
+
+            offset += nextCycleLength(random, meanCycle, cycleDeviation);
+            if (random.nextDouble() < missedMonthRate) {
+                offset += nextCycleLength(random, meanCycle, cycleDeviation);
+            }
+        }
+
+        if (size > 0) {
+            int shift = (int) lastStart.toEpochDay() - starts[size - 1];
+            for (int i = 0; i < size; i++) {
+                starts[i] += shift;
+                if (ends[i] != EpochDayHistory.NO_END) {
+                    ends[i] += shift;
+                }
+            }
+        }
+        return EpochDayHistory.of(starts, ends, size);
+    }
+
+    /**
+     * Generate period start dates, oldest first
+     */
+    public List<LocalDate> generateStartDates(int size) {
+        EpochDayHistory history = generate(size);
+        List<LocalDate> dates = new ArrayList<>(history.size());
+        for (int i = 0; i < history.size(); i++) {
+            dates.add(LocalDate.ofEpochDay(history.getStart(i)));
+        }
+        return dates;
+    }
+
+    /**
+     * Generate the legacy "period_entries" preference value: entries in the
+     * order they were logged, "yyyy-MM-dd" or "yyyy-MM-dd-yyyy-MM-dd",
+     * separated by '|'. The format needs four-digit years, so keep size
+     * below about 20,000.
+     */
+    public String generateLegacyEntries(int size) {
+        EpochDayHistory history = generate(size);
+        DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE;
+        StringBuilder entries = new StringBuilder(size * 22);
+        for (int i = 0; i < history.size(); i++) {
+            if (i > 0) {
+                entries.append('|');
+            }
+            entries.append(LocalDate.ofEpochDay(history.getStart(i)).format(formatter));
+            if (history.getEnd(i) != EpochDayHistory.NO_END) {
+                entries.append('-').append(LocalDate.ofEpochDay(history.getEnd(i)).format(formatter));
+            }
+        }
+        return entries.toString();
+    }
+
+    private static int nextCycleLength(Random random, double mean, double deviation) {
+        int cycleLength = (int) Math.round(mean + deviation * random.nextGaussian());
+        return Math.max(MIN_CYCLE_LENGTH, Math.min(cycleLength, MAX_CYCLE_LENGTH));
+    }
+}
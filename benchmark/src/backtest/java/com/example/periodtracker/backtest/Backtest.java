@@ -0,0 +1,201 @@
+package com.example.periodtracker.backtest;
+
+import com.example.periodtracker.DataStorage;
+import com.example.periodtracker.EpochDayHistory;
+import com.example.periodtracker.EwmaPredictionStrategy;
+import com.example.periodtracker.InMemoryPreferences;
+import com.example.periodtracker.LutealAnchoredPredictionStrategy;
+import com.example.periodtracker.MedianPredictionStrategy;
+import com.example.periodtracker.PeriodCalculator;
+import com.example.periodtracker.PredictionStrategy;
+import com.example.periodtracker.SyntheticHistoryGenerator;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Replays period histories cycle by cycle and scores PeriodCalculator's
+ * predictions. Before each recorded period the calculator only knows the
+ * earlier ones; its next-period date and fertile window are compared with
+ * what actually followed.
+ *
+ * The true ovulation day is not in the data, so it is estimated as 14 days
+ * before the next period (a typical luteal phase).
+ *
+ * Synthetic users are independent and replayed in parallel on the common
+ * fork-join pool; each worker merges its scores at the end, so the only
+ * shared state is the final reduction.
+ *
+ * Usage: Backtest [--users N] [--cycles N] [--seed N] [--warmup N] [--csv export.csv]
+ */
+public final class Backtest {
+
+    private static final int LUTEAL_PHASE_DAYS = 14;
+
+    private int users = 10_000;
+    private int cyclesPerUser = 24;
+    private long seed = 42L;
+    private int warmupCycles = 3;
+    private String csvPath;
+
+    public static void main(String[] args) throws IOException {
+        Backtest backtest = new Backtest();
+        backtest.parseArgs(args);
+        backtest.run();
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--users":
+                    users = Integer.parseInt(value);
+                    break;
+                case "--cycles":
+                    cyclesPerUser = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--warmup":
+                    warmupCycles = Integer.parseInt(value);
+                    break;
+                case "--csv":
+                    csvPath = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+    }
+
+    private void run() throws IOException {
+        EpochDayHistory csvHistory = csvPath != null ? loadCsv(csvPath) : null;
+        if (csvHistory != null) {
+            System.out.println("Backtest of " + csvPath + ": " + csvHistory.size() + " periods, warmup " + warmupCycles);
+        } else {
+            System.out.println("Backtest of " + users + " synthetic users x " + cyclesPerUser
+                    + " cycles, seed " + seed + ", warmup " + warmupCycles);
+        }
+
+        for (Map.Entry<String, Supplier<PredictionStrategy>> strategy : strategies().entrySet()) {
+            long startNanos = System.nanoTime();
+            BacktestScore score;
+            if (csvHistory != null) {
+                score = new BacktestScore();
+                replay(csvHistory, strategy.getValue().get(), warmupCycles, score);
+            } else {
+                score = replaySynthetic(strategy.getValue(), users, cyclesPerUser, seed, warmupCycles);
+            }
+            long millis = (System.nanoTime() - startNanos) / 1_000_000;
+            System.out.printf("%-24s %s (%d ms)%n", strategy.getKey(), score, millis);
+        }
+    }
+
+    /**
+     * Strategies compared by the command line tool, in output order
+     */
+    static Map<String, Supplier<PredictionStrategy>> strategies() {
+        Map<String, Supplier<PredictionStrategy>> strategies = new LinkedHashMap<>();
+        strategies.put("mean (app default)", MeanPredictionStrategy::new);
+        strategies.put("ewma 0.3", EwmaPredictionStrategy::new);
+        strategies.put("median 6", MedianPredictionStrategy::new);
+        strategies.put("luteal + median 6", () -> new LutealAnchoredPredictionStrategy(new MedianPredictionStrategy()));
+        return strategies;
+    }
+
+    /**
+     * Replay many synthetic users in parallel
+     * @param strategy Creates a fresh strategy per user
+     * @return Merged score of all users
+     */
+    public static BacktestScore replaySynthetic(Supplier<PredictionStrategy> strategy, int users,
+                                                int cyclesPerUser, long seed, int warmupCycles) {
+        return IntStream.range(0, users).parallel().collect(
+                BacktestScore::new,
+                (score, user) -> replay(syntheticHistory(seed, user, cyclesPerUser), strategy.get(), warmupCycles, score),
+                BacktestScore::merge);
+    }
+
+    /**
+     * Replay one history, training the strategy one cycle at a time
+     * @param history History to replay, oldest first
+     * @param strategy Strategy to score; it is reset first
+     * @param warmupCycles Cycles the strategy sees before predictions are scored
+     * @param score Receives one record per scored cycle
+     */
+    public static void replay(EpochDayHistory history, PredictionStrategy strategy, int warmupCycles,
+                              BacktestScore score) {
+        strategy.reset();
+        PeriodCalculator calculator = new PeriodCalculator((LocalDate) null, 0);
+
+        for (int i = 1; i < history.size(); i++) {
+            // The strategy has seen the i - 1 cycles that end before period i - 1
+            if (i - 1 >= warmupCycles) {
+                int lastStart = history.getStart(i - 1);
+                int actualStart = history.getStart(i);
+                calculator.setLastPeriodStartEpochDay(lastStart);
+                calculator.setPredictionStrategy(strategy);
+
+                int estimatedOvulation = actualStart - LUTEAL_PHASE_DAYS;
+                boolean fertileWindowHit = estimatedOvulation >= calculator.getFertileWindowStartEpochDay(0)
+                        && estimatedOvulation <= calculator.getFertileWindowEndEpochDay(0);
+                score.record(calculator.getNextPeriodEpochDay() - actualStart,
+                        lastStart + calculator.getOvulationDay() - estimatedOvulation,
+                        fertileWindowHit);
+            }
+            strategy.addCycle(history.getCycleLength(i - 1));
+        }
+    }
+
+    /**
+     * History of one synthetic user, including missed months
+     */
+    static EpochDayHistory syntheticHistory(long seed, int user, int cycles) {
+        return new SyntheticHistoryGenerator(seed * 1_000_003L + user).generate(cycles + 1);
+    }
+
+    private static EpochDayHistory loadCsv(String path) throws IOException {
+        DataStorage storage = new DataStorage(new InMemoryPreferences(), null);
+        try (Reader reader = new FileReader(path)) {
+            DataStorage.ImportResult result = storage.importCsv(reader);
+            if (result.getInvalid() > 0) {
+                System.out.println("Skipped " + result.getInvalid() + " invalid rows");
+            }
+        }
+        return storage.getEpochDayHistory();
+    }
+
+    /**
+     * Running mean of all cycles, matching the average cycle length
+     * DataStorage keeps for the main screen
+     */
+    static final class MeanPredictionStrategy implements PredictionStrategy {
+        private static final int DEFAULT_CYCLE_LENGTH = 28;
+
+        private long sum;
+        private int count;
+
+        @Override
+        public void addCycle(int cycleLength) {
+            sum += cycleLength;
+            count++;
+        }
+
+        @Override
+        public void reset() {
+            sum = 0;
+            count = 0;
+        }
+
+        @Override
+        public int predictCycleLength() {
+            return count > 0 ? (int) Math.round((double) sum / count) : DEFAULT_CYCLE_LENGTH;
+        }
+    }
+}
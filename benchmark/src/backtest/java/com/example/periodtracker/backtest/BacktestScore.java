@@ -0,0 +1,124 @@
+package com.example.periodtracker.backtest;
+
+import java.util.Locale;
+
+/**
+ * Prediction errors collected by a backtest. Absolute errors go into a
+ * fixed histogram, so percentiles need no per-cycle storage and scores from
+ * parallel workers merge by adding counts.
+ */
+public final class BacktestScore {
+
+    // Errors of this many days or more share the last bucket
+    private static final int MAX_TRACKED_ERROR = 64;
+
+    private final long[] absoluteErrors = new long[MAX_TRACKED_ERROR + 1];
+    private long cycles;
+    private long sumError;
+    private long sumAbsoluteError;
+    private long sumSquaredError;
+    private long fertileWindowHits;
+    private long sumOvulationAbsoluteError;
+
+    /**
+     * Record one predicted cycle
+     * @param periodError Predicted minus actual next period start, in days
+     * @param ovulationError Predicted minus estimated actual ovulation day, in days
+     * @param fertileWindowHit Whether the predicted fertile window contained the estimated ovulation
+     */
+    public void record(int periodError, int ovulationError, boolean fertileWindowHit) {
+        int absoluteError = Math.abs(periodError);
+        cycles++;
+        sumError += periodError;
+        sumAbsoluteError += absoluteError;
+        sumSquaredError += (long) periodError * periodError;
+        absoluteErrors[Math.min(absoluteError, MAX_TRACKED_ERROR)]++;
+        sumOvulationAbsoluteError += Math.abs(ovulationError);
+        if (fertileWindowHit) {
+            fertileWindowHits++;
+        }
+    }
+
+    /**
+     * Add another score into this one
+     */
+    public void merge(BacktestScore other) {
+        cycles += other.cycles;
+        sumError += other.sumError;
+        sumAbsoluteError += other.sumAbsoluteError;
+        sumSquaredError += other.sumSquaredError;
+        fertileWindowHits += other.fertileWindowHits;
+        sumOvulationAbsoluteError += other.sumOvulationAbsoluteError;
+        for (int i = 0; i < absoluteErrors.length; i++) {
+            absoluteErrors[i] += other.absoluteErrors[i];
+        }
+    }
+
+    public long getCycles() {
+        return cycles;
+    }
+
+    /**
+     * Mean signed error; positive means predictions come late
+     */
+    public double getBias() {
+        return cycles > 0 ? (double) sumError / cycles : 0;
+    }
+
+    public double getMeanAbsoluteError() {
+        return cycles > 0 ? (double) sumAbsoluteError / cycles : 0;
+    }
+
+    public double getRootMeanSquaredError() {
+        return cycles > 0 ? Math.sqrt((double) sumSquaredError / cycles) : 0;
+    }
+
+    /**
+     * Absolute error in days at or below which a share of predictions fall
+     * @param fraction Share between 0 and 1, e.g. 0.9
+     */
+    public int getAbsoluteErrorPercentile(double fraction) {
+        long target = (long) Math.ceil(fraction * cycles);
+        long seen = 0;
+        for (int error = 0; error < absoluteErrors.length; error++) {
+            seen += absoluteErrors[error];
+            if (seen >= target && seen > 0) {
+                return error;
+            }
+        }
+        return MAX_TRACKED_ERROR;
+    }
+
+    /**
+     * Share of predictions within a number of days of the actual start
+     */
+    public double getWithinDays(int days) {
+        if (cycles == 0) {
+            return 0;
+        }
+        long hits = 0;
+        for (int error = 0; error <= Math.min(days, MAX_TRACKED_ERROR); error++) {
+            hits += absoluteErrors[error];
+        }
+        return (double) hits / cycles;
+    }
+
+    public double getFertileWindowHitRate() {
+        return cycles > 0 ? (double) fertileWindowHits / cycles : 0;
+    }
+
+    public double getOvulationMeanAbsoluteError() {
+        return cycles > 0 ? (double) sumOvulationAbsoluteError / cycles : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "cycles=%d bias=%+.2f mae=%.2f rmse=%.2f p50=%d p90=%d within1=%.1f%% within3=%.1f%% "
+                        + "fertileHit=%.1f%% ovulationMae=%.2f",
+                cycles, getBias(), getMeanAbsoluteError(), getRootMeanSquaredError(),
+                getAbsoluteErrorPercentile(0.5), getAbsoluteErrorPercentile(0.9),
+                100 * getWithinDays(1), 100 * getWithinDays(3),
+                100 * getFertileWindowHitRate(), getOvulationMeanAbsoluteError());
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.periodtracker.benchmark;
+
+import com.example.periodtracker.DataStorage;
+import com.example.periodtracker.EncryptedEntryLog;
+import com.example.periodtracker.EpochDayHistory;
+import com.example.periodtracker.InMemoryPreferences;
+import com.example.periodtracker.SyntheticHistoryGenerator;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+/**
+ * Shared fixtures for the benchmarks: deterministic synthetic histories and
+ * DataStorage instances backed by InMemoryPreferences and a temp log file.
+ */
+final class BenchmarkData {
+
+    private static final long SEED = 42L;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Period start dates of one synthetic user, oldest first
+     */
+    static List<LocalDate> startDates(int size) {
+        return new SyntheticHistoryGenerator(SEED).generateStartDates(size);
+    }
+
+    static EpochDayHistory history(int size) {
+        return new SyntheticHistoryGenerator(SEED).generate(size);
+    }
+
+    static SecretKey newKey() throws GeneralSecurityException {
+        KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+        keyGenerator.init(256);
+        return keyGenerator.generateKey();
+    }
+
+    static File newLogFile() throws IOException {
+        File directory = Files.createTempDirectory("period-benchmark").toFile();
+        directory.deleteOnExit();
+        return new File(directory, "period_entries.log");
+    }
+
+    /**
+     * DataStorage holding the synthetic history of the given size.
+     * The log is written directly so setup does not depend on write performance.
+     */
+    static DataStorage populatedStorage(File logFile, SecretKey key, int size)
+            throws GeneralSecurityException, IOException {
+        EpochDayHistory history = history(size);
+        List<EncryptedEntryLog.Record> records = new ArrayList<>(size);
+        for (int i = 0; i < history.size(); i++) {
+            records.add(new EncryptedEntryLog.Record(
+                    EncryptedEntryLog.OP_SAVE, history.getStart(i), history.getEnd(i)));
+        }
+
+        EncryptedEntryLog entryLog = new EncryptedEntryLog(logFile, key);
+        entryLog.append(records);
+        return new DataStorage(new InMemoryPreferences(), entryLog);
+    }
+}
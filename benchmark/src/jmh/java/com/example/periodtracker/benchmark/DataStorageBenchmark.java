@@ -0,0 +1,161 @@
+package com.example.periodtracker.benchmark;
+
+import com.example.periodtracker.DataStorage;
+import com.example.periodtracker.DayPhaseIndex;
+import com.example.periodtracker.EncryptedEntryLog;
+import com.example.periodtracker.InMemoryPreferences;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.security.GeneralSecurityException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.SecretKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks for DataStorage reads, export and writes at different history sizes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DataStorageBenchmark {
+
+    // Discards everything, so only encoding is measured
+    private static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int historySize;
+
+    private File logFile;
+    private SecretKey key;
+    private DataStorage storage;
+    private LocalDate nextStart;
+    private String exportedCsv;
+    private byte[] fullBackup;
+    private final int[] monthStates = new int[31];
+
+    @Setup
+    public void setUp() throws Exception {
+        logFile = BenchmarkData.newLogFile();
+        key = BenchmarkData.newKey();
+        storage = BenchmarkData.populatedStorage(logFile, key, historySize);
+        nextStart = storage.getPeriodHistory().get(0).plusDays(28);
+        exportedCsv = storage.exportDataAsCSV();
+        ByteArrayOutputStream backup = new ByteArrayOutputStream();
+        storage.writeBackup(backup, false);
+        fullBackup = backup.toByteArray();
+    }
+
+    @TearDown
+    public void tearDown() {
+        logFile.delete();
+    }
+
+    /**
+     * Warm read served from the in-memory history
+     */
+    @Benchmark
+    public List<LocalDate> getPeriodHistoryCached() {
+        return storage.getPeriodHistory();
+    }
+
+    /**
+     * Cold read: decrypt and parse the whole entry log, as on app start
+     */
+    @Benchmark
+    public List<LocalDate> getPeriodHistoryCold() throws GeneralSecurityException {
+        DataStorage cold = new DataStorage(new InMemoryPreferences(), new EncryptedEntryLog(logFile, key));
+        return cold.getPeriodHistory();
+    }
+
+    @Benchmark
+    public String exportDataAsCSV() {
+        return storage.exportDataAsCSV();
+    }
+
+    /**
+     * Streaming export into a discarding stream, so only the row encoding is measured
+     */
+    @Benchmark
+    public void exportCsvStreaming() throws IOException {
+        storage.exportCsv(DISCARD, null);
+    }
+
+    /**
+     * Full binary backup into a discarding stream, for comparison with the CSV export
+     */
+    @Benchmark
+    public byte writeFullBackup() throws IOException {
+        return storage.writeBackup(DISCARD, false);
+    }
+
+    /**
+     * States for one calendar month around the latest period from the warm index
+     */
+    @Benchmark
+    public int[] dayPhaseIndexMonth() {
+        DayPhaseIndex index = storage.getDayPhaseIndex(12);
+        index.statesOf((int) nextStart.toEpochDay() - 14, monthStates, 0, monthStates.length);
+        return monthStates;
+    }
+
+    /**
+     * Save a new most recent period and delete it again, leaving the history unchanged
+     */
+    @Benchmark
+    public void saveAndDeletePeriodEntry() {
+        storage.savePeriodEntry(nextStart, nextStart.plusDays(4));
+        storage.deletePeriodEntry(nextStart);
+    }
+
+    /**
+     * Import a full export into empty storage: one log append and one commit
+     */
+    @Benchmark
+    public DataStorage.ImportResult importCsvIntoEmptyStorage() throws GeneralSecurityException, IOException {
+        File importLog = BenchmarkData.newLogFile();
+        try {
+            DataStorage empty = new DataStorage(new InMemoryPreferences(), new EncryptedEntryLog(importLog, key));
+            return empty.importCsv(new StringReader(exportedCsv));
+        } finally {
+            importLog.delete();
+            importLog.getParentFile().delete();
+        }
+    }
+
+    /**
+     * Restore a full binary backup into empty storage, for comparison with the CSV import
+     */
+    @Benchmark
+    public DataStorage.ImportResult restoreBackupIntoEmptyStorage() throws GeneralSecurityException, IOException {
+        File restoreLog = BenchmarkData.newLogFile();
+        try {
+            DataStorage empty = new DataStorage(new InMemoryPreferences(), new EncryptedEntryLog(restoreLog, key));
+            return empty.restoreBackup(new ByteArrayInputStream(fullBackup));
+        } finally {
+            restoreLog.delete();
+            restoreLog.getParentFile().delete();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.periodtracker.benchmark;
+
+import com.example.periodtracker.EpochDayHistory;
+import com.example.periodtracker.LegacyEntryParser;
+import com.example.periodtracker.SyntheticHistoryGenerator;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Parsing the legacy "period_entries" string: the single-pass scanner
+ * against the split/substring/LocalDate.parse approach it replaced
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LegacyParserBenchmark {
+
+    private static final long SEED = 42L;
+    // Late enough that 100,000 entries still have four-digit years
+    private static final LocalDate LAST_START = LocalDate.of(9999, 12, 1);
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int historySize;
+
+    private String entries;
+    private final LegacyEntryParser parser = new LegacyEntryParser();
+
+    @Setup
+    public void setUp() {
+        entries = new SyntheticHistoryGenerator(SEED).setLastStart(LAST_START).generateLegacyEntries(historySize);
+    }
+
+    @Benchmark
+    public EpochDayHistory scanner() {
+        return parser.parse(entries);
+    }
+
+    @Benchmark
+    public EpochDayHistory splitAndParse() {
+        String[] split = entries.split("\\|");
+        int[] starts = new int[split.length];
+        int[] ends = new int[split.length];
+        int size = 0;
+        for (String entry : split) {
+            try {
+                starts[size] = (int) LocalDate.parse(entry.substring(0, 10), DateTimeFormatter.ISO_LOCAL_DATE).toEpochDay();
+                ends[size] = entry.length() > 10
+                        ? (int) LocalDate.parse(entry.substring(11), DateTimeFormatter.ISO_LOCAL_DATE).toEpochDay()
+                        : EpochDayHistory.NO_END;
+                size++;
+            } catch (RuntimeException e) {
+                // Skipped, as the old migration did after printing the stack trace
+            }
+        }
+        return EpochDayHistory.of(starts, ends, size);
+    }
+}
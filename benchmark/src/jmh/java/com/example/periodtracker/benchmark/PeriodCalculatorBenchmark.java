@@ -0,0 +1,92 @@
+package com.example.periodtracker.benchmark;
+
+import com.example.periodtracker.CycleForecast;
+import com.example.periodtracker.EpochDayHistory;
+import com.example.periodtracker.PeriodCalculator;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for PeriodCalculator statistics and multi-cycle predictions
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PeriodCalculatorBenchmark {
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int historySize;
+
+    private List<LocalDate> startDates;
+    private EpochDayHistory history;
+    private PeriodCalculator calculator;
+    private final CycleForecast forecast = new CycleForecast();
+    private final PeriodCalculator.TodaySnapshot todaySnapshot = new PeriodCalculator.TodaySnapshot();
+
+    @Setup
+    public void setUp() {
+        startDates = BenchmarkData.startDates(historySize);
+        history = EpochDayHistory.fromDates(startDates);
+        calculator = new PeriodCalculator(history, 28);
+        calculator.setClock(Clock.fixed(Instant.parse("2024-03-20T09:00:00Z"), ZoneOffset.UTC));
+    }
+
+    @Benchmark
+    public PeriodCalculator.CycleStatistics calculateCycleStatisticsFromDates() {
+        return PeriodCalculator.calculateCycleStatistics(startDates);
+    }
+
+    @Benchmark
+    public PeriodCalculator.CycleStatistics calculateCycleStatisticsFromEpochDays() {
+        return PeriodCalculator.calculateCycleStatistics(history);
+    }
+
+    /**
+     * One fertile window per cycle, as a multi-year calendar would request them
+     */
+    @Benchmark
+    public void getFertileWindowForCycle(Blackhole blackhole) {
+        for (int cycle = 0; cycle < historySize; cycle++) {
+            blackhole.consume(calculator.getFertileWindowForCycle(cycle));
+        }
+    }
+
+    /**
+     * The same calendar filled in one pass into a reused forecast
+     */
+    @Benchmark
+    public CycleForecast fillForecast() {
+        return calculator.fillForecast(forecast, historySize, CycleForecast.DEFAULT_PERIOD_LENGTH);
+    }
+
+    /**
+     * The three today-relative queries the main screen used to make in turn
+     */
+    @Benchmark
+    public void todayQueries(Blackhole blackhole) {
+        blackhole.consume(calculator.getDaysUntilNextPeriod());
+        blackhole.consume(calculator.getDaysUntilFertileWindow());
+        blackhole.consume(calculator.isTodayInFertileWindow());
+    }
+
+    /**
+     * The same values from one clock reading into a reused snapshot
+     */
+    @Benchmark
+    public PeriodCalculator.TodaySnapshot todaySnapshot() {
+        return calculator.getTodaySnapshot(todaySnapshot);
+    }
+}